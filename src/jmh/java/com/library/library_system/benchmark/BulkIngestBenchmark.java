@@ -0,0 +1,109 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.model.Book;
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.service.BookCopyService;
+import com.library.library_system.service.BookService;
+import com.library.library_system.util.ProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * JMH benchmark for the bulk inserts of BookService.createBooks and BookCopyService.createBookCopies
+ * Each iteration inserts a new batch, sized with -p books=100000 -p copiesPerBook=2, rows per second are the batch size
+ * divided by the reported time ... the rows are left in place, so point the profile at a scratch database
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BulkIngestBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Batch {
+
+        @Param({"20000"})
+        public int books;
+
+        @Param({"2"})
+        public int copiesPerBook;
+
+        final BookService bookService = new BookService();
+        final BookCopyService bookCopyService = new BookCopyService();
+        // ISBNs and barcodes never repeat across runs against the same database
+        final String runId = Long.toString(System.currentTimeMillis(), 36);
+        int iteration;
+
+        List<Book> newBooks(String prefix) {
+            List<Book> batch = new ArrayList<>(books);
+            for (int i = 0; i < books; i++) {
+                Book book = new Book();
+                book.setIsbn(prefix + "-" + i);
+                book.setTitle("Benchmark Title " + i);
+                book.setAuthors("Author " + (i % 1000));
+                book.setPublisher("Publisher " + (i % 50));
+                book.setNumberOfPages(100 + i % 400);
+                batch.add(book);
+            }
+            return batch;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class NewBooks {
+        List<Book> books;
+
+        @Setup(Level.Iteration)
+        public void build(Batch batch) {
+            books = batch.newBooks(batch.runId + "-" + batch.iteration++);
+        }
+    }
+
+    // the books of the copies are inserted before the iteration, outside the measured time
+    @State(Scope.Thread)
+    public static class NewCopies {
+        List<BookCopy> copies;
+
+        @Setup(Level.Iteration)
+        public void build(Batch batch) {
+            String prefix = batch.runId + "-" + batch.iteration++;
+            List<Book> books = batch.newBooks(prefix);
+            batch.bookService.createBooks(books, ProgressListener.NONE);
+            copies = new ArrayList<>(books.size() * batch.copiesPerBook);
+            for (int i = 0; i < books.size(); i++) {
+                for (int c = 0; c < batch.copiesPerBook; c++) {
+                    BookCopy copy = new BookCopy();
+                    copy.setBook(books.get(i));
+                    copy.setBarcode(prefix + "-" + i + "-" + c);
+                    copy.setLocation("Stacks " + (i % 20));
+                    copies.add(copy);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void createBooks(Batch batch, NewBooks books) {
+        batch.bookService.createBooks(books.books, ProgressListener.NONE);
+    }
+
+    @Benchmark
+    public void createBookCopies(Batch batch, NewCopies copies) {
+        batch.bookCopyService.createBookCopies(copies.copies, ProgressListener.NONE);
+    }
+}
@@ -0,0 +1,43 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * JMH benchmarks for the read paths of BookService and BookCopyService
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogServiceBenchmark {
+
+    // walks the copies in a fixed stride so consecutive calls do not hit the same rows
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public List<Book> getAllBooks(LibraryDataset data) {
+        return data.bookService.getAllBooks();
+    }
+
+    @Benchmark
+    public String fetchAvailabilityAndDueDate(LibraryDataset data, Cursor cursor) {
+        cursor.next += 7919;
+        return data.bookCopyService.fetchAvailabilityAndDueDate(data.copyId(cursor.next));
+    }
+}
@@ -0,0 +1,71 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.util.SessionFactoryProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * JMH benchmark for concurrent checkouts through the connection pool
+ * Every thread is a desk lending one copy per call, each call a different student and copy from every other desk, and
+ * the loan is deleted again after the invocation outside the measured time
+ * Desks are set with -t, the pool with -jvmArgsAppend -Dhibernate.hikari.maximumPoolSize=10, the pool usage is printed
+ * after the trial
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CheckoutThroughputBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Desks {
+        final AtomicInteger next = new AtomicInteger();
+
+        @TearDown(Level.Trial)
+        public void report() {
+            System.out.println("pool: " + SessionFactoryProvider.getPoolMetrics());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Desk {
+        int pick;
+        int loanId;
+
+        @Setup(Level.Invocation)
+        public void pick(Desks desks) {
+            pick = desks.next.getAndIncrement();
+        }
+
+        @TearDown(Level.Invocation)
+        public void undo(LibraryDataset data) {
+            data.loanService.deleteLoan(loanId);
+        }
+    }
+
+    @Benchmark
+    public int checkout(LibraryDataset data, Desk desk) {
+        Date today = new Date();
+        desk.loanId = data.loanService.createLoanForCopyIds(data.student(desk.pick), List.of(data.copyId(desk.pick)), today,
+            new Date(today.getTime() + 14 * LibraryDataset.DAY)).getLoanId();
+        return desk.loanId;
+    }
+}
@@ -0,0 +1,72 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.service.DataGenerator;
+import com.library.library_system.service.FineService;
+import com.library.library_system.service.GeneratorSpec;
+import com.library.library_system.util.ProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * JMH benchmark for the nightly fine accrual of FineService
+ * Seeds its own dataset in which every open loan is overdue, sized with -p loans=1000000 (the generator keeps as many
+ * of them open as the students and copies allow), and times one accrual per iteration ... the day alternates between two days so every loan below the cap is rewritten each time
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FineServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class OverdueDataset {
+
+        @Param({"100000"})
+        public int loans;
+
+        @Param({"42"})
+        public long seed;
+
+        final FineService fineService = new FineService();
+        LocalDate asOf;
+        int iteration;
+
+        // a student holds about two open loans, copies to spare so the generator never runs out
+        @Setup(Level.Trial)
+        public void seed() {
+            GeneratorSpec spec = GeneratorSpec.of(Math.max(1, loans / 2), Math.max(1, loans * 2 / 3), loans * 2, loans)
+                .withSeed(seed)
+                .withOpenLoans(1.0, 1.0, 0);
+            System.out.println(new DataGenerator().generate(spec, ProgressListener.NONE).summary());
+            asOf = spec.asOf();
+        }
+
+        @Setup(Level.Iteration)
+        public void nextDay() {
+            iteration++;
+        }
+
+        LocalDate day() {
+            return asOf.plusDays(iteration % 2);
+        }
+    }
+
+    @Benchmark
+    public FineService.AccrualResult accrueFines(OverdueDataset data) {
+        return data.fineService.accrueFines(data.day());
+    }
+}
@@ -0,0 +1,84 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.Student;
+import com.library.library_system.service.BookCopyService;
+import com.library.library_system.service.BookService;
+import com.library.library_system.service.DataGenerator;
+import com.library.library_system.service.GeneratorSpec;
+import com.library.library_system.service.LoanService;
+import com.library.library_system.service.StudentService;
+import com.library.library_system.util.ProgressListener;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Seeded dataset shared by the service benchmarks
+ * Every fork starts from an empty database (in-memory H2 in PostgreSQL mode unless the profile is pointed elsewhere)
+ * and fills it once per trial with DataGenerator, sizes are set with JMH parameters, e.g. -p students=10000 -p books=50000
+ * Seeded loans are returned history, so every student can still borrow and every copy is available
+ * The data lives as long as the fork, so the benchmarks must run forked (the default), not with -f 0
+ */
+@State(Scope.Benchmark)
+public class LibraryDataset {
+
+    static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Param({"1000"})
+    public int students;
+
+    @Param({"2000"})
+    public int books;
+
+    @Param({"3"})
+    public int copiesPerBook;
+
+    @Param({"5000"})
+    public int loans;
+
+    @Param({"42"})
+    public long seed;
+
+    final LoanService loanService = new LoanService();
+    final BookService bookService = new BookService();
+    final BookCopyService bookCopyService = new BookCopyService();
+    final StudentService studentService = new StudentService();
+
+    int firstBroncoId;
+    // first Bronco ID above the seeded students, for benchmarks that add students
+    int freeBroncoId;
+    int firstCopyId;
+    int copies;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        GeneratorSpec spec = GeneratorSpec.of(students, books, books * copiesPerBook, loans)
+            .withSeed(seed)
+            .withOpenLoans(0, 0, 0);
+        DataGenerator.Result result = new DataGenerator().generate(spec, ProgressListener.NONE);
+        firstBroncoId = result.firstBroncoId();
+        freeBroncoId = firstBroncoId + students;
+        firstCopyId = result.firstCopyId();
+        copies = spec.copies();
+    }
+
+    // the checkout rules only need the ID of the student
+    Student student(int i) {
+        Student student = new Student();
+        student.setBroncoId(firstBroncoId + Math.floorMod(i, students));
+        return student;
+    }
+
+    int copyId(int i) {
+        return firstCopyId + Math.floorMod(i, copies);
+    }
+
+    BookCopy copy(int i) {
+        return bookCopyService.readBookCopy(copyId(i));
+    }
+}
@@ -0,0 +1,98 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.Loan;
+import com.library.library_system.model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * JMH benchmarks for LoanService
+ * Checkouts and returns are undone after every invocation, outside the measured time, so each call sees the seeded
+ * dataset ... the per-invocation fixtures are fine here because every call is a millisecond-scale database round trip
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanServiceBenchmark {
+
+    /*
+     * One checkout per invocation, a different student and copy each time
+     */
+    @State(Scope.Thread)
+    public static class Checkout {
+        int next;
+        Student student;
+        BookCopy copy;
+        Loan loan;
+
+        @Setup(Level.Invocation)
+        public void pick(LibraryDataset data) {
+            student = data.student(next);
+            copy = data.copy(next);
+        }
+
+        @TearDown(Level.Invocation)
+        public void undo(LibraryDataset data) {
+            if (loan != null) data.loanService.deleteLoan(loan.getLoanId());
+            loan = null;
+            next++;
+        }
+    }
+
+    /*
+     * An open loan created before each invocation, deleted again afterwards
+     */
+    @State(Scope.Thread)
+    public static class OpenLoan {
+        int next;
+        int loanId;
+
+        @Setup(Level.Invocation)
+        public void checkout(LibraryDataset data) {
+            Date today = new Date();
+            loanId = data.loanService.createLoanForCopyIds(data.student(next), List.of(data.copyId(next)), today,
+                new Date(today.getTime() + 14 * LibraryDataset.DAY)).getLoanId();
+        }
+
+        @TearDown(Level.Invocation)
+        public void undo(LibraryDataset data) {
+            data.loanService.deleteLoan(loanId);
+            next++;
+        }
+    }
+
+    @Benchmark
+    public Loan createLoan(LibraryDataset data, Checkout checkout) {
+        Date today = new Date();
+        checkout.loan = data.loanService.createLoan(checkout.student, List.of(checkout.copy), today,
+            new Date(today.getTime() + 14 * LibraryDataset.DAY));
+        return checkout.loan;
+    }
+
+    @Benchmark
+    public void returnLoan(LibraryDataset data, OpenLoan open) {
+        data.loanService.returnLoan(open.loanId, new Date());
+    }
+
+    @Benchmark
+    public List<Loan> getAllLoans(LibraryDataset data) {
+        return data.loanService.getAllLoans();
+    }
+}
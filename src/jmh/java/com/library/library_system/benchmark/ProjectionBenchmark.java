@@ -0,0 +1,72 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.Loan;
+import com.library.library_system.service.BookCopyRow;
+import com.library.library_system.service.LoanRow;
+import com.library.library_system.service.PageRequest;
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * JMH benchmark comparing the projection rows of the table views with the entity queries they replaced
+ * Times the first page of book copies and of loans each way over the seeded dataset, sized with -p pageSize=100
+ * Run with -prof gc for the bytes allocated per page
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    @Param({"100"})
+    public int pageSize;
+
+    @Benchmark
+    public List<BookCopy> copiesPageEntities(LibraryDataset data) {
+        // the query the copy table ran before it switched to rows, followed by one query for the due dates
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            List<BookCopy> copies = session.createQuery(
+                "SELECT bc FROM BookCopy bc JOIN FETCH bc.book b ORDER BY bc.copyId", BookCopy.class)
+                .setMaxResults(pageSize)
+                .list();
+            data.bookCopyService.getActiveDueDates(copies.stream().filter(BookCopy::isBorrowed).map(BookCopy::getCopyId).toList());
+            return copies;
+        }
+    }
+
+    @Benchmark
+    public List<BookCopyRow> copiesPageRows(LibraryDataset data) {
+        return data.bookCopyService.getBookCopiesPage(PageRequest.first(pageSize), false).items();
+    }
+
+    @Benchmark
+    public List<Loan> loansPageEntities(LibraryDataset data) {
+        // the query the loan table ran before it switched to rows
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery("SELECT l FROM Loan l JOIN FETCH l.student s ORDER BY l.loanId", Loan.class)
+                .setMaxResults(pageSize)
+                .list();
+        }
+    }
+
+    @Benchmark
+    public List<LoanRow> loansPageRows(LibraryDataset data) {
+        return data.loanService.getLoansPage(PageRequest.first(pageSize)).items();
+    }
+}
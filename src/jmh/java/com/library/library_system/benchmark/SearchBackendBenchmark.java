@@ -0,0 +1,99 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.model.Book;
+import com.library.library_system.search.BookSearchBackend;
+import com.library.library_system.search.BookSearchIndex;
+import com.library.library_system.search.PostgresSearchBackend;
+import com.library.library_system.search.SearchHit;
+import com.library.library_system.service.BookService;
+import com.library.library_system.util.ProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * JMH benchmark comparing the in-memory search index with the PostgreSQL full-text backend on the same catalog
+ * Grows a synthetic catalog to -p books=1000000 through BookService.createBooks (books are only added, never removed,
+ * so a scratch database is reused across sizes) and rebuilds the in-memory index from it before the trial
+ * The PostgreSQL backend needs the profile pointed at a PostgreSQL database, then run it with -p backend=memory,postgres
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBackendBenchmark {
+
+    private static final int INSERT_CHUNK = 50_000;
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({"100000"})
+        public int books;
+
+        @Param({"memory"})
+        public String backend;
+
+        BookSearchBackend search;
+
+        @Setup(Level.Trial)
+        public void seed() {
+            Random random = new Random(42);
+            BookService bookService = new BookService();
+            int catalog = bookService.getBookIdsByIsbn().size();
+            while (catalog < books) {
+                int count = Math.min(INSERT_CHUNK, books - catalog);
+                bookService.createBooks(books(random, catalog, count), ProgressListener.NONE);
+                catalog += count;
+            }
+            long begin = System.nanoTime();
+            bookService.rebuildSearchIndex();
+            System.out.printf("%d books, in-memory index rebuilt in %.1fs%n", catalog, (System.nanoTime() - begin) / 1e9);
+            search = "postgres".equals(backend) ? new PostgresSearchBackend() : BookSearchIndex.getInstance();
+        }
+
+        private static List<Book> books(Random random, int offset, int count) {
+            List<Book> books = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Book book = new Book();
+                book.setIsbn(String.format("979%010d", offset + i));
+                book.setTitle(SearchQueries.phrase(random, 2 + random.nextInt(5)));
+                book.setAuthors(SearchQueries.phrase(random, 2));
+                book.setPublisher(SearchQueries.phrase(random, 1));
+                book.setDescription(SearchQueries.phrase(random, 12));
+                books.add(book);
+            }
+            return books;
+        }
+    }
+
+    @Benchmark
+    public List<SearchHit> prefix(Catalog catalog, SearchQueries queries) {
+        return catalog.search.search(queries.prefix(), 50);
+    }
+
+    @Benchmark
+    public List<SearchHit> wordAndPrefix(Catalog catalog, SearchQueries queries) {
+        return catalog.search.search(queries.wordAndPrefix(), 50);
+    }
+
+    @Benchmark
+    public List<SearchHit> transposed(Catalog catalog, SearchQueries queries) {
+        return catalog.search.search(queries.transposed(), 50);
+    }
+}
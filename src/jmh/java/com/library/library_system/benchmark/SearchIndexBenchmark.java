@@ -0,0 +1,76 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.search.BookSearchIndex;
+import com.library.library_system.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * JMH benchmark for the in-memory book search index, no database needed
+ * Indexes a synthetic catalog once per trial, sized with -p books=1000000, prints the build time and heap used, then
+ * times search-as-you-type queries against it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({"100000"})
+        public int books;
+
+        final BookSearchIndex index = new BookSearchIndex();
+
+        @Setup(Level.Trial)
+        public void build() {
+            Random random = new Random(42);
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+            long begin = System.nanoTime();
+            index.beginRebuild();
+            for (int id = 1; id <= books; id++) {
+                index.rebuildEntry(id, SearchQueries.phrase(random, 2 + random.nextInt(5)), SearchQueries.phrase(random, 2),
+                    SearchQueries.phrase(random, 1), SearchQueries.phrase(random, 12), String.format("978%010d", id));
+            }
+            index.finishRebuild();
+            double buildSeconds = (System.nanoTime() - begin) / 1e9;
+            System.gc();
+            long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+            System.out.printf("indexed %d books in %.1fs, ~%d MB heap%n", books, buildSeconds, (heapAfter - heapBefore) >> 20);
+        }
+    }
+
+    @Benchmark
+    public List<SearchHit> prefix(Catalog catalog, SearchQueries queries) {
+        return catalog.index.search(queries.prefix(), 50);
+    }
+
+    @Benchmark
+    public List<SearchHit> wordAndPrefix(Catalog catalog, SearchQueries queries) {
+        return catalog.index.search(queries.wordAndPrefix(), 50);
+    }
+
+    @Benchmark
+    public List<SearchHit> transposed(Catalog catalog, SearchQueries queries) {
+        return catalog.index.search(queries.transposed(), 50);
+    }
+}
@@ -0,0 +1,80 @@
+package com.library.library_system.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/*
+ * Synthetic catalog text and search-as-you-type queries shared by the search benchmarks
+ * Words are picked Zipf-like from a fixed vocabulary so a few are very common, as in real titles
+ * The queries are prepared once per trial and each thread cycles through them, so no string is built inside a measured call
+ */
+@State(Scope.Thread)
+public class SearchQueries {
+
+    private static final String[] WORDS = words(20_000, new Random(7));
+    // a power of two, the cursors wrap with a mask
+    private static final int QUERIES = 1024;
+
+    private final String[] prefixes = new String[QUERIES];
+    private final String[] wordAndPrefixes = new String[QUERIES];
+    private final String[] transposed = new String[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        Random random = new Random(42);
+        for (int i = 0; i < QUERIES; i++) {
+            String first = word(random);
+            String second = word(random);
+            prefixes[i] = first.substring(0, Math.min(3, first.length()));
+            wordAndPrefixes[i] = first + " " + second.substring(0, Math.min(4, second.length()));
+            transposed[i] = first.length() > 4
+                ? first.substring(0, 2) + first.charAt(3) + first.charAt(2) + first.substring(4)
+                : first;
+        }
+    }
+
+    // the first three letters of a word
+    String prefix() {
+        return prefixes[next++ & (QUERIES - 1)];
+    }
+
+    // a whole word and the first four letters of the next
+    String wordAndPrefix() {
+        return wordAndPrefixes[next++ & (QUERIES - 1)];
+    }
+
+    // a word with two letters swapped
+    String transposed() {
+        return transposed[next++ & (QUERIES - 1)];
+    }
+
+    static String phrase(Random random, int length) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) phrase.append(' ');
+            phrase.append(word(random));
+        }
+        return phrase.toString();
+    }
+
+    private static String word(Random random) {
+        double u = random.nextDouble();
+        return WORDS[(int) (Math.pow(u, 3) * WORDS.length)];
+    }
+
+    private static String[] words(int count, Random random) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(8);
+            for (int j = 0; j < length; j++) word.append((char) ('a' + random.nextInt(26)));
+            words[i] = word.toString();
+        }
+        return words;
+    }
+}
@@ -0,0 +1,51 @@
+package com.library.library_system.benchmark;
+
+import com.library.library_system.model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * JMH benchmark for StudentService.deleteStudent
+ * A fresh student without loans is added before each invocation, so every call takes the full delete path
+ * including the loan dependency check against the seeded loans
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentServiceBenchmark {
+
+    @State(Scope.Thread)
+    public static class NewStudent {
+        int added;
+        int broncoId;
+
+        @Setup(Level.Invocation)
+        public void add(LibraryDataset data) {
+            Student student = new Student();
+            student.setBroncoId(data.freeBroncoId + added++);
+            student.setName("Benchmark Student");
+            student.setAddress("1 Benchmark Way");
+            student.setDegree("Undeclared");
+            data.studentService.addStudent(student);
+            broncoId = student.getBroncoId();
+        }
+    }
+
+    @Benchmark
+    public boolean deleteStudent(LibraryDataset data, NewStudent student) {
+        return data.studentService.deleteStudent(student.broncoId);
+    }
+}
@@ -0,0 +1,38 @@
+package com.library.library_system;
+
+import com.library.library_system.service.CatalogImportService;
+import com.library.library_system.service.ImportReport;
+import com.library.library_system.util.SessionFactoryProvider;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/*
+ * Headless entry point for the catalog import
+ * Usage: CatalogImport <catalog.csv|catalog.jsonl[.gz]> [rejects.csv]
+ */
+public class CatalogImport {
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: CatalogImport <catalog.csv|catalog.jsonl[.gz]> [rejects.csv]");
+            System.exit(2);
+        }
+        Path source = Paths.get(args[0]);
+        Path rejects = args.length > 1 ? Paths.get(args[1]) : Paths.get(args[0] + ".rejects.csv");
+        int status = 0;
+        try {
+            long start = System.nanoTime();
+            ImportReport report = new CatalogImportService().importCatalog(source, rejects, (done, total) ->
+                System.out.printf("Imported %d%% of %s%n", total == 0 ? 100 : done * 100 / total, source.getFileName()));
+            System.out.println(report.summary());
+            System.out.printf("Finished in %.1fs%n", (System.nanoTime() - start) / 1e9);
+        } catch (Exception e) {
+            System.out.println("Failed to import the catalog.");
+            e.printStackTrace();
+            status = 1;
+        } finally {
+            SessionFactoryProvider.shutdown();
+        }
+        System.exit(status);
+    }
+}
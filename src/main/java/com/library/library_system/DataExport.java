@@ -0,0 +1,67 @@
+package com.library.library_system;
+
+import com.library.library_system.service.ExportService;
+import com.library.library_system.service.LoanFilter;
+import com.library.library_system.util.ProgressListener;
+import com.library.library_system.util.SessionFactoryProvider;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+
+/*
+ * Headless entry point for the exports
+ * Usage: DataExport <loans|books|students> <file.csv|file.jsonl[.gz]>
+ *        [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--returned|--unreturned] [--student broncoId]
+ * The filters only apply to loans
+ */
+public class DataExport {
+    private static final String USAGE = "Usage: DataExport <loans|books|students> <file.csv|file.jsonl[.gz]>"
+        + " [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--returned|--unreturned] [--student broncoId]";
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        String entity = args[0];
+        Path target = Paths.get(args[1]);
+        LoanFilter filter = LoanFilter.all();
+        try {
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--from" -> filter = filter.borrowedBetween(Date.valueOf(args[++i]), filter.borrowedTo());
+                    case "--to" -> filter = filter.borrowedBetween(filter.borrowedFrom(), Date.valueOf(args[++i]));
+                    case "--returned" -> filter = filter.withReturned(true);
+                    case "--unreturned" -> filter = filter.withReturned(false);
+                    case "--student" -> filter = filter.forStudent(Integer.parseInt(args[++i]));
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage() + "\n" + USAGE);
+            System.exit(2);
+        }
+
+        int status = 0;
+        try {
+            long start = System.nanoTime();
+            ExportService exportService = new ExportService();
+            ProgressListener progress = (done, total) -> System.out.printf("Exported %d of %d %s%n", done, total, entity);
+            long written = switch (entity) {
+                case "loans" -> exportService.exportLoans(target, filter, progress);
+                case "books" -> exportService.exportBooks(target, progress);
+                case "students" -> exportService.exportStudents(target, progress);
+                default -> throw new IllegalArgumentException("Unknown entity " + entity + "\n" + USAGE);
+            };
+            System.out.printf("Wrote %d %s to %s in %.1fs%n", written, entity, target, (System.nanoTime() - start) / 1e9);
+        } catch (Exception e) {
+            System.out.println("Failed to export " + entity + ".");
+            e.printStackTrace();
+            status = 1;
+        } finally {
+            SessionFactoryProvider.shutdown();
+        }
+        System.exit(status);
+    }
+}
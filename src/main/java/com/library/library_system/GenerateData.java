@@ -0,0 +1,66 @@
+package com.library.library_system;
+
+import com.library.library_system.service.DataGenerator;
+import com.library.library_system.service.GeneratorSpec;
+import com.library.library_system.util.SessionFactoryProvider;
+
+import java.time.LocalDate;
+
+/*
+ * Headless entry point for the synthetic data generator
+ * Usage: GenerateData <students> <books> <copies> <loans> [--seed n] [--threads n] [--open fraction]
+ *        [--overdue fraction] [--at-limit fraction] [--skew exponent] [--as-of yyyy-MM-dd]
+ * Rows are added to the configured database, e.g. -Dhibernate.connection.url=jdbc:postgresql://localhost:5432/library_load
+ */
+public class GenerateData {
+    private static final String USAGE = "Usage: GenerateData <students> <books> <copies> <loans> [--seed n] [--threads n]"
+        + " [--open fraction] [--overdue fraction] [--at-limit fraction] [--skew exponent] [--as-of yyyy-MM-dd]";
+
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        GeneratorSpec spec;
+        try {
+            spec = GeneratorSpec.of(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            for (int i = 4; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--seed" -> spec = spec.withSeed(Long.parseLong(args[++i]));
+                    case "--threads" -> spec = spec.withThreads(Integer.parseInt(args[++i]));
+                    case "--open" -> spec = spec.withOpenLoans(Double.parseDouble(args[++i]), spec.overdueFraction(), spec.atLimitFraction());
+                    case "--overdue" -> spec = spec.withOpenLoans(spec.openFraction(), Double.parseDouble(args[++i]), spec.atLimitFraction());
+                    case "--at-limit" -> spec = spec.withOpenLoans(spec.openFraction(), spec.overdueFraction(), Double.parseDouble(args[++i]));
+                    case "--skew" -> spec = spec.withPopularitySkew(Double.parseDouble(args[++i]));
+                    case "--as-of" -> spec = spec.asOf(LocalDate.parse(args[++i]));
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage() + "\n" + USAGE);
+            System.exit(2);
+            return;
+        }
+
+        int status = 0;
+        try {
+            long[] lastPercent = {-1};
+            DataGenerator.Result result = new DataGenerator().generate(spec, (done, total) -> {
+                long percent = total == 0 ? 100 : done * 100 / total;
+                synchronized (lastPercent) {
+                    if (percent / 5 != lastPercent[0] / 5) System.out.printf("Generated %d%% (%d of %d rows)%n", percent, done, total);
+                    lastPercent[0] = percent;
+                }
+            });
+            System.out.println(result.summary());
+        } catch (Exception e) {
+            System.out.println("Failed to generate data.");
+            e.printStackTrace();
+            status = 1;
+        } finally {
+            SessionFactoryProvider.shutdown();
+        }
+        System.exit(status);
+    }
+}
@@ -1,16 +1,34 @@
 package com.library.library_system;
 
+import com.library.library_system.metrics.LibraryMetrics;
+import com.library.library_system.metrics.MetricsServer;
+import com.library.library_system.search.SearchBackends;
+import com.library.library_system.service.BookService;
+import com.library.library_system.service.FineAccrualScheduler;
+import com.library.library_system.service.HoldSweeper;
+import com.library.library_system.service.OverdueScanner;
+import com.library.library_system.util.BackgroundExecutor;
+import com.library.library_system.util.SessionFactoryProvider;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.util.concurrent.FutureTask;
+
 /*
  * Main class for the Library System
  * Handles the main application and the welcome view
  */
 public class MainApp extends Application {
+
+    private LibraryMetrics metrics;
+    private MetricsServer metricsServer;
+    private OverdueScanner overdueScanner;
+    private FineAccrualScheduler fineAccrual;
+    private HoldSweeper holdSweeper;
+
     @Override
     public void start(Stage primaryStage) throws Exception {
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/WelcomeView.fxml"));
@@ -18,6 +36,42 @@ public class MainApp extends Application {
         primaryStage.setTitle("Library System - Home");
         primaryStage.setScene(new Scene(root, 800, 600));
         primaryStage.show();
+
+        // the in-memory search index is built in background, book searches use the database until it is ready
+        if (SearchBackends.isInMemory()) {
+            BackgroundExecutor.run(new FutureTask<>(() -> new BookService().rebuildSearchIndex(), null));
+        }
+
+        // repairs availability counters that drifted, or gives them to books of an existing database that have none
+        BackgroundExecutor.run(new FutureTask<>(() -> {
+            int repaired = new BookService().reconcileAvailability();
+            if (repaired > 0) System.out.println("Repaired the availability counters of " + repaired + " books.");
+        }, null));
+
+        // metrics over JMX, and over HTTP when -Dlibrary.metrics.port is set
+        metrics = new LibraryMetrics(SessionFactoryProvider.getSessionFactory(), SessionFactoryProvider.getPoolMetrics());
+        metrics.register();
+        metricsServer = MetricsServer.startIfConfigured(metrics);
+
+        // queues notices for newly overdue loans, every -Dlibrary.overdue.scan.minutes
+        overdueScanner = OverdueScanner.startIfConfigured();
+
+        // brings the fines of open overdue loans up to date every night at -Dlibrary.fines.accrual.hour
+        fineAccrual = FineAccrualScheduler.startIfConfigured();
+
+        // expires uncollected holds every -Dlibrary.holds.sweep.minutes and passes their copies on
+        holdSweeper = HoldSweeper.startIfConfigured();
+    }
+
+    @Override
+    public void stop() {
+        if (overdueScanner != null) overdueScanner.stop();
+        if (fineAccrual != null) fineAccrual.stop();
+        if (holdSweeper != null) holdSweeper.stop();
+        if (metricsServer != null) metricsServer.stop();
+        if (metrics != null) metrics.unregister();
+        BackgroundExecutor.shutdown();
+        SessionFactoryProvider.shutdown();
     }
 
     public static void main(String[] args) {
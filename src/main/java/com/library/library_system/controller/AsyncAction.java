@@ -0,0 +1,61 @@
+package com.library.library_system.controller;
+
+import com.library.library_system.util.BackgroundExecutor;
+import javafx.concurrent.Task;
+import javafx.scene.control.ProgressIndicator;
+
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/*
+ * Helper for running service calls off the JavaFX application thread
+ * Shows the view's progress indicator while any action is in flight and reports the outcome back on the FX thread
+ */
+public class AsyncAction {
+
+    private static final String PENDING_KEY = "pendingActions";
+
+    private AsyncAction() {}
+
+    /*
+     * Runs work in background, then calls onSuccess or onFailure on the FX thread
+     */
+    public static <T> void run(ProgressIndicator indicator, Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        started(indicator);
+        task.setOnSucceeded(e -> {
+            finished(indicator);
+            onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            finished(indicator);
+            onFailure.accept(task.getException());
+        });
+        BackgroundExecutor.run(task);
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    // the indicator stays visible until the last overlapping action has finished
+    private static void started(ProgressIndicator indicator) {
+        if (indicator == null) return;
+        indicator.getProperties().merge(PENDING_KEY, 1, (a, b) -> (Integer) a + (Integer) b);
+        indicator.setVisible(true);
+    }
+
+    private static void finished(ProgressIndicator indicator) {
+        if (indicator == null) return;
+        Object pending = indicator.getProperties().merge(PENDING_KEY, -1, (a, b) -> (Integer) a + (Integer) b);
+        if ((Integer) pending <= 0) {
+            indicator.getProperties().remove(PENDING_KEY);
+            indicator.setVisible(false);
+        }
+    }
+}
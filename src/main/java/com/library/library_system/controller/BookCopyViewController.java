@@ -1,20 +1,25 @@
 package com.library.library_system.controller;
 
+import com.library.library_system.util.BackgroundExecutor;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import com.library.library_system.model.BookCopy;
 import com.library.library_system.model.Book;
+import com.library.library_system.service.BookCopyRow;
 import com.library.library_system.service.BookCopyService;
 import com.library.library_system.service.BookService;
+import com.library.library_system.service.PageRequest;
 import javafx.concurrent.Task;
+import java.util.Date;
 import java.util.List;
 import javafx.stage.Stage;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 
 
@@ -29,14 +34,14 @@ public class BookCopyViewController {
      * FXML Elements
      */
     @FXML private Button bookCopyNavButton;
-    @FXML private TableView<BookCopy> bookCopyTable;
-    @FXML private TableColumn<BookCopy, Integer> copyIdColumn;
-    @FXML private TableColumn<BookCopy, String> bookTitleColumn;
-    @FXML private TableColumn<BookCopy, String> bookIsbnColumn;
-    @FXML private TableColumn<BookCopy, String> statusColumn;
-    @FXML private TableColumn<BookCopy, String> barcodeColumn;
-    @FXML private TableColumn<BookCopy, String> locationColumn;
-    @FXML private TableColumn<BookCopy, String> dueDateColumn;
+    @FXML private TableView<BookCopyRow> bookCopyTable;
+    @FXML private TableColumn<BookCopyRow, Integer> copyIdColumn;
+    @FXML private TableColumn<BookCopyRow, String> bookTitleColumn;
+    @FXML private TableColumn<BookCopyRow, String> bookIsbnColumn;
+    @FXML private TableColumn<BookCopyRow, String> statusColumn;
+    @FXML private TableColumn<BookCopyRow, String> barcodeColumn;
+    @FXML private TableColumn<BookCopyRow, String> locationColumn;
+    @FXML private TableColumn<BookCopyRow, String> dueDateColumn;
     @FXML private ComboBox<Book> bookComboBox;
     @FXML private ComboBox<String> statusComboBox;
     @FXML private ProgressIndicator loadingIndicator;
@@ -49,38 +54,46 @@ public class BookCopyViewController {
     /*
      * Observable Lists used to store data in the TableViews and ComboBoxes. Updates UI when data is manipulated.
      */
-    private ObservableList<BookCopy> bookCopyList = FXCollections.observableArrayList();
+    private static final int PAGE_SIZE = 100;
+
+    private ObservableList<BookCopyRow> bookCopyList = FXCollections.observableArrayList();
     private ObservableList<Book> bookList = FXCollections.observableArrayList();
     private ObservableList<String> statusList = FXCollections.observableArrayList("Available", "Borrowed");
 
+    private TablePager<BookCopyRow, Integer> bookCopyPager;
+
     @FXML
     public void initialize() {
         bookCopyNavButton.getStyleClass().add("nav-active");
-        copyIdColumn.setCellValueFactory(new PropertyValueFactory<>("copyId"));
-        bookTitleColumn.setCellValueFactory(cellData -> javafx.beans.binding.Bindings.createStringBinding(() -> cellData.getValue().getBook().getTitle()));
-        bookIsbnColumn.setCellValueFactory(cellData -> javafx.beans.binding.Bindings.createStringBinding(() -> cellData.getValue().getBook().getIsbn()));
+        copyIdColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().copyId()));
+        bookTitleColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().bookTitle()));
+        bookIsbnColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().bookIsbn()));
         statusColumn.setCellValueFactory(new PropertyValueFactory<>("status"));
-        barcodeColumn.setCellValueFactory(new PropertyValueFactory<>("barcode"));
-        locationColumn.setCellValueFactory(new PropertyValueFactory<>("location"));
+        barcodeColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().barcode()));
+        locationColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().location()));
         
-        // due date column logic
+        // due date column logic ... rows of borrowed copies carry the due date of their active loan
         dueDateColumn.setCellValueFactory(cellData -> {
-            BookCopy copy = cellData.getValue();
-            if (copy.isBorrowed()) {
-                BookCopyService bookCopyService = new BookCopyService();
-                String result = bookCopyService.fetchAvailabilityAndDueDate(copy.getCopyId());
-                if (result.startsWith("Borrowed. Due on: ")) {
-                    return new SimpleStringProperty(result.replace("Borrowed. Due on: ", ""));
-                } else {
-                    return new SimpleStringProperty("");
-                }
-            } else {
-                return new SimpleStringProperty("");
-            }
+            Date dueDate = cellData.getValue().dueDate();
+            return new SimpleStringProperty(dueDate != null ? dueDate.toString() : "");
         });
         
         
         bookCopyTable.setItems(bookCopyList);
+        BookCopyService bookCopyService = new BookCopyService();
+        bookCopyPager = new TablePager<>(this, bookCopyTable, bookCopyList, PAGE_SIZE,
+            (PageRequest<Integer> request) -> bookCopyService.getBookCopiesPage(request, false), BookCopyRow::copyId);
+        bookCopyPager.setOnLoading(() -> loadingIndicator.setVisible(true));
+        bookCopyPager.setOnLoaded(empty -> {
+            loadingIndicator.setVisible(false);
+            if (empty) {
+                bookCopyTable.setPlaceholder(new Label("No book copies found."));
+            }
+        });
+        bookCopyPager.setOnFailed(error -> {
+            loadingIndicator.setVisible(false);
+            bookCopyTable.setPlaceholder(new Label("Failed to load book copies."));
+        });
         statusComboBox.setItems(statusList);
         loadBooksAsync();
         loadBookCopiesAsync();
@@ -107,33 +120,14 @@ public class BookCopyViewController {
             bookList.clear();
             bookComboBox.setItems(bookList); 
         });
-        new Thread(task).start();
+        BackgroundExecutor.load(this, "books", task);
     }
 
     /*
-     * Loads book copies from the database in background...updates TableView when complete
+     * Loads the first page of book copies from the database in background...further pages load as the table is scrolled
      */
     private void loadBookCopiesAsync() {
-        loadingIndicator.setVisible(true);
-        Task<List<BookCopy>> task = new Task<>() {
-            @Override
-            protected List<BookCopy> call() {
-                BookCopyService bookCopyService = new BookCopyService();
-                return bookCopyService.getAllBookCopies();
-            }
-        };
-        task.setOnSucceeded(e -> {
-            bookCopyList.setAll(task.getValue());
-            loadingIndicator.setVisible(false);
-            if (bookCopyList.isEmpty()) {
-                bookCopyTable.setPlaceholder(new Label("No book copies found."));
-            }
-        });
-        task.setOnFailed(e -> {
-            loadingIndicator.setVisible(false);
-            bookCopyTable.setPlaceholder(new Label("Failed to load book copies."));
-        });
-        new Thread(task).start();
+        bookCopyPager.reload();
     }
 
     /*
@@ -157,13 +151,25 @@ public class BookCopyViewController {
             bookCopy.setStatus(status);
             bookCopy.setBarcode(barcode);
             bookCopy.setLocation(location);
-            BookCopyService bookCopyService = new BookCopyService();
-            bookCopyService.createBookCopy(bookCopy);
-            bookCopyList.add(bookCopy);
+
+            // show the copy straight away, swap in the row with its generated ID once inserted and roll back if the insert fails
+            BookCopyRow pending = BookCopyRow.of(bookCopy, null);
+            bookCopyPager.addLocal(pending);
             bookComboBox.setValue(null);
             statusComboBox.setValue(null);
             barcodeField.clear();
             locationField.clear();
+            BookCopyService bookCopyService = new BookCopyService();
+            AsyncAction.run(loadingIndicator, () -> {
+                bookCopyService.createBookCopy(bookCopy);
+                return BookCopyRow.of(bookCopy, null);
+            }, created -> {
+                bookCopyPager.remove(pending);
+                bookCopyPager.addLocal(created);
+            }, error -> {
+                bookCopyPager.remove(pending);
+                showAlert("Error adding book copy: " + error.getMessage());
+            });
 
         // handle errors
         } catch (Exception e) {
@@ -176,7 +182,7 @@ public class BookCopyViewController {
      */
     @FXML
     private void handleEdit() {
-        BookCopy selected = bookCopyTable.getSelectionModel().getSelectedItem();
+        BookCopyRow selected = bookCopyTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showAlert("Select a book copy to edit.");
             return;
@@ -192,13 +198,27 @@ public class BookCopyViewController {
                 showAlert("All fields are required.");
                 return;
             }
-            selected.setBook(selectedBook);
-            selected.setStatus(status);
-            selected.setBarcode(barcode);
-            selected.setLocation(location);
+
+            // apply the edit straight away and restore the previous row if the update fails
+            int copyId = selected.copyId();
+            BookCopyRow edited = new BookCopyRow(copyId, barcode, location, "Borrowed".equalsIgnoreCase(status),
+                selectedBook.getBookId(), selectedBook.getTitle(), selectedBook.getIsbn(), selected.dueDate());
+            bookCopyList.set(bookCopyList.indexOf(selected), edited);
             BookCopyService bookCopyService = new BookCopyService();
-            bookCopyService.updateBookCopy(selected);
-            bookCopyTable.refresh();
+            AsyncAction.run(loadingIndicator, () -> {
+                BookCopy copy = bookCopyService.readBookCopy(copyId);
+                if (copy == null) throw new IllegalStateException("The book copy no longer exists.");
+                copy.setBook(selectedBook);
+                copy.setStatus(status);
+                copy.setBarcode(barcode);
+                copy.setLocation(location);
+                bookCopyService.updateBookCopy(copy);
+                // the status may have changed, so the due date is read again
+                return BookCopyRow.of(copy, bookCopyService.getActiveDueDates(List.of(copyId)).get(copyId));
+            }, updated -> replaceRow(edited, updated), error -> {
+                replaceRow(edited, selected);
+                showAlert("Error editing book copy: " + error.getMessage());
+            });
 
         // handle errors
         } catch (Exception e) {
@@ -211,30 +231,36 @@ public class BookCopyViewController {
      */
     @FXML
     private void handleDelete() {
-        BookCopy selected = bookCopyTable.getSelectionModel().getSelectedItem();
+        BookCopyRow selected = bookCopyTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showAlert("Select a book copy to delete.");
             return;
         }
-        try {
-            BookCopyService bookCopyService = new BookCopyService();
-            boolean deleted = bookCopyService.deleteBookCopy(selected.getCopyId());
-            if (deleted) {
-                bookCopyList.remove(selected);
-            } else {
 
-                // fetch the copy to check its status if it is borrowed or has loan history
-                BookCopy freshCopy = bookCopyService.readBookCopy(selected.getCopyId());
-                if (freshCopy != null && freshCopy.isBorrowed()) {
-                    showAlert("Cannot delete book copy: It is currently on loan.");
-                } else {
-                    showAlert("Cannot delete book copy: It has loan history and cannot be removed.");
-                }
+        // remove the row straight away and put it back if the delete is refused or fails
+        int index = bookCopyList.indexOf(selected);
+        bookCopyList.remove(selected);
+        BookCopyService bookCopyService = new BookCopyService();
+        AsyncAction.run(loadingIndicator, () -> {
+            if (bookCopyService.deleteBookCopy(selected.copyId())) {
+                return null;
             }
-        // handle errors
-        } catch (Exception e) {
-            showAlert("Error deleting book copy: " + e.getMessage());
-        }
+
+            // fetch the copy to check its status if it is borrowed or has loan history
+            BookCopy freshCopy = bookCopyService.readBookCopy(selected.copyId());
+            if (freshCopy != null && freshCopy.isBorrowed()) {
+                return "Cannot delete book copy: It is currently on loan.";
+            }
+            return "Cannot delete book copy: It has loan history and cannot be removed.";
+        }, refusal -> {
+            if (refusal != null) {
+                bookCopyList.add(index, selected);
+                showAlert(refusal);
+            }
+        }, error -> {
+            bookCopyList.add(index, selected);
+            showAlert("Error deleting book copy: " + error.getMessage());
+        });
     }
 
     /*
@@ -264,8 +290,15 @@ public class BookCopyViewController {
     /*
      * Helper Methods
      */
+
+    // rows are immutable, so an edit replaces the row wherever it is now
+    private void replaceRow(BookCopyRow current, BookCopyRow replacement) {
+        int index = bookCopyList.indexOf(current);
+        if (index >= 0) bookCopyList.set(index, replacement);
+    }
     
     private void switchScene(String fxmlPath, String title) throws Exception {
+        BackgroundExecutor.cancelAll(this);
         Stage stage = (Stage) bookCopyTable.getScene().getWindow();
         Parent root = FXMLLoader.load(getClass().getResource(fxmlPath));
         stage.setScene(new Scene(root, 800, 600));
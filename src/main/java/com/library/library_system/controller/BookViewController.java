@@ -1,19 +1,36 @@
 package com.library.library_system.controller;
 
+import com.library.library_system.util.BackgroundExecutor;
+import javafx.animation.PauseTransition;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import com.library.library_system.model.Book;
+import com.library.library_system.model.Hold;
+import com.library.library_system.service.BookAvailability;
 import com.library.library_system.service.BookService;
-import javafx.concurrent.Task;
-import java.util.List;
+import com.library.library_system.service.CatalogImportService;
+import com.library.library_system.service.HoldService;
+import com.library.library_system.util.ProgressListener;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 import javafx.stage.Stage;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.cell.PropertyValueFactory;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /*
  * Controller for the Book Management View
  * Handles the management of books in the library system
@@ -46,6 +63,8 @@ public class BookViewController {
     @FXML
     private TableColumn<Book, String> descriptionColumn;
     @FXML
+    private TableColumn<Book, String> availabilityColumn;
+    @FXML
     private TextField isbnField;
     @FXML
     private TextField titleField;
@@ -60,6 +79,8 @@ public class BookViewController {
     @FXML
     private DatePicker publicationDateField;
     @FXML
+    private TextField searchField;
+    @FXML
     private ProgressIndicator loadingIndicator;
     @FXML
     private Button addButton;
@@ -67,8 +88,25 @@ public class BookViewController {
     private Button editButton;
     @FXML
     private Button deleteButton;
+    @FXML
+    private Button importButton;
+    @FXML
+    private TextField holdStudentField;
+    @FXML
+    private Button placeHoldButton;
+
+    private static final int PAGE_SIZE = 100;
+    private static final int SEARCH_LIMIT = 200;
+    // typing pause before a search runs
+    private static final Duration SEARCH_DELAY = Duration.millis(150);
 
     private ObservableList<Book> bookList = FXCollections.observableArrayList();
+    private ObservableList<Book> searchResults = FXCollections.observableArrayList();
+    // counts for the Available column, read after the rows they belong to are shown
+    private final Map<Integer, BookAvailability> availability = new HashMap<>();
+    private final PauseTransition searchDelay = new PauseTransition(SEARCH_DELAY);
+    private TablePager<Book, Integer> bookPager;
+    private final HoldService holdService = new HoldService();
 
     @FXML
     public void initialize() {
@@ -81,35 +119,94 @@ public class BookViewController {
         pagesColumn.setCellValueFactory(new PropertyValueFactory<>("numberOfPages"));
         publicationDateColumn.setCellValueFactory(new PropertyValueFactory<>("publicationDate"));
         descriptionColumn.setCellValueFactory(new PropertyValueFactory<>("description"));
+        // read from the counters of the book, the copies are not loaded
+        availabilityColumn.setCellValueFactory(cellData -> {
+            BookAvailability counts = availability.get(cellData.getValue().getBookId());
+            return new SimpleStringProperty(counts == null ? "" : counts.getSummary());
+        });
+        bookList.addListener(this::loadAvailabilityAsync);
+        searchResults.addListener(this::loadAvailabilityAsync);
         bookTable.setItems(bookList);
+        BookService bookService = new BookService();
+        bookPager = new TablePager<>(this, bookTable, bookList, PAGE_SIZE, bookService::getBooksPage, Book::getBookId);
+        bookPager.setOnLoading(() -> {
+            loadingIndicator.setVisible(true);
+            bookTable.setPlaceholder(new Label(""));
+        });
+        bookPager.setOnLoaded(empty -> {
+            loadingIndicator.setVisible(false);
+            if (empty) {
+                bookTable.setPlaceholder(new Label("No books found."));
+            }
+        });
+        bookPager.setOnFailed(error -> {
+            loadingIndicator.setVisible(false);
+            bookTable.setPlaceholder(new Label("Failed to load books."));
+        });
+        searchDelay.setOnFinished(e -> searchBooksAsync(searchField.getText()));
+        searchField.textProperty().addListener((obs, oldText, text) -> searchDelay.playFromStart());
         loadBooksAsync();
     }
 
     /*
-     * Loads books from the database in background...updates TableView when complete
+     * Loads the first page of books from the database in background...further pages load as the table is scrolled
      */
     public void loadBooksAsync() {
-        loadingIndicator.setVisible(true);
-        bookTable.setPlaceholder(new Label("")); 
+        bookPager.reload();
+    }
+
+    /*
+     * Shows the best matches for a search in place of the paged list, or the paged list again when the search is cleared
+     * A newer search replaces one still running
+     */
+    private void searchBooksAsync(String query) {
+        if (query == null || query.isBlank()) {
+            bookTable.setItems(bookList);
+            bookTable.setPlaceholder(new Label(bookList.isEmpty() ? "No books found." : ""));
+            return;
+        }
+        BookService bookService = new BookService();
         Task<List<Book>> task = new Task<>() {
             @Override
             protected List<Book> call() {
-                BookService bookService = new BookService();
-                return bookService.getAllBooks();
+                return bookService.searchBooks(query, SEARCH_LIMIT);
             }
         };
         task.setOnSucceeded(e -> {
-            bookList.setAll(task.getValue());
-            loadingIndicator.setVisible(false);
-            if (bookList.isEmpty()) {
-                bookTable.setPlaceholder(new Label("No books found."));
-            }
+            if (!query.equals(searchField.getText())) return; // the search was changed or cleared meanwhile
+            searchResults.setAll(task.getValue());
+            bookTable.setItems(searchResults);
+            bookTable.setPlaceholder(new Label("No books match \"" + query.trim() + "\"."));
         });
-        task.setOnFailed(e -> {
-            loadingIndicator.setVisible(false);
-            bookTable.setPlaceholder(new Label("Failed to load books."));
+        task.setOnFailed(e -> bookTable.setPlaceholder(new Label("Search failed.")));
+        BackgroundExecutor.load(this, "search", task);
+    }
+
+    /*
+     * Loads the counts of the books added to a list in background, a page or search result at a time
+     * Read again every time the rows are loaded, so a reload shows the counts as they are now
+     */
+    private void loadAvailabilityAsync(ListChangeListener.Change<? extends Book> change) {
+        List<Integer> bookIds = new ArrayList<>();
+        while (change.next()) {
+            if (change.wasAdded()) {
+                change.getAddedSubList().forEach(book -> bookIds.add(book.getBookId()));
+            }
+        }
+        if (bookIds.isEmpty()) return;
+        BookService bookService = new BookService();
+        Task<Map<Integer, BookAvailability>> task = new Task<>() {
+            @Override
+            protected Map<Integer, BookAvailability> call() {
+                return bookService.getAvailability(bookIds);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            availability.putAll(task.getValue());
+            bookTable.refresh();
         });
-        new Thread(task).start();
+        // keyed by the books, so loads of different pages never cancel each other
+        BackgroundExecutor.load(this, bookIds, task);
     }
 
     /*
@@ -149,9 +246,9 @@ public class BookViewController {
             book.setNumberOfPages(numberOfPages);
             book.setPublicationDate(java.sql.Date.valueOf(publicationDateField.getValue()));
             book.setDescription(description);
-            BookService bookService = new BookService();
-            bookService.createBook(book);
-            bookList.add(book);
+
+            // show the book straight away and roll back if the insert fails
+            bookPager.addLocal(book);
             isbnField.clear();
             titleField.clear();
             authorsField.clear();
@@ -159,6 +256,14 @@ public class BookViewController {
             pagesField.clear();
             publicationDateField.setValue(null);
             descriptionField.clear();
+            BookService bookService = new BookService();
+            AsyncAction.run(loadingIndicator, () -> {
+                bookService.createBook(book);
+                return book;
+            }, created -> bookTable.refresh(), error -> {
+                bookPager.remove(book);
+                showAlert("Error adding book: " + error.getMessage());
+            });
 
             // handle errors
         } catch (Exception e) {
@@ -200,6 +305,10 @@ public class BookViewController {
                 showAlert("Number of Pages must be a positive integer.");
                 return;
             }
+
+            // apply the edit straight away and restore the previous values if the update fails
+            Book previous = new Book();
+            copyFields(selected, previous);
             selected.setIsbn(isbn);
             selected.setTitle(title);
             selected.setAuthors(authors);
@@ -207,9 +316,16 @@ public class BookViewController {
             selected.setNumberOfPages(numberOfPages);
             selected.setPublicationDate(java.sql.Date.valueOf(publicationDateField.getValue()));
             selected.setDescription(description);
-            BookService bookService = new BookService();
-            bookService.updateBook(selected);
             bookTable.refresh();
+            BookService bookService = new BookService();
+            AsyncAction.run(loadingIndicator, () -> {
+                bookService.updateBook(selected);
+                return selected;
+            }, updated -> {}, error -> {
+                copyFields(previous, selected);
+                bookTable.refresh();
+                showAlert("Error editing book: " + error.getMessage());
+            });
 
             // handle errors
         } catch (Exception e) {
@@ -227,17 +343,128 @@ public class BookViewController {
             showAlert("Select a book to delete.");
             return;
         }
-        try {
-            BookService bookService = new BookService();
-            boolean deleted = bookService.deleteBook(selected.getBookId());
+
+        // remove the row straight away and put it back if the delete is refused or fails
+        ObservableList<Book> shown = bookTable.getItems();
+        int index = shown.indexOf(selected);
+        shown.remove(selected);
+        BookService bookService = new BookService();
+        AsyncAction.run(loadingIndicator, () -> bookService.deleteBook(selected.getBookId()), deleted -> {
             if (deleted) {
-                bookList.remove(selected);
+                // search results hold their own copies of the rows, drop the book from the paged list too
+                bookList.removeIf(book -> book.getBookId() == selected.getBookId());
             } else {
+                shown.add(index, selected);
                 showAlert("Cannot delete book: It may have borrowed copies.");
             }
-        } catch (Exception e) {
-            showAlert("Error deleting book: " + e.getMessage());
+        }, error -> {
+            shown.add(index, selected);
+            showAlert("Error deleting book: " + error.getMessage());
+        });
+    }
+
+    /*
+     * Imports books and copies from a CSV or JSON Lines catalog file chosen by the user
+     * Rejected rows are written next to the file as <name>.rejects.csv
+     */
+    @FXML
+    private void handleImport() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Catalog");
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("Catalog files", "*.csv", "*.tsv", "*.jsonl", "*.ndjson", "*.json", "*.gz"),
+            new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = chooser.showOpenDialog(bookTable.getScene().getWindow());
+        if (file == null) return;
+
+        Path source = file.toPath();
+        Path rejects = source.resolveSibling(source.getFileName() + ".rejects.csv");
+        importButton.setDisable(true);
+        CatalogImportService importService = new CatalogImportService();
+        AsyncAction.run(loadingIndicator, () -> importService.importCatalog(source, rejects, ProgressListener.NONE), report -> {
+            importButton.setDisable(false);
+            loadBooksAsync();
+            showAlert(report.summary());
+        }, error -> {
+            importButton.setDisable(false);
+            loadBooksAsync();
+            showAlert("Error importing catalog: " + error.getMessage());
+        });
+    }
+
+    /*
+     * Puts the student in the Bronco ID field in the hold queue of the selected book
+     */
+    @FXML
+    private void handlePlaceHold() {
+        Book selected = bookTable.getSelectionModel().getSelectedItem();
+        Integer broncoId = holdStudent(selected);
+        if (broncoId == null) return;
+
+        placeHoldButton.setDisable(true);
+        AsyncAction.run(loadingIndicator, () -> holdService.getQueuePosition(holdService.placeHold(broncoId, selected.getBookId()).getHoldId()), position -> {
+            placeHoldButton.setDisable(false);
+            holdStudentField.clear();
+            showAlert("Hold placed for student " + broncoId + ", number " + position + " in the queue.");
+        }, error -> {
+            placeHoldButton.setDisable(false);
+            showAlert("Error placing hold: " + error.getMessage());
+        });
+    }
+
+    /*
+     * Cancels the active hold of the student in the Bronco ID field on the selected book
+     */
+    @FXML
+    private void handleCancelHold() {
+        Book selected = bookTable.getSelectionModel().getSelectedItem();
+        Integer broncoId = holdStudent(selected);
+        if (broncoId == null) return;
+
+        AsyncAction.run(loadingIndicator, () -> {
+            for (Hold hold : holdService.getActiveHolds(selected.getBookId())) {
+                if (hold.getBroncoId() == broncoId) return holdService.cancelHold(hold.getHoldId());
+            }
+            return false;
+        }, cancelled -> {
+            if (cancelled) {
+                holdStudentField.clear();
+                showAlert("Hold cancelled.");
+            } else {
+                showAlert("Student " + broncoId + " has no hold on this book.");
+            }
+        }, error -> showAlert("Error cancelling hold: " + error.getMessage()));
+    }
+
+    /*
+     * Shows the copies set aside and the queue of the selected book
+     */
+    @FXML
+    private void handleShowHolds() {
+        Book selected = bookTable.getSelectionModel().getSelectedItem();
+        if (selected == null) {
+            showAlert("Select a book to show its holds.");
+            return;
         }
+        AsyncAction.run(loadingIndicator, () -> holdService.getActiveHolds(selected.getBookId()), holds -> {
+            if (holds.isEmpty()) {
+                showAlert("No holds on " + selected.getTitle() + ".");
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            int position = 0;
+            for (Hold hold : holds) {
+                if (hold.getStatus() == Hold.Status.READY) {
+                    text.append("Ready for student ").append(hold.getBroncoId()).append(", copy ").append(hold.getCopyId())
+                        .append(" until ").append(hold.getExpiresAt());
+                } else {
+                    text.append(++position).append(". Student ").append(hold.getBroncoId())
+                        .append(" since ").append(hold.getPlacedAt());
+                }
+                text.append('\n');
+            }
+            showAlert(text.toString());
+        }, error -> showAlert("Error loading holds: " + error.getMessage()));
     }
 
     /*
@@ -272,8 +499,34 @@ public class BookViewController {
      * Helper Methods
      */
 
+    // the student of a hold action, null after telling the user what is missing
+    private Integer holdStudent(Book selected) {
+        if (selected == null) {
+            showAlert("Select a book first.");
+            return null;
+        }
+        try {
+            return Integer.parseInt(holdStudentField.getText().trim());
+        } catch (NumberFormatException e) {
+            showAlert("Enter the Bronco ID of the student.");
+            return null;
+        }
+    }
+
+    // copies the editable fields of one book onto another
+    private void copyFields(Book source, Book target) {
+        target.setIsbn(source.getIsbn());
+        target.setTitle(source.getTitle());
+        target.setAuthors(source.getAuthors());
+        target.setPublisher(source.getPublisher());
+        target.setNumberOfPages(source.getNumberOfPages());
+        target.setPublicationDate(source.getPublicationDate());
+        target.setDescription(source.getDescription());
+    }
+
      // switches to a new scene
     private void switchScene(String fxmlPath, String title) throws Exception {
+        BackgroundExecutor.cancelAll(this);
         Stage stage = (Stage) bookTable.getScene().getWindow();
         Parent root = FXMLLoader.load(getClass().getResource(fxmlPath));
         stage.setScene(new Scene(root, 800, 600));
@@ -0,0 +1,188 @@
+package com.library.library_system.controller;
+
+import com.library.library_system.service.ExportService;
+import com.library.library_system.service.LoanFilter;
+import com.library.library_system.service.LoanReportRow;
+import com.library.library_system.service.LoanService;
+import com.library.library_system.service.Page;
+import com.library.library_system.service.PageRequest;
+import com.library.library_system.util.BackgroundExecutor;
+import com.library.library_system.util.ProgressListener;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.util.Date;
+import java.util.function.Function;
+
+/*
+ * Controller for the Loan Report View
+ * Shows the loan report grouped by student, loading it a page at a time as the table scrolls
+ * Grouping and sorting are done by LoanService in the database
+ */
+public class LoanReportViewController {
+    /*
+     * FXML Elements
+     */
+    @FXML private ComboBox<String> scopeComboBox;
+    @FXML private Label summaryLabel;
+    @FXML private TableView<LoanReportRow> reportTable;
+    @FXML private TableColumn<LoanReportRow, String> studentColumn;
+    @FXML private TableColumn<LoanReportRow, Integer> broncoIdColumn;
+    @FXML private TableColumn<LoanReportRow, Integer> loanIdColumn;
+    @FXML private TableColumn<LoanReportRow, String> borrowDateColumn;
+    @FXML private TableColumn<LoanReportRow, String> dueDateColumn;
+    @FXML private TableColumn<LoanReportRow, String> returnDateColumn;
+    @FXML private TableColumn<LoanReportRow, Long> copiesColumn;
+    @FXML private TableColumn<LoanReportRow, String> statusColumn;
+    @FXML private ProgressIndicator loadingIndicator;
+    @FXML private Button exportButton;
+
+    private static final int PAGE_SIZE = 200;
+    private static final String ALL = "All loans";
+    private static final String UNRETURNED = "Unreturned loans";
+    private static final String RETURNED = "Returned loans";
+
+    private final ObservableList<LoanReportRow> reportRows = FXCollections.observableArrayList();
+    private final LoanService loanService = new LoanService();
+    // each page continues after the last row of the previous one
+    private TablePager<LoanReportRow, LoanReportRow> reportPager;
+    private LoanFilter filter = LoanFilter.all();
+
+    @FXML
+    public void initialize() {
+        scopeComboBox.getItems().addAll(ALL, UNRETURNED, RETURNED);
+        scopeComboBox.setValue(ALL);
+
+        studentColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().studentName()));
+        broncoIdColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().broncoId()));
+        loanIdColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().loanId()));
+        borrowDateColumn.setCellValueFactory(cellData -> new SimpleStringProperty(format(cellData.getValue().borrowDate())));
+        dueDateColumn.setCellValueFactory(cellData -> new SimpleStringProperty(format(cellData.getValue().dueDate())));
+        returnDateColumn.setCellValueFactory(cellData -> new SimpleStringProperty(format(cellData.getValue().returnDate())));
+        copiesColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().copyCount()));
+        statusColumn.setCellValueFactory(new PropertyValueFactory<>("status"));
+
+        // the student name is only shown on the first row of each student's group
+        studentColumn.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(String name, boolean empty) {
+                super.updateItem(name, empty);
+                int index = getIndex();
+                boolean sameStudent = !empty && index > 0 && index < reportRows.size()
+                    && reportRows.get(index - 1).broncoId() == reportRows.get(index).broncoId();
+                setText(empty || sameStudent ? null : name);
+            }
+        });
+
+        reportTable.setItems(reportRows);
+        reportPager = new TablePager<>(this, reportTable, reportRows, PAGE_SIZE, pageLoader(filter), LoanReportRow::loanId);
+        reportPager.setOnLoading(() -> {
+            loadingIndicator.setVisible(true);
+            reportTable.setPlaceholder(new Label(""));
+        });
+        reportPager.setOnLoaded(empty -> {
+            loadingIndicator.setVisible(false);
+            if (empty) {
+                reportTable.setPlaceholder(new Label("No loans found."));
+            }
+        });
+        reportPager.setOnFailed(error -> {
+            loadingIndicator.setVisible(false);
+            reportTable.setPlaceholder(new Label("Failed to load the loan report."));
+        });
+        loadReportAsync();
+    }
+
+    /*
+     * Loads the summary and the first page of the report for the current scope in background
+     */
+    public void loadReportAsync() {
+        reportPager.setPageLoader(pageLoader(filter));
+        LoanFilter summaryFilter = filter;
+        summaryLabel.setText("");
+        AsyncAction.run(null, () -> loanService.getLoanReportSummary(summaryFilter), summary -> {
+            if (summaryFilter == filter) summaryLabel.setText(summary.toString());
+        }, error -> summaryLabel.setText("Failed to load totals."));
+    }
+
+    /*
+     * Reloads the report when the scope changes
+     */
+    @FXML
+    private void handleScopeChange() {
+        filter = LoanFilter.all().withReturned(switch (scopeComboBox.getValue()) {
+            case UNRETURNED -> false;
+            case RETURNED -> true;
+            default -> null;
+        });
+        loadReportAsync();
+    }
+
+    /*
+     * Exports the whole report, not just the loaded pages, to a CSV or JSON Lines file
+     */
+    @FXML
+    private void handleExport() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Loan Report");
+        chooser.setInitialFileName("loan-report.csv");
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV", "*.csv"),
+            new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl"),
+            new FileChooser.ExtensionFilter("Compressed", "*.csv.gz", "*.jsonl.gz"));
+        File file = chooser.showSaveDialog(reportTable.getScene().getWindow());
+        if (file == null) return;
+
+        LoanFilter exportFilter = filter;
+        exportButton.setDisable(true);
+        ExportService exportService = new ExportService();
+        AsyncAction.run(loadingIndicator, () -> exportService.exportLoanReport(file.toPath(), exportFilter, ProgressListener.NONE), written -> {
+            exportButton.setDisable(false);
+            showAlert("Exported " + written + " loans to " + file + ".");
+        }, error -> {
+            exportButton.setDisable(false);
+            showAlert("Error exporting loan report: " + error.getMessage());
+        });
+    }
+
+    @FXML
+    private void handleClose() {
+        ((Stage) reportTable.getScene().getWindow()).close();
+    }
+
+    /*
+     * Cancels page loads still in flight, called when the report window is closed
+     */
+    public void dispose() {
+        BackgroundExecutor.cancelAll(this);
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    // the scope is fixed when the loader is made, a page loading in background never sees a later scope change
+    private Function<PageRequest<LoanReportRow>, Page<LoanReportRow, LoanReportRow>> pageLoader(LoanFilter scope) {
+        return request -> loanService.getLoanReportPage(scope, request);
+    }
+
+    private static String format(Date date) {
+        return date == null ? "" : date.toString();
+    }
+
+    private void showAlert(String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Loan Report");
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
@@ -1,27 +1,34 @@
 package com.library.library_system.controller;
 
+import com.library.library_system.util.BackgroundExecutor;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import com.library.library_system.model.Loan;
 import com.library.library_system.model.Student;
-import com.library.library_system.model.BookCopy;
+import com.library.library_system.service.BookCopyRow;
+import com.library.library_system.service.LoanRow;
 import com.library.library_system.service.StudentService;
 import javafx.concurrent.Task;
 import java.util.List;
+import java.util.stream.Collectors;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.ProgressIndicator;
 import com.library.library_system.service.BookCopyService;
+import com.library.library_system.service.ExportService;
+import com.library.library_system.service.LoanFilter;
 import com.library.library_system.service.LoanService;
-import javafx.scene.control.cell.PropertyValueFactory;
+import com.library.library_system.util.ProgressListener;
+import com.library.library_system.service.PageRequest;
+import com.library.library_system.service.RenewalResult;
 import javafx.scene.control.TableCell;
-import java.util.Map;
-import java.util.Comparator;
-import java.util.stream.Collectors;
+import java.io.File;
+import java.util.Optional;
+import java.util.Set;
 
 /*
  * Controller for the Loan Management View
@@ -36,38 +43,44 @@ public class LoanViewController {
     @FXML private ComboBox<Student> studentComboBox;
     @FXML private DatePicker borrowDatePicker;
     @FXML private DatePicker dueDatePicker;
-    @FXML private TableView<BookCopy> bookCopyTable;
-    @FXML private TableColumn<BookCopy, String> barcodeColumn;
-    @FXML private TableColumn<BookCopy, String> locationColumn;
-    @FXML private TableColumn<BookCopy, Boolean> availableColumn;
+    @FXML private TableView<BookCopyRow> bookCopyTable;
+    @FXML private TableColumn<BookCopyRow, String> barcodeColumn;
+    @FXML private TableColumn<BookCopyRow, String> locationColumn;
+    @FXML private TableColumn<BookCopyRow, Boolean> availableColumn;
     @FXML private Button addCopyButton;
     @FXML private Button removeCopyButton;
     @FXML private Button createLoanButton;
     @FXML private Button returnLoanButton;
     @FXML private Button showReceiptButton;
-    @FXML private TableView<Loan> loanTable;
-    @FXML private TableColumn<Loan, Integer> loanIdColumn;
-    @FXML private TableColumn<Loan, String> loanStudentColumn;
-    @FXML private TableColumn<Loan, String> loanBorrowDateColumn;
-    @FXML private TableColumn<Loan, String> loanDueDateColumn;
-    @FXML private TableColumn<Loan, String> loanReturnedColumn;
+    @FXML private TableView<LoanRow> loanTable;
+    @FXML private TableColumn<LoanRow, Integer> loanIdColumn;
+    @FXML private TableColumn<LoanRow, String> loanStudentColumn;
+    @FXML private TableColumn<LoanRow, String> loanBorrowDateColumn;
+    @FXML private TableColumn<LoanRow, String> loanDueDateColumn;
+    @FXML private TableColumn<LoanRow, String> loanReturnedColumn;
     @FXML private Button loanNavButton;
-    @FXML private TableView<BookCopy> selectedBookCopyTable;
-    @FXML private TableColumn<BookCopy, String> selectedBarcodeColumn;
-    @FXML private TableColumn<BookCopy, String> selectedLocationColumn;
-    @FXML private TableColumn<BookCopy, Boolean> selectedAvailableColumn;
+    @FXML private TableView<BookCopyRow> selectedBookCopyTable;
+    @FXML private TableColumn<BookCopyRow, String> selectedBarcodeColumn;
+    @FXML private TableColumn<BookCopyRow, String> selectedLocationColumn;
+    @FXML private TableColumn<BookCopyRow, Boolean> selectedAvailableColumn;
     @FXML private TextField barcodeField;
     @FXML private TextField locationField;
     @FXML private Button generateReportButton;
+    @FXML private Button exportLoansButton;
+    @FXML private Button renewLoansButton;
 
     /*
      * Observable Lists used to store data in the TableViews and ComboBoxes. Updates UI when data is manipulated.
      */
+    private static final int PAGE_SIZE = 100;
+
     private ObservableList<Student> studentList = FXCollections.observableArrayList();
-    private ObservableList<BookCopy> bookCopyList = FXCollections.observableArrayList();
-    private ObservableList<Loan> loanList = FXCollections.observableArrayList();
-    private ObservableList<BookCopy> selectedBookCopyList = FXCollections.observableArrayList();
+    private ObservableList<BookCopyRow> bookCopyList = FXCollections.observableArrayList();
+    private ObservableList<LoanRow> loanList = FXCollections.observableArrayList();
+    private ObservableList<BookCopyRow> selectedBookCopyList = FXCollections.observableArrayList();
     @FXML private ProgressIndicator loadingIndicator; 
+    private TablePager<BookCopyRow, Integer> bookCopyPager;
+    private TablePager<LoanRow, Integer> loanPager;
 
     @FXML
     public void initialize() {
@@ -75,12 +88,14 @@ public class LoanViewController {
         studentComboBox.setItems(studentList);
         bookCopyTable.setItems(bookCopyList);
         loanTable.setItems(loanList);
+        // several loans can be renewed at once
+        loanTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         selectedBookCopyTable.setItems(selectedBookCopyList);
 
         // cell value factories for bookCopyTable
-        barcodeColumn.setCellValueFactory(new PropertyValueFactory<>("barcode"));
-        locationColumn.setCellValueFactory(new PropertyValueFactory<>("location"));
-        availableColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleBooleanProperty(!cellData.getValue().isBorrowed()));
+        barcodeColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().barcode()));
+        locationColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().location()));
+        availableColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleBooleanProperty(cellData.getValue().isAvailable()));
         availableColumn.setCellFactory(col -> new TableCell<>() {
             @Override
             protected void updateItem(Boolean available, boolean empty) {
@@ -90,9 +105,9 @@ public class LoanViewController {
         });
 
         // cell value factories for selectedBookCopyTable
-        selectedBarcodeColumn.setCellValueFactory(new PropertyValueFactory<>("barcode"));
-        selectedLocationColumn.setCellValueFactory(new PropertyValueFactory<>("location"));
-        selectedAvailableColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleBooleanProperty(!cellData.getValue().isBorrowed()));
+        selectedBarcodeColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().barcode()));
+        selectedLocationColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().location()));
+        selectedAvailableColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleBooleanProperty(cellData.getValue().isAvailable()));
         selectedAvailableColumn.setCellFactory(col -> new TableCell<>() {
             @Override
             protected void updateItem(Boolean available, boolean empty) {
@@ -102,12 +117,21 @@ public class LoanViewController {
         });
 
         // cell value factories for loanTable
-        loanIdColumn.setCellValueFactory(new PropertyValueFactory<>("loanId"));
-        loanStudentColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().getStudent().getName()));
-        loanBorrowDateColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().getBorrowDate().toString()));
-        loanDueDateColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().getDueDate().toString()));
+        loanIdColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleObjectProperty<>(cellData.getValue().loanId()));
+        loanStudentColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().studentName()));
+        loanBorrowDateColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().borrowDate().toString()));
+        loanDueDateColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().dueDate().toString()));
         loanReturnedColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().isReturned() ? "Yes" : "No"));
 
+        // available copies and loans are paged as the tables scroll
+        BookCopyService bookCopyService = new BookCopyService();
+        bookCopyPager = new TablePager<>(this, bookCopyTable, bookCopyList, PAGE_SIZE,
+            (PageRequest<Integer> request) -> bookCopyService.getBookCopiesPage(request, true), BookCopyRow::copyId);
+        bookCopyPager.setOnFailed(error -> System.out.println("Failed to load book copies: " + error));
+        LoanService loanService = new LoanService();
+        loanPager = new TablePager<>(this, loanTable, loanList, PAGE_SIZE, loanService::getLoansPage, LoanRow::loanId);
+        loanPager.setOnFailed(error -> System.out.println("Failed to load loans: " + error));
+
         loadStudentsAsync();
         loadBookCopiesAsync();
         loadLoansAsync();
@@ -133,53 +157,21 @@ public class LoanViewController {
             if (loadingIndicator != null) loadingIndicator.setVisible(false);
             System.out.println("Failed to load students: " + task.getException());
         });
-        new Thread(task).start();
+        BackgroundExecutor.load(this, "students", task);
     }
 
     /*
-     * Loads book copies from the database in background...updates TableView when complete
+     * Loads the first page of available book copies from the database in background...further pages load as the table is scrolled
      */
     private void loadBookCopiesAsync() {
-        if (loadingIndicator != null) loadingIndicator.setVisible(true);
-        Task<List<BookCopy>> task = new Task<>() {
-            @Override
-            protected List<BookCopy> call() {
-                BookCopyService bookCopyService = new BookCopyService();
-                return bookCopyService.getAllBookCopies();
-            }
-        };
-        task.setOnSucceeded(e -> {
-            bookCopyList.setAll(task.getValue());
-            if (loadingIndicator != null) loadingIndicator.setVisible(false);
-        });
-        task.setOnFailed(e -> {
-            if (loadingIndicator != null) loadingIndicator.setVisible(false);
-            System.out.println("Failed to load book copies: " + task.getException());
-        });
-        new Thread(task).start();
+        bookCopyPager.reload();
     }
 
     /*
-     * Loads loans from the database in background...updates TableView when complete
+     * Loads the first page of loans from the database in background...further pages load as the table is scrolled
      */
     private void loadLoansAsync() {
-        if (loadingIndicator != null) loadingIndicator.setVisible(true);
-        Task<List<Loan>> task = new Task<>() {
-            @Override
-            protected List<Loan> call() {
-                LoanService loanService = new LoanService();
-                return loanService.getAllLoans();
-            }
-        };
-        task.setOnSucceeded(e -> {
-            loanList.setAll(task.getValue());
-            if (loadingIndicator != null) loadingIndicator.setVisible(false);
-        });
-        task.setOnFailed(e -> {
-            if (loadingIndicator != null) loadingIndicator.setVisible(false);
-            System.out.println("Failed to load loans: " + task.getException());
-        });
-        new Thread(task).start();
+        loanPager.reload();
     }
 
     /*
@@ -187,21 +179,51 @@ public class LoanViewController {
      */
     @FXML
     private void handleAddCopyToLoan() {
-        BookCopy selected = bookCopyTable.getSelectionModel().getSelectedItem();
+        BookCopyRow selected = bookCopyTable.getSelectionModel().getSelectedItem();
         if (selected != null && !selectedBookCopyList.contains(selected)) {
             selectedBookCopyList.add(selected);
             bookCopyList.remove(selected);
         }
     }
 
+    /*
+     * Adds the copy with the scanned barcode to the loan ... a scanner types the barcode and presses Enter
+     * The copy is looked up by barcode, so it does not have to be among the loaded rows of the copies table
+     */
+    @FXML
+    private void handleScanBarcode() {
+        String barcode = barcodeField.getText() == null ? "" : barcodeField.getText().trim();
+        barcodeField.clear();
+        if (barcode.isEmpty()) return;
+        for (BookCopyRow copy : selectedBookCopyList) {
+            if (barcode.equals(copy.barcode())) {
+                showAlert("Copy " + barcode + " is already selected for this loan.");
+                return;
+            }
+        }
+
+        BookCopyService bookCopyService = new BookCopyService();
+        AsyncAction.run(loadingIndicator, () -> bookCopyService.findByBarcode(barcode), copy -> {
+            if (copy == null) {
+                showAlert("No book copy has barcode " + barcode + ".");
+            } else if (copy.isBorrowed()) {
+                showAlert("Copy " + barcode + " of \"" + copy.getBook().getTitle() + "\" is already borrowed.");
+            } else if (selectedBookCopyList.stream().noneMatch(selected -> selected.copyId() == copy.getCopyId())) {
+                selectedBookCopyList.add(BookCopyRow.of(copy, null));
+                bookCopyList.removeIf(listed -> listed.copyId() == copy.getCopyId());
+            }
+            barcodeField.requestFocus();
+        }, error -> showAlert("Error scanning barcode: " + error.getMessage()));
+    }
+
     /*
      * Removes a book copy from the loan
      */
     @FXML
     private void handleRemoveCopyFromLoan() {
-        BookCopy selected = selectedBookCopyTable.getSelectionModel().getSelectedItem();
+        BookCopyRow selected = selectedBookCopyTable.getSelectionModel().getSelectedItem();
         if (selected != null) {
-            bookCopyList.add(selected);
+            bookCopyPager.addLocal(selected);
             selectedBookCopyList.remove(selected);
         }
     }
@@ -213,7 +235,7 @@ public class LoanViewController {
     private void handleCreateLoan() {
         try {
             Student student = studentComboBox.getValue();
-            List<BookCopy> selectedCopies = new java.util.ArrayList<>(selectedBookCopyList);
+            List<BookCopyRow> selectedCopies = new java.util.ArrayList<>(selectedBookCopyList);
 
             // Get dates from DatePickers
             java.util.Date borrowDate = borrowDatePicker.getValue() != null ? java.sql.Date.valueOf(borrowDatePicker.getValue()) : null;
@@ -224,12 +246,18 @@ public class LoanViewController {
                 showAlert("All fields are required and at least one book copy must be selected.");
                 return;
             }
-            LoanService loanService = new LoanService();
-            loanService.createLoan(student, selectedCopies, borrowDate, dueDate);
-            showAlert("Loan created successfully.");
+
+            // clear the selection straight away and give the copies back if the loan is refused
             selectedBookCopyList.clear();
-            loadBookCopiesAsync();
-            loadLoansAsync();
+            LoanService loanService = new LoanService();
+            List<Integer> copyIds = selectedCopies.stream().map(BookCopyRow::copyId).collect(Collectors.toList());
+            AsyncAction.run(loadingIndicator, () -> loanService.createLoanForCopyIds(student, copyIds, borrowDate, dueDate), loan -> {
+                loanPager.addLocal(LoanRow.of(loan));
+                showAlert("Loan created successfully.");
+            }, error -> {
+                selectedBookCopyList.setAll(selectedCopies);
+                showAlert("Error creating loan: " + error.getMessage());
+            });
 
         // handle errors
         } catch (Exception e) {
@@ -242,22 +270,73 @@ public class LoanViewController {
      */
     @FXML
     private void handleReturnLoan() {
-        Loan selectedLoan = loanTable.getSelectionModel().getSelectedItem();
+        LoanRow selectedLoan = loanTable.getSelectionModel().getSelectedItem();
         if (selectedLoan == null) {
             showAlert("Select a loan to return.");
             return;
         }
-        try {
-            LoanService loanService = new LoanService();
-            loanService.returnLoan(selectedLoan.getLoanId(), new java.util.Date());
+
+        // mark the loan returned straight away and undo it if the return fails
+        java.util.Date returnDate = new java.util.Date();
+        LoanRow returnedLoan = selectedLoan.withReturnDate(returnDate);
+        loanList.set(loanList.indexOf(selectedLoan), returnedLoan);
+        LoanService loanService = new LoanService();
+        AsyncAction.run(loadingIndicator, () -> {
+            loanService.returnLoan(selectedLoan.loanId(), returnDate);
+            return returnedLoan;
+        }, returned -> {
             showAlert("Loan returned successfully.");
             loadBookCopiesAsync();
-            loadLoansAsync();
+        }, error -> {
+            int index = loanList.indexOf(returnedLoan);
+            if (index >= 0) loanList.set(index, selectedLoan);
+            showAlert("Error returning loan: " + error.getMessage());
+        });
+    }
 
-        // handle errors
-        } catch (Exception e) {
-            showAlert("Error returning loan: " + e.getMessage());
+    /*
+     * Renews the selected loans until the date in the Due Date field, loans that break a renewal rule are left as they are
+     */
+    @FXML
+    private void handleRenewLoans() {
+        List<LoanRow> selectedLoans = List.copyOf(loanTable.getSelectionModel().getSelectedItems());
+        if (selectedLoans.isEmpty()) {
+            showAlert("Select the loans to renew.");
+            return;
+        }
+        if (dueDatePicker.getValue() == null) {
+            showAlert("Pick the new due date in the Due Date field.");
+            return;
+        }
+
+        java.util.Date dueDate = java.sql.Date.valueOf(dueDatePicker.getValue());
+        List<Integer> loanIds = selectedLoans.stream().map(LoanRow::loanId).collect(Collectors.toList());
+        LoanService loanService = new LoanService();
+        renewLoansButton.setDisable(true);
+        AsyncAction.run(loadingIndicator, () -> loanService.renewLoans(loanIds, dueDate), result -> {
+            renewLoansButton.setDisable(false);
+            showRenewal(result);
+        }, error -> {
+            renewLoansButton.setDisable(false);
+            showAlert("Error renewing loans: " + error.getMessage());
+        });
+    }
+
+    /*
+     * Renews every open loan of the student in the Student field until the date in the Due Date field
+     */
+    @FXML
+    private void handleRenewAll() {
+        Student student = studentComboBox.getValue();
+        if (student == null || dueDatePicker.getValue() == null) {
+            showAlert("Pick the student and the new due date.");
+            return;
         }
+
+        java.util.Date dueDate = java.sql.Date.valueOf(dueDatePicker.getValue());
+        LoanService loanService = new LoanService();
+        AsyncAction.run(loadingIndicator, () -> loanService.renewAll(student.getBroncoId(), dueDate), this::showRenewal,
+            error -> showAlert("Error renewing loans: " + error.getMessage()));
     }
 
     /*
@@ -265,20 +344,15 @@ public class LoanViewController {
      */
     @FXML
     private void handleShowReceipt() {
-        Loan selectedLoan = loanTable.getSelectionModel().getSelectedItem();
+        LoanRow selectedLoan = loanTable.getSelectionModel().getSelectedItem();
         if (selectedLoan == null) {
             showAlert("Select a loan to show receipt.");
             return;
         }
-        try {
-            LoanService loanService = new LoanService();
-            String receipt = loanService.generateReceipt(selectedLoan.getLoanId());
-            showAlert(receipt);
-
-        // handle errors
-        } catch (Exception e) {
-            showAlert("Error generating receipt: " + e.getMessage());
-        }
+        LoanService loanService = new LoanService();
+        AsyncAction.run(loadingIndicator, () -> loanService.generateReceipt(selectedLoan.loanId()),
+            this::showAlert,
+            error -> showAlert("Error generating receipt: " + error.getMessage()));
     }
 
     /*
@@ -286,61 +360,101 @@ public class LoanViewController {
      */
     @FXML
     private void handleDeleteLoan() {
-        Loan selectedLoan = loanTable.getSelectionModel().getSelectedItem();
+        LoanRow selectedLoan = loanTable.getSelectionModel().getSelectedItem();
         if (selectedLoan == null) {
             showAlert("Select a loan to delete.");
             return;
         }
-        try {
-            LoanService loanService = new LoanService();
-            loanService.deleteLoan(selectedLoan.getLoanId());
+
+        // remove the row straight away and put it back if the delete fails
+        int index = loanList.indexOf(selectedLoan);
+        loanList.remove(selectedLoan);
+        LoanService loanService = new LoanService();
+        AsyncAction.run(loadingIndicator, () -> {
+            loanService.deleteLoan(selectedLoan.loanId());
+            return selectedLoan;
+        }, deleted -> {
             showAlert("Loan deleted successfully.");
             loadBookCopiesAsync();
-            loadLoansAsync();
+        }, error -> {
+            loanList.add(index, selectedLoan);
+            showAlert("Error deleting loan: " + error.getMessage());
+        });
+    }
 
-        // handle errors
+    /*
+     * Opens the loan report in its own window ... the report is grouped and sorted by the database
+     * and loads page by page, so it covers every loan and not just the rows loaded here
+     */
+    @FXML
+    private void handleGenerateReport() {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/LoanReportView.fxml"));
+            Parent root = loader.load();
+            LoanReportViewController controller = loader.getController();
+            Stage stage = new Stage();
+            stage.initOwner(loanTable.getScene().getWindow());
+            stage.setTitle("Library System - Loan Report");
+            stage.setScene(new Scene(root, 800, 600));
+            stage.setOnHidden(e -> controller.dispose());
+            stage.show();
         } catch (Exception e) {
-            showAlert("Error deleting loan: " + e.getMessage());
+            showAlert("Error opening loan report: " + e.getMessage());
         }
     }
 
     /*
-     * Generates a loan report and displays it in a popup
+     * Exports loans to a CSV or JSON Lines file chosen by the user
+     * Only the loans of the student selected in the student box are exported when one is selected
      */
     @FXML
-    private void handleGenerateReport() {
-        List<Loan> loans = loanList; 
-
-        // by student name, then by due date
-        Map<String, List<Loan>> grouped = loans.stream()
-            .collect(Collectors.groupingBy(l -> l.getStudent().getName()));
-
-        StringBuilder report = new StringBuilder();
-        grouped.entrySet().stream()
-            .sorted(Map.Entry.comparingByKey())
-            .forEach(entry -> {
-                report.append("Student: ").append(entry.getKey()).append("\n");
-                entry.getValue().stream()
-                    .sorted(Comparator.comparing(Loan::getDueDate))
-                    .forEach(loan -> report.append("  Loan ID: ").append(loan.getLoanId())
-                        .append(", Due: ").append(loan.getDueDate())
-                        .append(", Returned: ").append(loan.isReturned() ? "Yes" : "No")
-                        .append("\n"));
-                report.append("\n");
-            });
+    private void handleExportLoans() {
+        ChoiceDialog<String> scope = new ChoiceDialog<>("All loans", "All loans", "Unreturned loans", "Returned loans");
+        scope.setTitle("Export Loans");
+        scope.setHeaderText(null);
+        scope.setContentText("Loans to export:");
+        Optional<String> choice = scope.showAndWait();
+        if (choice.isEmpty()) return;
 
-        // display in a popup
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Loan Report");
-        alert.setHeaderText("Loan Report");
-        alert.getDialogPane().setPrefWidth(500);
-        alert.setContentText(report.toString());
-        alert.showAndWait();
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Loans");
+        chooser.setInitialFileName("loans.csv");
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV", "*.csv"),
+            new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl"),
+            new FileChooser.ExtensionFilter("Compressed", "*.csv.gz", "*.jsonl.gz"));
+        File file = chooser.showSaveDialog(loanTable.getScene().getWindow());
+        if (file == null) return;
+
+        Student student = studentComboBox.getValue();
+        LoanFilter filter = LoanFilter.all()
+            .withReturned(switch (choice.get()) {
+                case "Unreturned loans" -> false;
+                case "Returned loans" -> true;
+                default -> null;
+            })
+            .forStudent(student == null ? null : student.getBroncoId());
+        exportLoansButton.setDisable(true);
+        ExportService exportService = new ExportService();
+        AsyncAction.run(loadingIndicator, () -> exportService.exportLoans(file.toPath(), filter, ProgressListener.NONE), written -> {
+            exportLoansButton.setDisable(false);
+            showAlert("Exported " + written + " loans to " + file + ".");
+        }, error -> {
+            exportLoansButton.setDisable(false);
+            showAlert("Error exporting loans: " + error.getMessage());
+        });
     }
 
     /*
      * Helper Methods
      */
+    // moves the due dates of the loaded rows that were renewed
+    private void showRenewal(RenewalResult result) {
+        Set<Integer> renewed = Set.copyOf(result.renewedIds());
+        loanList.replaceAll(row -> renewed.contains(row.loanId()) ? row.withDueDate(result.dueDate()) : row);
+        showAlert(result.summary() + ".");
+    }
+
     private void showAlert(String message) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Loan Management");
@@ -377,6 +491,7 @@ public class LoanViewController {
      * Helper Methods
      */
     private void switchScene(String fxmlPath, String title) throws Exception {
+        BackgroundExecutor.cancelAll(this);
         Stage stage = (Stage) loanTable.getScene().getWindow();
         Parent root = FXMLLoader.load(getClass().getResource(fxmlPath));
         stage.setScene(new Scene(root, 800, 600));
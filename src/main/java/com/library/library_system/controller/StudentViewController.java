@@ -1,5 +1,6 @@
 package com.library.library_system.controller;
 
+import com.library.library_system.util.BackgroundExecutor;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.TableColumn;
@@ -10,16 +11,19 @@ import javafx.collections.ObservableList;
 import com.library.library_system.model.Student;
 import javafx.scene.control.TextField;
 import com.library.library_system.service.StudentService;
+import com.library.library_system.service.FinePolicy;
+import com.library.library_system.service.FineService;
+import javafx.concurrent.Task;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.Label;
-import javafx.concurrent.Task;
-import java.util.List;
 import javafx.stage.Stage;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 
+import java.math.BigDecimal;
+
 /*
  * Controller for the Student Management View
  * Handles the management of students in the library system
@@ -45,11 +49,18 @@ public class StudentViewController {
     @FXML private TextField degreeField;
     @FXML private ProgressIndicator loadingIndicator;
     @FXML private Button studentNavButton;
+    @FXML private Label balanceLabel;
+    @FXML private TextField paymentField;
+    @FXML private Button paymentButton;
 
     /*
      * Observable List used to store data in the TableView. Updates UI when data is manipulated.
      */
+    private static final int PAGE_SIZE = 100;
+
     private ObservableList<Student> cachedStudents = FXCollections.observableArrayList();
+    private TablePager<Student, Integer> studentPager;
+    private final FineService fineService = new FineService();
 
     @FXML
     public void initialize() {
@@ -58,37 +69,88 @@ public class StudentViewController {
         nameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
         addressColumn.setCellValueFactory(new PropertyValueFactory<>("address"));
         degreeColumn.setCellValueFactory(new PropertyValueFactory<>("degree"));
+        studentTable.setItems(cachedStudents);
 
+        StudentService studentService = new StudentService();
+        studentPager = new TablePager<>(this, studentTable, cachedStudents, PAGE_SIZE, studentService::getStudentsPage, Student::getBroncoId);
+        studentPager.setOnLoading(() -> {
+            loadingIndicator.setVisible(true);
+            studentTable.setPlaceholder(new Label("")); // Hide placeholder while loading
+        });
+        studentPager.setOnLoaded(empty -> {
+            loadingIndicator.setVisible(false);
+            if (empty) {
+                studentTable.setPlaceholder(new Label("No students found."));
+            }
+        });
+        studentPager.setOnFailed(error -> {
+            loadingIndicator.setVisible(false);
+            studentTable.setPlaceholder(new Label("Failed to load students."));
+        });
+        studentTable.getSelectionModel().selectedItemProperty().addListener((obs, oldValue, newValue) -> loadBalanceAsync(newValue));
         loadStudentsAsync();
     }
 
     /*
-     * Loads students from the database in background...updates TableView when complete
+     * Loads the first page of students from the database in background...further pages load as the table is scrolled
      */
     public void loadStudentsAsync() {
-        loadingIndicator.setVisible(true);
-        studentTable.setPlaceholder(new Label("")); // Hide placeholder while loading
+        studentPager.reload();
+    }
 
-        Task<List<Student>> task = new Task<>() {
+    /*
+     * Loads the fines owed by the selected student in background
+     */
+    private void loadBalanceAsync(Student student) {
+        if (student == null) {
+            balanceLabel.setText("");
+            return;
+        }
+        Task<Long> task = new Task<>() {
             @Override
-            protected List<Student> call() {
-                StudentService studentService = new StudentService();
-                return studentService.getAllStudents();
+            protected Long call() {
+                return fineService.getBalance(student.getBroncoId());
             }
         };
-        task.setOnSucceeded(e -> {
-            cachedStudents.setAll(task.getValue());
-            studentTable.setItems(cachedStudents);
-            loadingIndicator.setVisible(false);
-            if (cachedStudents.isEmpty()) {
-                studentTable.setPlaceholder(new Label("No students found."));
-            }
-        });
-        task.setOnFailed(e -> {
-            loadingIndicator.setVisible(false);
-            studentTable.setPlaceholder(new Label("Failed to load students."));
+        balanceLabel.setText("Loading fines...");
+        task.setOnSucceeded(e -> balanceLabel.setText(student.getName() + " owes " + FinePolicy.format(task.getValue()) + " in fines"));
+        task.setOnFailed(e -> balanceLabel.setText("Failed to load fines."));
+        BackgroundExecutor.load(this, "balance", task);
+    }
+
+    /*
+     * Records a fine payment for the selected student, amounts are entered in dollars
+     */
+    @FXML
+    private void handlePayment() {
+        Student selected = studentTable.getSelectionModel().getSelectedItem();
+        if (selected == null) {
+            showAlert("Select a student to record a payment for.");
+            return;
+        }
+        long cents;
+        try {
+            cents = new BigDecimal(paymentField.getText().trim().replace("$", ""))
+                .movePointRight(2).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            showAlert("Enter the payment in dollars, e.g. 12.50");
+            return;
+        }
+        if (cents <= 0) {
+            showAlert("The payment must be more than $0.00.");
+            return;
+        }
+
+        paymentButton.setDisable(true);
+        AsyncAction.run(loadingIndicator, () -> fineService.recordPayment(selected.getBroncoId(), cents), remaining -> {
+            paymentButton.setDisable(false);
+            paymentField.clear();
+            loadBalanceAsync(selected);
+            showAlert("Payment of " + FinePolicy.format(cents) + " recorded, " + FinePolicy.format(remaining) + " still owed.");
+        }, error -> {
+            paymentButton.setDisable(false);
+            showAlert("Error recording payment: " + error.getMessage());
         });
-        new Thread(task).start();
     }
 
     /*
@@ -114,16 +176,23 @@ public class StudentViewController {
             student.setAddress(address);
             student.setDegree(degree);
 
-            StudentService studentService = new StudentService();
-            studentService.addStudent(student);
-
-            cachedStudents.add(student); 
+            // show the student straight away and roll back if the insert fails
+            studentPager.addLocal(student);
 
             broncoIdField.clear();
             nameField.clear();
             addressField.clear();
             degreeField.clear();
 
+            StudentService studentService = new StudentService();
+            AsyncAction.run(loadingIndicator, () -> {
+                studentService.addStudent(student);
+                return student;
+            }, added -> {}, error -> {
+                studentPager.remove(student);
+                showAlert("Error adding student: " + error.getMessage());
+            });
+
         // handle error
         } catch (Exception e) {
 
@@ -152,14 +221,26 @@ public class StudentViewController {
                 return;
             }
 
+            // apply the edit straight away and restore the previous values if the update fails
+            String previousName = selected.getName();
+            String previousAddress = selected.getAddress();
+            String previousDegree = selected.getDegree();
             selected.setName(name);
             selected.setAddress(address);
             selected.setDegree(degree);
+            studentTable.refresh();
 
             StudentService studentService = new StudentService();
-            studentService.updateStudent(selected);
-            studentTable.refresh();
-            showAlert("Student updated successfully.");
+            AsyncAction.run(loadingIndicator, () -> {
+                studentService.updateStudent(selected);
+                return selected;
+            }, updated -> showAlert("Student updated successfully."), error -> {
+                selected.setName(previousName);
+                selected.setAddress(previousAddress);
+                selected.setDegree(previousDegree);
+                studentTable.refresh();
+                showAlert("Error updating student: " + error.getMessage());
+            });
 
         // handle errors
         } catch (Exception e) {
@@ -177,20 +258,22 @@ public class StudentViewController {
             showAlert("Select a student to delete.");
             return;
         }
-        try {
-            StudentService studentService = new StudentService();
-            boolean deleted = studentService.deleteStudent(selected.getBroncoId());
+
+        // remove the row straight away and put it back if the delete is refused or fails
+        int index = cachedStudents.indexOf(selected);
+        cachedStudents.remove(selected);
+        StudentService studentService = new StudentService();
+        AsyncAction.run(loadingIndicator, () -> studentService.deleteStudent(selected.getBroncoId()), deleted -> {
             if (deleted) {
-                cachedStudents.remove(selected);
                 showAlert("Student deleted successfully.");
             } else {
+                cachedStudents.add(index, selected);
                 showAlert("Cannot delete student: They may have active loans.");
             }
-
-        // handle errors
-        } catch (Exception e) {
-            showAlert("Error deleting student: " + e.getMessage());
-        }
+        }, error -> {
+            cachedStudents.add(index, selected);
+            showAlert("Error deleting student: " + error.getMessage());
+        });
     }
 
 
@@ -223,6 +306,7 @@ public class StudentViewController {
      * Helper Methods
      */
     private void switchScene(String fxmlPath, String title) throws Exception {
+        BackgroundExecutor.cancelAll(this);
         Stage stage = (Stage) studentTable.getScene().getWindow();
         Parent root = FXMLLoader.load(getClass().getResource(fxmlPath));
         stage.setScene(new Scene(root, 800, 600));
@@ -0,0 +1,195 @@
+package com.library.library_system.controller;
+
+import com.library.library_system.service.Page;
+import com.library.library_system.service.PageRequest;
+import com.library.library_system.util.BackgroundExecutor;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/*
+ * Helper for the paged TableViews
+ * Loads rows a page at a time in background and fetches the next page as the user scrolls near the bottom
+ * Page loads belong to the owning controller so they are cancelled when its scene is left
+ * K is the type of the cursor a page continues from, the ID of the last row for most tables
+ */
+public class TablePager<T, K> {
+
+    private static final double LOAD_THRESHOLD = 0.9;
+
+    private final Object owner;
+    private final TableView<T> table;
+    private final ObservableList<T> items;
+    private final ToIntFunction<T> key;
+
+    private Function<PageRequest<K>, Page<T, K>> pageLoader;
+    private PageRequest<K> request;
+    private boolean hasMore = true;
+    private boolean loading;
+    private int generation;
+
+    // rows added locally so they are not repeated when a later page reaches them
+    private final List<T> localItems = new ArrayList<>();
+
+    private Runnable onLoading = () -> {};
+    private Consumer<Boolean> onLoaded = empty -> {};
+    private Consumer<Throwable> onFailed = error -> {};
+
+    public TablePager(Object owner, TableView<T> table, ObservableList<T> items, int pageSize,
+                      Function<PageRequest<K>, Page<T, K>> pageLoader, ToIntFunction<T> key) {
+        this.owner = owner;
+        this.table = table;
+        this.items = items;
+        this.pageLoader = pageLoader;
+        this.key = key;
+        this.request = PageRequest.first(pageSize);
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> attachScrollListener());
+        if (table.getSkin() != null) attachScrollListener();
+    }
+
+    /*
+     * Clears the table and loads the first page
+     */
+    public void reload() {
+        generation++;
+        loading = false;
+        hasMore = true;
+        localItems.clear();
+        items.clear();
+        request = new PageRequest<>(null, request.size(), request.descending(), request.filter());
+        loadNextPage();
+    }
+
+    /*
+     * Switches to another page loader, e.g. one bound to a new report scope, and reloads from the first page
+     * Pages already in flight finish with the loader they were started with and are then discarded
+     */
+    public void setPageLoader(Function<PageRequest<K>, Page<T, K>> pageLoader) {
+        this.pageLoader = pageLoader;
+        reload();
+    }
+
+    /*
+     * Applies a text filter and reloads from the first page
+     */
+    public void setFilter(String filter) {
+        request = request.withFilter(filter);
+        reload();
+    }
+
+    /*
+     * Loads the next page in background unless one is already loading or the end was reached
+     */
+    public void loadNextPage() {
+        if (loading || !hasMore) return;
+        loading = true;
+        int loadGeneration = generation;
+        PageRequest<K> pageRequest = request;
+        Function<PageRequest<K>, Page<T, K>> loader = pageLoader;
+        boolean firstPage = pageRequest.after() == null;
+        if (firstPage) onLoading.run();
+
+        Task<Page<T, K>> task = new Task<>() {
+            @Override
+            protected Page<T, K> call() {
+                return loader.apply(pageRequest);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (loadGeneration != generation) return; // reloaded while this page was in flight
+            Page<T, K> page = task.getValue();
+            appendPage(page.items());
+            request = pageRequest.next(page);
+            hasMore = page.hasMore();
+            loading = false;
+            if (firstPage) onLoaded.accept(items.isEmpty());
+        });
+        task.setOnFailed(e -> {
+            if (loadGeneration != generation) return;
+            loading = false;
+            onFailed.accept(task.getException());
+        });
+        BackgroundExecutor.load(owner, this, task);
+    }
+
+    /*
+     * Adds a row created locally, e.g. after an insert, without waiting for its page
+     * The row's key is read when pages arrive, so it may still be unassigned when the row is added
+     */
+    public void addLocal(T item) {
+        localItems.add(item);
+        items.add(item);
+    }
+
+    /*
+     * Removes a row, e.g. when an optimistic insert is rolled back
+     */
+    public void remove(T item) {
+        localItems.remove(item);
+        items.remove(item);
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /*
+     * Callbacks for the loading indicator and placeholders of the first page
+     */
+
+    public void setOnLoading(Runnable onLoading) {
+        this.onLoading = onLoading;
+    }
+
+    public void setOnLoaded(Consumer<Boolean> onLoaded) {
+        this.onLoaded = onLoaded;
+    }
+
+    public void setOnFailed(Consumer<Throwable> onFailed) {
+        this.onFailed = onFailed;
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private void appendPage(List<T> rows) {
+        if (localItems.isEmpty()) {
+            items.addAll(rows);
+            return;
+        }
+        Set<Integer> localKeys = new HashSet<>();
+        for (T item : localItems) {
+            localKeys.add(key.applyAsInt(item));
+        }
+        for (T row : rows) {
+            if (!localKeys.contains(key.applyAsInt(row))) {
+                items.add(row);
+            }
+        }
+    }
+
+    // the vertical scroll bar only exists once the table has a skin
+    private void attachScrollListener() {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, oldValue, value) -> {
+                    if (value.doubleValue() >= bar.getMax() * LOAD_THRESHOLD) {
+                        loadNextPage();
+                    }
+                });
+            }
+        }
+    }
+}
@@ -1,11 +1,25 @@
 package com.library.library_system.controller;
 
+import com.library.library_system.service.LoanRow;
+import com.library.library_system.service.OverdueService;
+import com.library.library_system.service.OverdueSummary;
+import com.library.library_system.util.BackgroundExecutor;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.Parent;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.control.Button;
+import javafx.scene.control.*;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class WelcomeViewController {
     @FXML
@@ -17,6 +31,95 @@ public class WelcomeViewController {
     @FXML
     private Button bookCopyButton;
 
+    /*
+     * Overdue dashboard
+     */
+    @FXML
+    private Label overdueSummaryLabel;
+    @FXML
+    private TableView<LoanRow> overdueTable;
+    @FXML
+    private TableColumn<LoanRow, Integer> overdueLoanIdColumn;
+    @FXML
+    private TableColumn<LoanRow, String> overdueStudentColumn;
+    @FXML
+    private TableColumn<LoanRow, Integer> overdueBroncoIdColumn;
+    @FXML
+    private TableColumn<LoanRow, String> overdueDueDateColumn;
+    @FXML
+    private TableColumn<LoanRow, Long> overdueDaysColumn;
+    @FXML
+    private ProgressIndicator loadingIndicator;
+    @FXML
+    private Button scanButton;
+
+    // loans listed on the dashboard, the most overdue first
+    private static final int DASHBOARD_ROWS = 50;
+    // a scan started from the dashboard, longer than a background run since the user is waiting for it
+    private static final Duration SCAN_BUDGET = Duration.ofSeconds(60);
+
+    private final OverdueService overdueService = new OverdueService();
+    private final ObservableList<LoanRow> overdueLoans = FXCollections.observableArrayList();
+
+    // everything the dashboard shows, loaded together
+    private record Dashboard(OverdueSummary summary, List<LoanRow> loans) {}
+
+    @FXML
+    public void initialize() {
+        overdueLoanIdColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().loanId()));
+        overdueStudentColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().studentName()));
+        overdueBroncoIdColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().broncoId()));
+        overdueDueDateColumn.setCellValueFactory(cellData -> new SimpleStringProperty(String.valueOf(cellData.getValue().dueDate())));
+        overdueDaysColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(daysOverdue(cellData.getValue().dueDate())));
+        overdueTable.setItems(overdueLoans);
+        overdueTable.setPlaceholder(new Label("No overdue loans."));
+        loadDashboardAsync();
+    }
+
+    /*
+     * Loads the overdue totals and the most overdue loans in background
+     */
+    private void loadDashboardAsync() {
+        Task<Dashboard> task = new Task<>() {
+            @Override
+            protected Dashboard call() {
+                return new Dashboard(overdueService.getOverdueSummary(), overdueService.getMostOverdueLoans(DASHBOARD_ROWS));
+            }
+        };
+        loadingIndicator.setVisible(true);
+        task.setOnSucceeded(e -> {
+            loadingIndicator.setVisible(false);
+            overdueSummaryLabel.setText(task.getValue().summary().toString());
+            overdueLoans.setAll(task.getValue().loans());
+        });
+        task.setOnFailed(e -> {
+            loadingIndicator.setVisible(false);
+            overdueSummaryLabel.setText("Failed to load overdue loans.");
+        });
+        BackgroundExecutor.load(this, "overdue", task);
+    }
+
+    @FXML
+    private void handleRefresh() {
+        loadDashboardAsync();
+    }
+
+    /*
+     * Queues notices for loans that went overdue since the last scan, without waiting for the background scanner
+     */
+    @FXML
+    private void handleScan() {
+        scanButton.setDisable(true);
+        AsyncAction.run(loadingIndicator, () -> overdueService.scanNewlyOverdue(SCAN_BUDGET), result -> {
+            scanButton.setDisable(false);
+            loadDashboardAsync();
+            showAlert(result.summary() + ".");
+        }, error -> {
+            scanButton.setDisable(false);
+            showAlert("Error scanning for overdue loans: " + error.getMessage());
+        });
+    }
+
     /*
      * Navigation Bar Methods
      */
@@ -41,9 +144,26 @@ public class WelcomeViewController {
     }
 
     private void switchScene(String fxmlPath, String title) throws Exception {
+        BackgroundExecutor.cancelAll(this);
         Stage stage = (Stage) studentButton.getScene().getWindow();
         Parent root = FXMLLoader.load(getClass().getResource(fxmlPath));
         stage.setScene(new Scene(root, 800, 600));
         stage.setTitle("Library System - " + title);
     }
+
+    /*
+     * Helper Methods
+     */
+
+    private static long daysOverdue(Date dueDate) {
+        return dueDate == null ? 0 : TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis() - dueDate.getTime());
+    }
+
+    private void showAlert(String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Overdue Loans");
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
 }
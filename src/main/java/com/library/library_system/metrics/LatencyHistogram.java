@@ -0,0 +1,111 @@
+package com.library.library_system.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Lock-free latency histogram with fixed buckets
+ * Bucket bounds follow the usual Prometheus latency buckets, so the counts can be exported as they are
+ * and percentiles are estimated as the upper bound of the bucket they fall in
+ */
+public class LatencyHistogram {
+
+    // upper bucket bounds in milliseconds, the last bucket is unbounded
+    static final double[] BOUNDS_MILLIS = {0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            BOUNDS_NANOS[i] = (long) (BOUNDS_MILLIS[i] * TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) bucket++;
+        buckets[bucket].increment();
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sumNanos.reset();
+        maxNanos.reset();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSumMillis() {
+        return toMillis(sumNanos.sum());
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : getSumMillis() / n;
+    }
+
+    public double getMaxMillis() {
+        return toMillis(maxNanos.get());
+    }
+
+    /*
+     * Returns the upper bound of the bucket holding the given percentile (0-100), or the maximum for the last bucket
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(BOUNDS_MILLIS[i], getMaxMillis());
+        }
+        return getMaxMillis();
+    }
+
+    /*
+     * Returns the count of each bucket, not cumulative, the last entry is the unbounded bucket
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /*
+     * toString method to display a one line summary
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.3fms p50=%.1fms p95=%.1fms p99=%.1fms max=%.3fms", getCount(), getMeanMillis(),
+            getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99), getMaxMillis());
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
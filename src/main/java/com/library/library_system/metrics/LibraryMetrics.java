@@ -0,0 +1,284 @@
+package com.library.library_system.metrics;
+
+import com.library.library_system.util.PoolMetrics;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Application metrics gathered from the Hibernate statistics, the connection pool and the service latencies
+ * Exposed as a JMX MBean and as Prometheus text by MetricsServer
+ */
+public class LibraryMetrics implements LibraryMetricsMBean {
+
+    public static final String OBJECT_NAME = "com.library.library_system:type=Metrics";
+
+    // queries with the highest total time listed individually, the rest only count in the totals
+    private static final int TOP_QUERIES = 25;
+    private static final int MAX_QUERY_LABEL = 200;
+
+    private final SessionFactory sessionFactory;
+    private final PoolMetrics pool;
+    private ObjectName objectName;
+
+    public LibraryMetrics(SessionFactory sessionFactory, PoolMetrics pool) {
+        this.sessionFactory = sessionFactory;
+        this.pool = pool;
+    }
+
+    /*
+     * Registers the MBean with the platform MBean server, failures are logged and ignored
+     */
+    public void register() {
+        try {
+            objectName = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            }
+        } catch (Exception e) {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+    }
+
+    public void unregister() {
+        try {
+            if (objectName != null && ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            System.err.println("Error unregistering metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /*
+     * MBean attributes
+     */
+
+    @Override
+    public long getQueryExecutionCount() {
+        return statistics().getQueryExecutionCount();
+    }
+
+    @Override
+    public long getQueryExecutionMaxTimeMillis() {
+        return statistics().getQueryExecutionMaxTime();
+    }
+
+    @Override
+    public String getSlowestQuery() {
+        return statistics().getQueryExecutionMaxTimeQueryString();
+    }
+
+    @Override
+    public long getPrepareStatementCount() {
+        return statistics().getPrepareStatementCount();
+    }
+
+    @Override
+    public long getEntityLoadCount() {
+        return statistics().getEntityLoadCount();
+    }
+
+    @Override
+    public long getEntityFetchCount() {
+        return statistics().getEntityFetchCount();
+    }
+
+    @Override
+    public long getCollectionFetchCount() {
+        return statistics().getCollectionFetchCount();
+    }
+
+    @Override
+    public double getSecondLevelCacheHitRatio() {
+        Statistics statistics = statistics();
+        return ratio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount());
+    }
+
+    @Override
+    public double getQueryCacheHitRatio() {
+        Statistics statistics = statistics();
+        return ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount());
+    }
+
+    @Override
+    public double getAverageConnectionWaitMillis() {
+        return pool.getAverageWaitMillis();
+    }
+
+    @Override
+    public double getMaxConnectionWaitMillis() {
+        return pool.getMaxWaitMillis();
+    }
+
+    @Override
+    public long getConnectionTimeouts() {
+        return pool.getConnectionTimeouts();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return pool.getActiveConnections();
+    }
+
+    @Override
+    public int getPendingThreads() {
+        return pool.getPendingThreads();
+    }
+
+    @Override
+    public String[] getServiceLatencies() {
+        List<String> lines = new ArrayList<>();
+        ServiceMetrics.getMethods().forEach((method, histogram) -> lines.add(method + " " + histogram));
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public boolean isSqlLogging() {
+        return SqlLog.isEnabled();
+    }
+
+    @Override
+    public void setSqlLogging(boolean enabled) {
+        SqlLog.setEnabled(enabled);
+    }
+
+    @Override
+    public boolean isStatisticsEnabled() {
+        return statistics().isStatisticsEnabled();
+    }
+
+    @Override
+    public void setStatisticsEnabled(boolean enabled) {
+        statistics().setStatisticsEnabled(enabled);
+    }
+
+    @Override
+    public void reset() {
+        statistics().clear();
+        ServiceMetrics.reset();
+    }
+
+    /*
+     * Renders every metric in the Prometheus text exposition format
+     */
+    public String toPrometheusText() {
+        Statistics statistics = statistics();
+        StringBuilder out = new StringBuilder(8192);
+
+        out.append("# HELP library_service_latency_seconds Latency of service method calls.\n");
+        out.append("# TYPE library_service_latency_seconds histogram\n");
+        for (Map.Entry<String, LatencyHistogram> method : ServiceMetrics.getMethods().entrySet()) {
+            histogram(out, "library_service_latency_seconds", "method=\"" + escape(method.getKey()) + "\"", method.getValue());
+        }
+
+        counter(out, "hibernate_query_executions_total", "Queries executed.", statistics.getQueryExecutionCount());
+        gauge(out, "hibernate_query_max_seconds", "Slowest query execution.", statistics.getQueryExecutionMaxTime() / 1000.0);
+        counter(out, "hibernate_statements_prepared_total", "JDBC statements prepared.", statistics.getPrepareStatementCount());
+        counter(out, "hibernate_entities_loaded_total", "Entities loaded.", statistics.getEntityLoadCount());
+        counter(out, "hibernate_entities_fetched_total", "Entities fetched by a separate select.", statistics.getEntityFetchCount());
+        counter(out, "hibernate_collections_fetched_total", "Collections fetched by a separate select.", statistics.getCollectionFetchCount());
+        counter(out, "hibernate_sessions_opened_total", "Sessions opened.", statistics.getSessionOpenCount());
+        counter(out, "hibernate_transactions_total", "Transactions completed.", statistics.getTransactionCount());
+        counter(out, "hibernate_second_level_cache_hits_total", "Second-level cache hits.", statistics.getSecondLevelCacheHitCount());
+        counter(out, "hibernate_second_level_cache_misses_total", "Second-level cache misses.", statistics.getSecondLevelCacheMissCount());
+        counter(out, "hibernate_second_level_cache_puts_total", "Second-level cache puts.", statistics.getSecondLevelCachePutCount());
+        counter(out, "hibernate_query_cache_hits_total", "Query cache hits.", statistics.getQueryCacheHitCount());
+        counter(out, "hibernate_query_cache_misses_total", "Query cache misses.", statistics.getQueryCacheMissCount());
+
+        // the individual queries that took the most time in total
+        String[] queries = statistics.getQueries();
+        List<String> top = new ArrayList<>(Arrays.asList(queries));
+        top.sort(Comparator.comparingLong((String query) -> statistics.getQueryStatistics(query).getExecutionTotalTime()).reversed());
+        top = top.subList(0, Math.min(TOP_QUERIES, top.size()));
+        out.append("# HELP hibernate_query_seconds_total Total execution time per query.\n");
+        out.append("# TYPE hibernate_query_seconds_total counter\n");
+        for (String query : top) {
+            QueryStatistics stats = statistics.getQueryStatistics(query);
+            out.append("hibernate_query_seconds_total{query=\"").append(escape(label(query))).append("\"} ")
+                .append(number(stats.getExecutionTotalTime() / 1000.0)).append('\n');
+        }
+        out.append("# HELP hibernate_query_calls_total Executions per query.\n");
+        out.append("# TYPE hibernate_query_calls_total counter\n");
+        for (String query : top) {
+            out.append("hibernate_query_calls_total{query=\"").append(escape(label(query))).append("\"} ")
+                .append(statistics.getQueryStatistics(query).getExecutionCount()).append('\n');
+        }
+
+        out.append("# HELP library_pool_connections Pooled connections by state.\n");
+        out.append("# TYPE library_pool_connections gauge\n");
+        out.append("library_pool_connections{state=\"active\"} ").append(pool.getActiveConnections()).append('\n');
+        out.append("library_pool_connections{state=\"idle\"} ").append(pool.getIdleConnections()).append('\n');
+        out.append("library_pool_connections{state=\"total\"} ").append(pool.getTotalConnections()).append('\n');
+        gauge(out, "library_pool_pending_threads", "Threads waiting for a connection.", pool.getPendingThreads());
+        out.append("# HELP library_pool_acquire_seconds Time spent waiting for a pooled connection.\n");
+        out.append("# TYPE library_pool_acquire_seconds histogram\n");
+        histogram(out, "library_pool_acquire_seconds", "", pool.getAcquireLatency());
+        counter(out, "library_pool_timeouts_total", "Connection requests that timed out.", pool.getConnectionTimeouts());
+        return out.toString();
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private Statistics statistics() {
+        return sessionFactory.getStatistics();
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long[] counts = histogram.getBucketCounts();
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.BOUNDS_MILLIS.length; i++) {
+            cumulative += counts[i];
+            out.append(name).append("_bucket{").append(prefix).append("le=\"")
+                .append(number(LatencyHistogram.BOUNDS_MILLIS[i] / 1000.0)).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += counts[counts.length - 1];
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        out.append(name).append("_sum").append(suffix).append(number(histogram.getSumMillis() / 1000.0)).append('\n');
+        out.append(name).append("_count").append(suffix).append(cumulative).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(number(value)).append('\n');
+    }
+
+    // queries become labels, long ones are cut and whitespace collapsed
+    private static String label(String query) {
+        String collapsed = query.replaceAll("\\s+", " ").trim();
+        return collapsed.length() > MAX_QUERY_LABEL ? collapsed.substring(0, MAX_QUERY_LABEL) + "..." : collapsed;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
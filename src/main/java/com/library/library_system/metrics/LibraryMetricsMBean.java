@@ -0,0 +1,53 @@
+package com.library.library_system.metrics;
+
+/*
+ * JMX interface of the application metrics, registered as com.library.library_system:type=Metrics
+ */
+public interface LibraryMetricsMBean {
+
+    long getQueryExecutionCount();
+
+    long getQueryExecutionMaxTimeMillis();
+
+    String getSlowestQuery();
+
+    long getPrepareStatementCount();
+
+    long getEntityLoadCount();
+
+    long getEntityFetchCount();
+
+    long getCollectionFetchCount();
+
+    double getSecondLevelCacheHitRatio();
+
+    double getQueryCacheHitRatio();
+
+    double getAverageConnectionWaitMillis();
+
+    double getMaxConnectionWaitMillis();
+
+    long getConnectionTimeouts();
+
+    int getActiveConnections();
+
+    int getPendingThreads();
+
+    /*
+     * One line per service method with its call count and latency percentiles
+     */
+    String[] getServiceLatencies();
+
+    boolean isSqlLogging();
+
+    void setSqlLogging(boolean enabled);
+
+    boolean isStatisticsEnabled();
+
+    void setStatisticsEnabled(boolean enabled);
+
+    /*
+     * Clears the Hibernate statistics and the service latencies
+     */
+    void reset();
+}
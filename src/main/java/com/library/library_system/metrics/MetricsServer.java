@@ -0,0 +1,79 @@
+package com.library.library_system.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/*
+ * Local HTTP endpoint serving the metrics as Prometheus text on /metrics
+ * Only listens on the loopback interface, started when -Dlibrary.metrics.port is set
+ */
+public class MetricsServer {
+
+    public static final String PORT_PROPERTY = "library.metrics.port";
+
+    private final HttpServer server;
+
+    private MetricsServer(HttpServer server) {
+        this.server = server;
+    }
+
+    /*
+     * Starts the endpoint on the port from the system property, returns null when the property is not set
+     */
+    public static MetricsServer startIfConfigured(LibraryMetrics metrics) {
+        String port = System.getProperty(PORT_PROPERTY);
+        if (port == null || port.isBlank()) return null;
+        try {
+            return start(metrics, Integer.parseInt(port.trim()));
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error starting metrics endpoint on port " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static MetricsServer start(LibraryMetrics metrics, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, metrics));
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        return new MetricsServer(server);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private static void respond(HttpExchange exchange, LibraryMetrics metrics) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.library.library_system.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Utility class for the Service Metrics
+ * Records a latency histogram per service method ... a method opens a timer as the first resource of its try block:
+ *
+ *   try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.getBooksPage");
+ *        Session session = ...) {
+ */
+public class ServiceMetrics {
+
+    private static final Map<String, LatencyHistogram> METHODS = new ConcurrentHashMap<>();
+
+    private ServiceMetrics() {}
+
+    /*
+     * Starts timing one call of a service method, the call is recorded when the timer is closed
+     */
+    public static Timer time(String method) {
+        return new Timer(METHODS.computeIfAbsent(method, name -> new LatencyHistogram()), System.nanoTime());
+    }
+
+    /*
+     * Returns the histograms by method name, sorted
+     */
+    public static Map<String, LatencyHistogram> getMethods() {
+        return new TreeMap<>(METHODS);
+    }
+
+    public static void reset() {
+        METHODS.values().forEach(LatencyHistogram::reset);
+    }
+
+    /*
+     * One running call, closing it twice records it once
+     */
+    public static final class Timer implements AutoCloseable {
+        private final LatencyHistogram histogram;
+        private final long start;
+        private boolean closed;
+
+        private Timer(LatencyHistogram histogram, long start) {
+            this.histogram = histogram;
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.library.library_system.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/*
+ * Statement inspector that prints SQL while logging is switched on
+ * Replaces hibernate.show_sql, which could only be set at startup ... switch it with -Dlibrary.sql.log=true,
+ * the LibraryMetrics MBean or setEnabled
+ */
+public class SqlLog implements StatementInspector {
+
+    public static final SqlLog INSTANCE = new SqlLog();
+
+    private static volatile boolean enabled = Boolean.getBoolean("library.sql.log");
+
+    private SqlLog() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        SqlLog.enabled = enabled;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (enabled) System.out.println("SQL: " + sql);
+        return sql;
+    }
+}
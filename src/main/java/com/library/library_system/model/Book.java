@@ -1,10 +1,11 @@
 package com.library.library_system.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /*
  * Model for the Book Management View
@@ -13,9 +14,12 @@ import java.util.stream.Collectors;
  */
 @Entity
 @Table(name = "book")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     @Column(name = "book_id")
     private int bookId;
 
@@ -34,23 +38,6 @@ public class Book {
     public Book() {}
     
     
-    /*
-	 * Returns a list of available book copies
-	 */
-    public List<BookCopy> getAvailableCopies(){
-    	return copies.stream()
-    			.filter(copy -> !copy.isBorrowed())
-    			.collect(Collectors.toList());
-    }
-    
-
-	/*
-	 * Returns the total number of book copies
-	 */
-    public int getTotalCopies() {
-    	return copies.size();
-    }
-    
 	/*
 	 * Getters and Setters
 	 */
@@ -1,6 +1,8 @@
 package com.library.library_system.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.util.List;
 
 /*
@@ -9,10 +11,14 @@ import java.util.List;
  * Includes CRUD operations for book copies
  */
 @Entity
-@Table(name = "bookcopy")
+// fetch plan for use cases that show the copy with its book, e.g. checkout scanning
+@NamedEntityGraph(name = "BookCopy.book", attributeNodes = @NamedAttributeNode("book"))
+// barcodes are scanned at the counter, the unique index makes a lookup one index probe
+@Table(name = "bookcopy", indexes = @Index(name = "bookcopy_barcode_idx", columnList = "barcode", unique = true))
 public class BookCopy {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookcopy_seq")
+    @SequenceGenerator(name = "bookcopy_seq", sequenceName = "bookcopy_seq", allocationSize = 50)
     @Column(name = "copy_id")
     private int copyId;
 
@@ -20,7 +26,13 @@ public class BookCopy {
     private String location;
     private boolean isBorrowed;
 
-    @ManyToOne
+    // optimistic lock ... a stale copy edited at one desk cannot overwrite a checkout made at another
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id")
     private Book book;
 
@@ -93,6 +105,10 @@ public class BookCopy {
 
 
 
+	public int getVersion() {
+		return version;
+	}
+
 	public void setBook(Book book) {
 		this.book = book;
 		
@@ -0,0 +1,48 @@
+package com.library.library_system.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+/*
+ * Model for the availability counters of a book, one row per book sharing its ID
+ * Kept apart from the book row because every checkout, return and copy change moves them ... Book is in the second
+ * level cache, and a bulk update of its table would evict the whole book region and the cached book queries each time
+ * Not cached, the counters are always read from the database
+ * The row is also the lock of the hold queue of its book, see HoldService
+ * The book is a plain ID like on Hold, written by BookService together with the book and removed with it
+ */
+@Entity
+@Table(name = "book_stock")
+public class BookStock {
+
+    @Id
+    @Column(name = "book_id")
+    private int bookId;
+
+    // maintained by the services in the same transaction as the copies
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int totalCopies;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int availableCopies;
+
+    public BookStock() {}
+
+    /*
+     * Getters
+     */
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public int getTotalCopies() {
+        return totalCopies;
+    }
+
+    public int getAvailableCopies() {
+        return availableCopies;
+    }
+}
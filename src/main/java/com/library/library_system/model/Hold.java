@@ -0,0 +1,150 @@
+package com.library.library_system.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.util.Date;
+
+/*
+ * Model for a hold on a title, one row per student waiting for a copy of a book
+ * Holds of a book form a first in, first out queue ordered by placedAt ... the head of the queue is read straight off
+ * the queue index, so handing a returned copy to the next student never scans the queue
+ * A copy handed to a hold stays flagged as borrowed until it is collected, so no other student can check it out
+ * Book, student and copy are plain IDs like on OverdueNotice, so deleting them never waits on their holds
+ */
+@Entity
+@Table(name = "book_hold", indexes = {
+    // head of the queue of a book
+    @Index(name = "hold_queue_idx", columnList = "book_id, status, placedAt, hold_id"),
+    // holds of a student, read by checkout to collect them
+    @Index(name = "hold_student_idx", columnList = "bronco_id, status"),
+    // ready holds by pickup deadline, read by the expiry sweep
+    @Index(name = "hold_expiry_idx", columnList = "status, expiresAt"),
+    // the hold a copy is set aside for
+    @Index(name = "hold_copy_idx", columnList = "copy_id")})
+public class Hold {
+
+    public enum Status {
+        // in the queue
+        WAITING,
+        // a copy is set aside for the student until expiresAt
+        READY,
+        COLLECTED,
+        CANCELLED,
+        EXPIRED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hold_seq")
+    @SequenceGenerator(name = "hold_seq", sequenceName = "hold_seq", allocationSize = 50)
+    @Column(name = "hold_id")
+    private int holdId;
+
+    // a return, a checkout collecting the copy and the expiry sweep can race for the same hold
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int version;
+
+    @Column(name = "book_id", nullable = false)
+    private int bookId;
+
+    @Column(name = "bronco_id", nullable = false)
+    private int broncoId;
+
+    // the copy set aside, null while waiting
+    @Column(name = "copy_id")
+    private Integer copyId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date placedAt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date readyAt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date expiresAt;
+
+    // when the hold was collected, cancelled or expired
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date closedAt;
+
+    public Hold() {}
+
+    public Hold(int bookId, int broncoId, Date placedAt) {
+        this.bookId = bookId;
+        this.broncoId = broncoId;
+        this.placedAt = placedAt;
+        this.status = Status.WAITING;
+    }
+
+    /*
+     * Sets the copy aside for the student until the pickup deadline
+     */
+    public void allocate(int copyId, Date readyAt, Date expiresAt) {
+        this.copyId = copyId;
+        this.readyAt = readyAt;
+        this.expiresAt = expiresAt;
+        this.status = Status.READY;
+    }
+
+    /*
+     * Takes the hold out of the queue with one of the final statuses
+     */
+    public void close(Status status, Date closedAt) {
+        this.status = status;
+        this.closedAt = closedAt;
+    }
+
+    /*
+     * Checks if the hold is still in the queue or waiting to be collected
+     */
+    public boolean isActive() {
+        return status == Status.WAITING || status == Status.READY;
+    }
+
+    /*
+     * Getters
+     */
+
+    public int getHoldId() {
+        return holdId;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public int getBroncoId() {
+        return broncoId;
+    }
+
+    public Integer getCopyId() {
+        return copyId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Date getPlacedAt() {
+        return placedAt;
+    }
+
+    public Date getReadyAt() {
+        return readyAt;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Date getClosedAt() {
+        return closedAt;
+    }
+}
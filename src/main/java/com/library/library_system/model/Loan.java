@@ -1,6 +1,8 @@
 package com.library.library_system.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.util.Date;
 import java.util.List;
 
@@ -11,6 +13,14 @@ import java.util.List;
  */
 @Entity
 @Table(name = "loan")
+// fetch plans ... associations are lazy and each use case names what it needs
+@NamedEntityGraph(name = "Loan.student", attributeNodes = @NamedAttributeNode("student"))
+@NamedEntityGraph(name = "Loan.details", attributeNodes = {
+    @NamedAttributeNode("student"),
+    @NamedAttributeNode("bookCopies")})
+@NamedEntityGraph(name = "Loan.receipt",
+    attributeNodes = @NamedAttributeNode(value = "bookCopies", subgraph = "copies"),
+    subgraphs = @NamedSubgraph(name = "copies", attributeNodes = @NamedAttributeNode("book")))
 public class Loan {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,7 +36,7 @@ public class Loan {
     @Temporal(TemporalType.DATE)
     private Date returnDate;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "bronco_id")
     private Student student;
 
@@ -34,10 +44,29 @@ public class Loan {
     @JoinTable(
         name = "loan_bookcopy",
         joinColumns = @JoinColumn(name = "loan_id"),
-        inverseJoinColumns = @JoinColumn(name = "copy_id")
+        inverseJoinColumns = @JoinColumn(name = "copy_id"),
+        // due dates, loan history and availability are looked up by copy, fines count the copies of each loan
+        indexes = {
+            @Index(name = "loan_bookcopy_copy_idx", columnList = "copy_id"),
+            @Index(name = "loan_bookcopy_loan_idx", columnList = "loan_id")}
     )
     private List<BookCopy> bookCopies;
 
+    // fine in cents, kept up to date nightly while the loan is open and fixed when it is returned, see FineService
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long fineCents;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long finePaidCents;
+
+    // optimistic lock ... concurrent returns or deletes of the same loan cannot both succeed
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int version;
+
     public Loan() {}
      
     /*
@@ -124,6 +153,33 @@ public class Loan {
     public int getLoanId() {
         return loanId;
     }
+
+    public long getFineCents() {
+        return fineCents;
+    }
+
+    public void setFineCents(long fineCents) {
+        this.fineCents = fineCents;
+    }
+
+    public long getFinePaidCents() {
+        return finePaidCents;
+    }
+
+    public void setFinePaidCents(long finePaidCents) {
+        this.finePaidCents = finePaidCents;
+    }
+
+    /*
+     * Returns the part of the fine that is not paid yet
+     */
+    public long getFineOwedCents() {
+        return fineCents - finePaidCents;
+    }
+
+    public int getVersion() {
+        return version;
+    }
     
     
 }
@@ -0,0 +1,88 @@
+package com.library.library_system.model;
+
+import jakarta.persistence.*;
+
+import java.util.Date;
+
+/*
+ * Model for the overdue notice queue
+ * One row per loan and due date that went past due, queued by OverdueService and removed from the queue once sent
+ * Loan and student are plain IDs, so deleting a loan never waits on its notices
+ */
+@Entity
+@Table(name = "overdue_notice",
+    // a loan is noticed once per due date, a renewed loan can be noticed again
+    uniqueConstraints = @UniqueConstraint(name = "overdue_notice_loan_due_uq", columnNames = {"loan_id", "dueDate"}))
+public class OverdueNotice {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "overdue_notice_seq")
+    @SequenceGenerator(name = "overdue_notice_seq", sequenceName = "overdue_notice_seq", allocationSize = 50)
+    @Column(name = "notice_id")
+    private int noticeId;
+
+    @Column(name = "loan_id", nullable = false)
+    private int loanId;
+
+    @Column(name = "bronco_id", nullable = false)
+    private int broncoId;
+
+    @Temporal(TemporalType.DATE)
+    @Column(nullable = false)
+    private Date dueDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date queuedAt;
+
+    // null while the notice is waiting to be sent
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date sentAt;
+
+    public OverdueNotice() {}
+
+    public OverdueNotice(int loanId, int broncoId, Date dueDate, Date queuedAt) {
+        this.loanId = loanId;
+        this.broncoId = broncoId;
+        this.dueDate = dueDate;
+        this.queuedAt = queuedAt;
+    }
+
+    /*
+     * Checks if a notice was sent
+     */
+    public boolean isSent() {
+        return sentAt != null;
+    }
+
+    /*
+     * Getters and Setters
+     */
+
+    public int getNoticeId() {
+        return noticeId;
+    }
+
+    public int getLoanId() {
+        return loanId;
+    }
+
+    public int getBroncoId() {
+        return broncoId;
+    }
+
+    public Date getDueDate() {
+        return dueDate;
+    }
+
+    public Date getQueuedAt() {
+        return queuedAt;
+    }
+
+    public Date getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(Date sentAt) {
+        this.sentAt = sentAt;
+    }
+}
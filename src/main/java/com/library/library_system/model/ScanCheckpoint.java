@@ -0,0 +1,68 @@
+package com.library.library_system.model;
+
+import jakarta.persistence.*;
+
+import java.util.Date;
+
+/*
+ * Model for the progress of a background scan over the loans
+ * Holds the last (due date, loan ID) the scan has processed, so the next run starts after it instead of from the beginning
+ * The fine accrual keeps the last day it accrued for in the date
+ */
+@Entity
+@Table(name = "scan_checkpoint")
+public class ScanCheckpoint {
+    @Id
+    @Column(length = 40)
+    private String name;
+
+    @Temporal(TemporalType.DATE)
+    @Column(nullable = false)
+    private Date dueDate;
+
+    @Column(name = "loan_id", nullable = false)
+    private int loanId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date scannedAt;
+
+    public ScanCheckpoint() {}
+
+    public ScanCheckpoint(String name, Date dueDate, int loanId) {
+        this.name = name;
+        this.dueDate = dueDate;
+        this.loanId = loanId;
+    }
+
+    /*
+     * Moves the checkpoint past the last loan processed
+     */
+    public void advance(Date dueDate, int loanId) {
+        this.dueDate = dueDate;
+        this.loanId = loanId;
+    }
+
+    /*
+     * Getters and Setters
+     */
+
+    public String getName() {
+        return name;
+    }
+
+    public Date getDueDate() {
+        return dueDate;
+    }
+
+    public int getLoanId() {
+        return loanId;
+    }
+
+    public Date getScannedAt() {
+        return scannedAt;
+    }
+
+    public void setScannedAt(Date scannedAt) {
+        this.scannedAt = scannedAt;
+    }
+}
@@ -1,6 +1,8 @@
 package com.library.library_system.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.List;
 
 /*
@@ -10,6 +12,8 @@ import java.util.List;
  */
 @Entity
 @Table(name = "student")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "student")
 public class Student {
     @Id
     @Column(name = "bronco_id")
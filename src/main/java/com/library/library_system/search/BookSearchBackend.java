@@ -0,0 +1,20 @@
+package com.library.library_system.search;
+
+import java.util.List;
+
+/*
+ * Interface for the book search backends
+ * The in-memory index answers from this process, the PostgreSQL backend from indexes shared by every desk client
+ */
+public interface BookSearchBackend {
+
+    /*
+     * Returns the best matching books, highest score first
+     */
+    List<SearchHit> search(String query, int limit);
+
+    /*
+     * Returns true once the backend can answer searches
+     */
+    boolean isReady();
+}
@@ -0,0 +1,468 @@
+package com.library.library_system.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * In-memory inverted index over the book catalog
+ * Each term maps to a posting list of ints sorted by book ID, a posting is (bookId << 5) | fieldMask
+ * where the mask records which of the five fields contain the term, so book IDs must stay below 2^26
+ * Queries match every token (AND), the last token also as a prefix for search-as-you-type,
+ * and tokens of four or more letters fall back to fuzzy matching when they are not in the index
+ */
+public class BookSearchIndex implements BookSearchBackend {
+
+    public static final int TITLE = 1;
+    public static final int AUTHORS = 2;
+    public static final int PUBLISHER = 4;
+    public static final int DESCRIPTION = 8;
+    public static final int ISBN = 16;
+
+    private static final int FIELD_BITS = 5;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+    private static final float[] FIELD_WEIGHTS = {3f, 2f, 1f, 0.5f, 4f};
+
+    // expansions per query token, the most frequent terms are kept
+    private static final int MAX_PREFIX_TERMS = 256;
+    private static final int MAX_FUZZY_TERMS = 32;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final float FUZZY_FACTOR = 0.6f;
+
+    private static final BookSearchIndex INSTANCE = new BookSearchIndex();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term dictionary, sorted so prefixes and fuzzy candidates are ranges of it
+    private final TreeMap<String, Integer> termIds = new TreeMap<>();
+    private int[][] postings = new int[1024][];
+    private int[] postingCounts = new int[1024];
+    private int termCount;
+    // forward index ... the term IDs of each book, so a book can be removed without its old field values
+    private final Map<Integer, int[]> bookTerms = new HashMap<>();
+
+    private volatile boolean ready;
+    // books changed while a rebuild is scanning the table, the rebuild must not overwrite them
+    private Set<Integer> touchedDuringRebuild;
+
+    /*
+     * Returns the index shared by the application
+     */
+    public static BookSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /*
+     * Adds a book to the index, replacing any previous entry for the same ID
+     */
+    public void index(int bookId, String title, String authors, String publisher, String description, String isbn) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringRebuild != null) touchedDuringRebuild.add(bookId);
+            put(bookId, title, authors, publisher, description, isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Removes a book from the index
+     */
+    public void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringRebuild != null) touchedDuringRebuild.add(bookId);
+            removeBook(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Clears the index before a full rebuild
+     * Books indexed or removed until finishRebuild are kept as they are by rebuildEntry
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            termIds.clear();
+            postings = new int[1024][];
+            postingCounts = new int[1024];
+            termCount = 0;
+            bookTerms.clear();
+            touchedDuringRebuild = new HashSet<>();
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Adds a book read by a rebuild unless it was changed since the rebuild began
+     */
+    public void rebuildEntry(int bookId, String title, String authors, String publisher, String description, String isbn) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringRebuild != null && touchedDuringRebuild.contains(bookId)) return;
+            put(bookId, title, authors, publisher, description, isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Marks the rebuild as complete, searches use the index from now on
+     */
+    public void finishRebuild() {
+        lock.writeLock().lock();
+        try {
+            touchedDuringRebuild = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Returns true once the index has been built and can answer searches
+     */
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bookTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Returns the best matching books, highest score first
+     */
+    @Override
+    public List<SearchHit> search(String query, int limit) {
+        List<String> tokens = Tokenizer.queryTokens(query);
+        if (tokens.isEmpty() || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            // expand every token first so the rarest one can seed the candidates
+            List<Map<Integer, Float>> expansions = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                Map<Integer, Float> terms = expand(tokens.get(i), i == tokens.size() - 1);
+                if (terms.isEmpty()) return List.of();
+                expansions.add(terms);
+            }
+            expansions.sort(Comparator.comparingLong(this::postingTotal));
+
+            ScoreMap scores = null;
+            for (Map<Integer, Float> terms : expansions) {
+                ScoreMap tokenScores = new ScoreMap(scores == null ? (int) Math.min(postingTotal(terms), 1 << 20) : scores.size());
+                for (Map.Entry<Integer, Float> term : terms.entrySet()) {
+                    int termId = term.getKey();
+                    float weight = term.getValue() * idf(termId);
+                    int[] list = postings[termId];
+                    for (int p = 0, n = postingCounts[termId]; p < n; p++) {
+                        int bookId = list[p] >>> FIELD_BITS;
+                        if (scores != null && !scores.contains(bookId)) continue;
+                        tokenScores.max(bookId, weight * fieldWeight(list[p] & FIELD_MASK));
+                    }
+                }
+                if (scores != null) tokenScores.addAll(scores);
+                scores = tokenScores;
+                if (scores.size() == 0) return List.of();
+            }
+            return top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Helper Methods, called with the write lock held
+     */
+
+    private void put(int bookId, String title, String authors, String publisher, String description, String isbn) {
+        removeBook(bookId);
+        Map<String, Integer> masks = new LinkedHashMap<>();
+        addField(masks, Tokenizer.tokens(title), TITLE);
+        addField(masks, Tokenizer.tokens(authors), AUTHORS);
+        addField(masks, Tokenizer.tokens(publisher), PUBLISHER);
+        addField(masks, Tokenizer.tokens(description), DESCRIPTION);
+        String isbnToken = Tokenizer.isbnToken(isbn);
+        if (isbnToken != null) masks.merge(isbnToken, ISBN, (a, b) -> a | b);
+
+        int[] terms = new int[masks.size()];
+        int t = 0;
+        for (Map.Entry<String, Integer> entry : masks.entrySet()) {
+            int termId = termId(entry.getKey());
+            insertPosting(termId, (bookId << FIELD_BITS) | entry.getValue());
+            terms[t++] = termId;
+        }
+        bookTerms.put(bookId, terms);
+    }
+
+    private static void addField(Map<String, Integer> masks, List<String> tokens, int field) {
+        for (String token : tokens) {
+            masks.merge(token, field, (a, b) -> a | b);
+        }
+    }
+
+    private void removeBook(int bookId) {
+        int[] terms = bookTerms.remove(bookId);
+        if (terms == null) return;
+        for (int termId : terms) {
+            int index = findPosting(termId, bookId);
+            if (index < 0) continue;
+            int[] list = postings[termId];
+            System.arraycopy(list, index + 1, list, index, postingCounts[termId] - index - 1);
+            postingCounts[termId]--;
+        }
+    }
+
+    private int termId(String term) {
+        Integer id = termIds.get(term);
+        if (id != null) return id;
+        if (termCount == postings.length) {
+            postings = Arrays.copyOf(postings, termCount * 2);
+            postingCounts = Arrays.copyOf(postingCounts, termCount * 2);
+        }
+        postings[termCount] = new int[2];
+        termIds.put(term, termCount);
+        return termCount++;
+    }
+
+    // keeps the list sorted by book ID, new books usually have the highest ID so this is an append
+    private void insertPosting(int termId, int posting) {
+        int[] list = postings[termId];
+        int count = postingCounts[termId];
+        if (count == list.length) {
+            list = postings[termId] = Arrays.copyOf(list, count + (count >> 1) + 2);
+        }
+        int bookId = posting >>> FIELD_BITS;
+        int index = count;
+        if (count > 0 && (list[count - 1] >>> FIELD_BITS) > bookId) {
+            index = -findPosting(termId, bookId) - 1;
+            System.arraycopy(list, index, list, index + 1, count - index);
+        }
+        list[index] = posting;
+        postingCounts[termId] = count + 1;
+    }
+
+    // binary search by book ID, returns -(insertion point) - 1 when absent
+    private int findPosting(int termId, int bookId) {
+        int[] list = postings[termId];
+        int low = 0;
+        int high = postingCounts[termId] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = list[mid] >>> FIELD_BITS;
+            if (midId < bookId) low = mid + 1;
+            else if (midId > bookId) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    /*
+     * Helper Methods for searching, called with the read lock held
+     */
+
+    // matching term IDs of one query token with the factor their score is multiplied by
+    private Map<Integer, Float> expand(String token, boolean prefix) {
+        Map<Integer, Float> terms = new HashMap<>();
+        Integer exact = termIds.get(token);
+        if (exact != null && postingCounts[exact] > 0) terms.put(exact, 1f);
+
+        if (prefix) {
+            List<Map.Entry<String, Integer>> completions = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : termIds.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                if (postingCounts[entry.getValue()] > 0) completions.add(entry);
+            }
+            keepMostFrequent(completions, MAX_PREFIX_TERMS);
+            for (Map.Entry<String, Integer> entry : completions) {
+                // closer completions rank higher, "hobbit" for "hobb" before "hobbyist"
+                float closeness = (float) token.length() / entry.getKey().length();
+                terms.putIfAbsent(entry.getValue(), 0.5f + 0.4f * closeness);
+            }
+        }
+
+        if (terms.isEmpty() && token.length() >= MIN_FUZZY_LENGTH) {
+            int maxEdits = token.length() >= 8 ? 2 : 1;
+            List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+            // assumes the first letter is typed correctly, which keeps the scan to one slice of the dictionary
+            String first = token.substring(0, 1);
+            NavigableMap<String, Integer> slice = termIds.subMap(first, true, first + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Integer> entry : slice.entrySet()) {
+                String term = entry.getKey();
+                if (Math.abs(term.length() - token.length()) > maxEdits || postingCounts[entry.getValue()] == 0) continue;
+                if (editDistance(token, term, maxEdits) <= maxEdits) candidates.add(entry);
+            }
+            keepMostFrequent(candidates, MAX_FUZZY_TERMS);
+            for (Map.Entry<String, Integer> entry : candidates) {
+                terms.put(entry.getValue(), FUZZY_FACTOR);
+            }
+        }
+        return terms;
+    }
+
+    private void keepMostFrequent(List<Map.Entry<String, Integer>> entries, int max) {
+        if (entries.size() <= max) return;
+        entries.sort(Comparator.comparingInt((Map.Entry<String, Integer> e) -> postingCounts[e.getValue()]).reversed());
+        entries.subList(max, entries.size()).clear();
+    }
+
+    private long postingTotal(Map<Integer, Float> terms) {
+        long total = 0;
+        for (int termId : terms.keySet()) total += postingCounts[termId];
+        return total;
+    }
+
+    private float idf(int termId) {
+        return (float) Math.log(1 + (double) bookTerms.size() / Math.max(1, postingCounts[termId]));
+    }
+
+    private static float fieldWeight(int mask) {
+        float weight = 0;
+        for (int field = 0; field < FIELD_BITS; field++) {
+            if ((mask & (1 << field)) != 0) weight += FIELD_WEIGHTS[field];
+        }
+        return weight;
+    }
+
+    private static List<SearchHit> top(ScoreMap scores, int limit) {
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(limit + 1,
+            Comparator.comparingDouble(SearchHit::score).thenComparing(SearchHit::bookId, Comparator.reverseOrder()));
+        scores.forEach((bookId, score) -> {
+            if (best.size() < limit) {
+                best.add(new SearchHit(bookId, score));
+            } else {
+                SearchHit worst = best.peek();
+                if (score > worst.score() || (score == worst.score() && bookId < worst.bookId())) {
+                    best.poll();
+                    best.add(new SearchHit(bookId, score));
+                }
+            }
+        });
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(SearchHit::score).reversed().thenComparingInt(SearchHit::bookId));
+        return hits;
+    }
+
+    // Damerau-Levenshtein (optimal string alignment) distance, gives up once it exceeds max
+    static int editDistance(String a, String b, int max) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, previous2[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > max) return max + 1;
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    /*
+     * Open-addressing map from book ID to score, avoids boxing on large posting lists
+     */
+    private static class ScoreMap {
+        private int[] keys;
+        private float[] values;
+        private boolean[] used;
+        private int size;
+
+        ScoreMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new int[capacity];
+            values = new float[capacity];
+            used = new boolean[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int key) {
+            return used[slot(key)];
+        }
+
+        // keeps the best score of a book for one token
+        void max(int key, float value) {
+            int slot = slot(key);
+            if (used[slot]) {
+                values[slot] = Math.max(values[slot], value);
+                return;
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) grow();
+        }
+
+        // adds the scores of the previous tokens, only for books already present
+        void addAll(ScoreMap other) {
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i]) values[i] += other.values[other.slot(keys[i])];
+            }
+        }
+
+        void forEach(IntFloatConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i]) consumer.accept(keys[i], values[i]);
+            }
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int slot = (key * 0x9E3779B9) >>> 7 & mask;
+            while (used[slot] && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            float[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length * 2];
+            values = new float[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) max(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntFloatConsumer {
+        void accept(int key, float value);
+    }
+}
@@ -0,0 +1,80 @@
+package com.library.library_system.search;
+
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Search backend using PostgreSQL full-text search
+ * Matches the generated book.search_vector column through its GIN index (the last token as a prefix)
+ * and falls back to trigram similarity on title and authors when nothing matches, e.g. for misspellings
+ * The column and indexes are created by SchemaMigrations
+ */
+public class PostgresSearchBackend implements BookSearchBackend {
+
+    private static final String FULL_TEXT_SQL =
+        "SELECT b.book_id, ts_rank(b.search_vector, q.query) AS rank "
+            + "FROM book b, to_tsquery('simple', :query) q(query) "
+            + "WHERE b.search_vector @@ q.query "
+            + "ORDER BY rank DESC, b.book_id LIMIT :limit";
+
+    private static final String TRIGRAM_SQL =
+        "SELECT b.book_id, GREATEST(similarity(b.title, :text), similarity(b.authors, :text)) AS rank "
+            + "FROM book b WHERE b.title % :text OR b.authors % :text "
+            + "ORDER BY rank DESC, b.book_id LIMIT :limit";
+
+    @Override
+    public List<SearchHit> search(String query, int limit) {
+        List<String> tokens = Tokenizer.queryTokens(query);
+        if (tokens.isEmpty() || limit <= 0) return List.of();
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            List<SearchHit> hits = hits(session.createNativeQuery(FULL_TEXT_SQL, Object[].class)
+                .setParameter("query", toTsQuery(tokens))
+                .setParameter("limit", limit)
+                .list());
+            if (!hits.isEmpty()) return hits;
+            return hits(session.createNativeQuery(TRIGRAM_SQL, Object[].class)
+                .setParameter("text", String.join(" ", tokens))
+                .setParameter("limit", limit)
+                .list());
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error searching books for '" + query + "': " + e.getMessage());
+            throw new RuntimeException("Failed to search books", e);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    /*
+     * Builds a tsquery that requires every token, with the last one matched as a prefix
+     * Tokens only contain letters and digits, so they need no quoting
+     */
+    static String toTsQuery(List<String> tokens) {
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) query.append(" & ");
+            query.append(tokens.get(i));
+            if (i == tokens.size() - 1) query.append(":*");
+        }
+        return query.toString();
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private static List<SearchHit> hits(List<Object[]> rows) {
+        List<SearchHit> hits = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            hits.add(new SearchHit(((Number) row[0]).intValue(), ((Number) row[1]).floatValue()));
+        }
+        return hits;
+    }
+}
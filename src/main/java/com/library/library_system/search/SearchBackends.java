@@ -0,0 +1,57 @@
+package com.library.library_system.search;
+
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/*
+ * Utility class for choosing the search backend
+ * Set -Dlibrary.search.backend=postgres to search through the database, the default is the in-memory index
+ * The PostgreSQL backend needs a PostgreSQL database, on any other database the in-memory index is used
+ */
+public class SearchBackends {
+
+    public static final String PROPERTY = "library.search.backend";
+
+    private static volatile BookSearchBackend current;
+
+    private SearchBackends() {}
+
+    /*
+     * Returns the configured backend, chosen on first use
+     */
+    public static BookSearchBackend current() {
+        BookSearchBackend backend = current;
+        if (backend == null) {
+            synchronized (SearchBackends.class) {
+                if (current == null) current = select(System.getProperty(PROPERTY, "memory"));
+                backend = current;
+            }
+        }
+        return backend;
+    }
+
+    /*
+     * Returns true when the in-memory index is in use and has to be built and kept up to date
+     */
+    public static boolean isInMemory() {
+        return current() instanceof BookSearchIndex;
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private static BookSearchBackend select(String name) {
+        if ("postgres".equalsIgnoreCase(name)) {
+            SessionFactoryImplementor factory = (SessionFactoryImplementor) SessionFactoryProvider.getSessionFactory();
+            if (factory.getJdbcServices().getDialect() instanceof PostgreSQLDialect) {
+                return new PostgresSearchBackend();
+            }
+            System.err.println("The postgres search backend needs a PostgreSQL database, using the in-memory index.");
+        } else if (!"memory".equalsIgnoreCase(name)) {
+            System.err.println("Unknown search backend '" + name + "', using the in-memory index.");
+        }
+        return BookSearchIndex.getInstance();
+    }
+}
@@ -0,0 +1,6 @@
+package com.library.library_system.search;
+
+/*
+ * One result of a book search, higher scores rank first
+ */
+public record SearchHit(int bookId, float score) {}
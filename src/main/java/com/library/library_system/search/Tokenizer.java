@@ -0,0 +1,73 @@
+package com.library.library_system.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/*
+ * Tokenizer for the book search index
+ * Lower-cases text, strips accents and splits it on anything that is not a letter or digit
+ */
+public final class Tokenizer {
+
+    // longer tokens are cut, they are almost always noise such as URLs
+    static final int MAX_TOKEN_LENGTH = 40;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // a query word made of ISBN characters, e.g. 978-0-306
+    private static final Pattern ISBN_LIKE = Pattern.compile("[0-9][0-9xX-]{3,}");
+
+    private Tokenizer() {}
+
+    /*
+     * Splits a field value into tokens
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) return tokens;
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty()) tokens.add(cut(token));
+        }
+        return tokens;
+    }
+
+    /*
+     * Returns the single token of an ISBN, without hyphens or spaces
+     */
+    public static String isbnToken(String isbn) {
+        if (isbn == null) return null;
+        String token = isbn.replace("-", "").replace(" ", "").toLowerCase(Locale.ROOT);
+        return token.isEmpty() ? null : cut(token);
+    }
+
+    /*
+     * Splits a query into tokens ... words that look like a hyphenated ISBN stay one token
+     */
+    public static List<String> queryTokens(String query) {
+        List<String> tokens = new ArrayList<>();
+        if (query == null || query.isBlank()) return tokens;
+        for (String word : query.trim().split("\\s+")) {
+            if (ISBN_LIKE.matcher(word).matches()) {
+                tokens.add(isbnToken(word));
+            } else {
+                tokens.addAll(tokens(word));
+            }
+        }
+        return tokens;
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private static String normalize(String text) {
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static String cut(String token) {
+        return token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token;
+    }
+}
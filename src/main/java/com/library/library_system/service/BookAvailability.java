@@ -0,0 +1,16 @@
+package com.library.library_system.service;
+
+/*
+ * Availability of one book, read-only
+ * Read from the counters of the book instead of counting its copies
+ */
+public record BookAvailability(int bookId, int totalCopies, int availableCopies) {
+
+    public boolean isAvailable() {
+        return availableCopies > 0;
+    }
+
+    public String getSummary() {
+        return availableCopies + " of " + totalCopies;
+    }
+}
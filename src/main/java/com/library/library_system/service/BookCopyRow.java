@@ -0,0 +1,29 @@
+package com.library.library_system.service;
+
+import com.library.library_system.model.BookCopy;
+
+import java.util.Date;
+
+/*
+ * One row of the book copy tables, read-only
+ * Carries the displayed columns of the copy and its book instead of the entities, dueDate is set for borrowed copies
+ */
+public record BookCopyRow(int copyId, String barcode, String location, boolean borrowed, int bookId,
+                          String bookTitle, String bookIsbn, Date dueDate) {
+
+    /*
+     * Builds a row for a copy held as an entity, e.g. one just created or scanned
+     */
+    public static BookCopyRow of(BookCopy copy, Date dueDate) {
+        return new BookCopyRow(copy.getCopyId(), copy.getBarcode(), copy.getLocation(), copy.isBorrowed(),
+            copy.getBook().getBookId(), copy.getBook().getTitle(), copy.getBook().getIsbn(), dueDate);
+    }
+
+    public boolean isAvailable() {
+        return !borrowed;
+    }
+
+    public String getStatus() {
+        return borrowed ? "Borrowed" : "Available";
+    }
+}
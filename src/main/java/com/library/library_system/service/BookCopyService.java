@@ -1,13 +1,23 @@
 package com.library.library_system.service;
 
 
+import com.library.library_system.metrics.ServiceMetrics;
 import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.Hold;
 import com.library.library_system.model.Loan;
+import com.library.library_system.util.ProgressListener;
 import com.library.library_system.util.SessionFactoryProvider;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.jpa.SpecHints;
 import org.hibernate.query.Query;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /*
  * Service for the Book Copy Management View
@@ -20,25 +30,45 @@ public class BookCopyService {
      * Creates a new book copy and adds it to the database
      */
     public void createBookCopy(BookCopy copy) {
-        Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-            tx = session.beginTransaction();
-            session.persist(copy);
-            tx.commit();
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.createBookCopy");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                session.persist(copy);
+                session.flush();
+                BookService.adjustCopyCounters(session, List.of(copy.getCopyId()), 1);
+                tx.commit();
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
 
         // handle errors
         } catch (Exception e) {
-            if (tx != null) tx.rollback();
             System.err.println("Error creating book copy: " + e.getMessage());
             throw new RuntimeException("Failed to create book copy", e);
         }
     }
 
+    /*
+     * Creates many book copies using JDBC batching, committing one transaction per chunk
+     * The books the copies belong to must already be persisted
+     */
+    public void createBookCopies(List<BookCopy> copies, ProgressListener progress) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.createBookCopies")) {
+            // the counters of each chunk's books move in the chunk's own transaction
+            BookService.persistInChunks(copies, progress, "book copies", (session, chunk) ->
+                BookService.adjustCopyCounters(session, chunk.stream().map(BookCopy::getCopyId).toList(), 1));
+        }
+    }
+
     /*
      * Retrieves a book copy by its ID
      */
     public BookCopy readBookCopy(int copyId) {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.readBookCopy");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             return session.get(BookCopy.class, copyId);
 
         // handle errors
@@ -48,20 +78,59 @@ public class BookCopyService {
         }
     }
 
+    /*
+     * Retrieves a book copy with its book by barcode, returns null when no copy has the barcode
+     * One lookup on the unique barcode index, the book comes in the same query
+     */
+    public BookCopy findByBarcode(String barcode) {
+        if (barcode == null || barcode.isBlank()) return null;
+        String code = barcode.trim();
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.findByBarcode");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery("SELECT bc FROM BookCopy bc WHERE bc.barcode = :barcode", BookCopy.class)
+                .setParameter("barcode", code)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("BookCopy.book"))
+                .uniqueResult();
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error finding book copy with barcode " + code + ": " + e.getMessage());
+            throw new RuntimeException("Failed to find book copy", e);
+        }
+    }
+
     /*
      * Updates a book copy in the database
      */
     public void updateBookCopy(BookCopy copy) {
-        Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-            tx = session.beginTransaction();
-            session.merge(copy);
-            tx.commit();
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.updateBookCopy");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                // the counters only move when the edit changes the book or the borrowed flag
+                BookCopy current = session.get(BookCopy.class, copy.getCopyId());
+                boolean moved = current != null && (current.isBorrowed() != copy.isBorrowed()
+                    || copy.getBook() == null || current.getBook().getBookId() != copy.getBook().getBookId());
+                if (moved) BookService.adjustCopyCounters(session, List.of(copy.getCopyId()), -1);
+                session.merge(copy);
+                if (moved) {
+                    session.flush();
+                    BookService.adjustCopyCounters(session, List.of(copy.getCopyId()), 1);
+                }
+                tx.commit();
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
 
         // handle errors
         } catch (Exception e) {
-            if (tx != null) tx.rollback();
             System.err.println("Error updating book copy: " + e.getMessage());
+            // the copy was lent, returned or edited since it was read, saving it would undo that change
+            if (ConflictRetry.isConflict(e)) {
+                throw new RuntimeException("The copy was changed at another desk, reload it and try again.", e);
+            }
             throw new RuntimeException("Failed to update book copy", e);
         }
     }
@@ -70,8 +139,8 @@ public class BookCopyService {
      * Deletes a book copy from the database
      */
     public boolean deleteBookCopy(int copyId) {
-        Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.deleteBookCopy");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             BookCopy copy = session.get(BookCopy.class, copyId);
             if (copy == null) return false;
 
@@ -91,14 +160,20 @@ public class BookCopyService {
                 return false;
             }
 
-            tx = session.beginTransaction();
-            session.remove(copy);
-            tx.commit();
+            Transaction tx = session.beginTransaction();
+            try {
+                BookService.adjustCopyCounters(session, List.of(copyId), -1);
+                session.remove(copy);
+                tx.commit();
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
             return true;
 
         // handle errors
         } catch (Exception e) {
-            if (tx != null) tx.rollback();
             System.err.println("Error deleting book copy with ID " + copyId + ": " + e.getMessage());
             throw new RuntimeException("Failed to delete book copy", e);
         }
@@ -108,7 +183,8 @@ public class BookCopyService {
      * Retrieves the availability and due date of a book copy for a loan
      */
     public String fetchAvailabilityAndDueDate(int copyId) {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.fetchAvailabilityAndDueDate");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             BookCopy copy = session.get(BookCopy.class, copyId);
             if (copy == null) return "Copy not found.";
 
@@ -122,10 +198,18 @@ public class BookCopyService {
 
             if (loan != null) {
                 return "Borrowed. Due on: " + loan.getDueDate();
-            } else {
-                return "Borrowed but no active loan found.";
             }
 
+            // returned copies set aside for a hold stay flagged until collected
+            Hold hold = session.createQuery("FROM Hold h WHERE h.copyId = :id AND h.status = :ready", Hold.class)
+                .setParameter("id", copyId)
+                .setParameter("ready", Hold.Status.READY)
+                .uniqueResult();
+            if (hold != null) {
+                return "On hold for student " + hold.getBroncoId() + " until " + hold.getExpiresAt();
+            }
+            return "Borrowed but no active loan found.";
+
         // handle errors
         } catch (Exception e) {
             System.err.println("Error fetching availability for copy ID " + copyId + ": " + e.getMessage());
@@ -133,11 +217,79 @@ public class BookCopyService {
         }
     }
 
+    /*
+     * Retrieves the due date of every active loan keyed by copy ID in a single query
+     */
+    public Map<Integer, Date> getActiveDueDates() {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.getActiveDueDates");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            List<Object[]> rows = session.createQuery(
+                "SELECT bc.copyId, l.dueDate FROM Loan l JOIN l.bookCopies bc WHERE l.returnDate IS NULL",
+                Object[].class).list();
+            return toDueDateMap(rows);
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving active due dates: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve active due dates", e);
+        }
+    }
+
+    /*
+     * Retrieves the due date of the active loan for each of the given copies in a single query
+     */
+    public Map<Integer, Date> getActiveDueDates(Collection<Integer> copyIds) {
+        if (copyIds.isEmpty()) return new HashMap<>();
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.getActiveDueDates(copyIds)");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            List<Object[]> rows = session.createQuery(
+                "SELECT bc.copyId, l.dueDate FROM Loan l JOIN l.bookCopies bc WHERE bc.copyId IN :ids AND l.returnDate IS NULL",
+                Object[].class)
+                .setParameter("ids", copyIds)
+                .list();
+            return toDueDateMap(rows);
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving due dates for copies " + copyIds + ": " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve due dates", e);
+        }
+    }
+
+    /*
+     * Retrieves one page of book copy rows ordered by ID, optionally filtered by barcode, location or book title
+     * Only the displayed columns are selected, with the due date of the active loan of borrowed copies
+     */
+    public Page<BookCopyRow, Integer> getBookCopiesPage(PageRequest<Integer> request, boolean availableOnly) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.getBookCopiesPage");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            String hql = "SELECT new com.library.library_system.service.BookCopyRow("
+                + "bc.copyId, bc.barcode, bc.location, bc.isBorrowed, b.bookId, b.title, b.isbn, "
+                + "(SELECT MAX(l.dueDate) FROM Loan l JOIN l.bookCopies lc WHERE lc.copyId = bc.copyId AND l.returnDate IS NULL)) "
+                + "FROM BookCopy bc JOIN bc.book b WHERE 1 = 1"
+                + request.keysetPredicate("bc.copyId")
+                + (availableOnly ? " AND bc.isBorrowed = false" : "")
+                + (request.hasFilter()
+                    ? " AND (lower(bc.barcode) LIKE :filter ESCAPE '\\' OR lower(bc.location) LIKE :filter ESCAPE '\\'"
+                        + " OR lower(b.title) LIKE :filter ESCAPE '\\')"
+                    : "")
+                + request.orderBy("bc.copyId");
+            List<BookCopyRow> rows = request.bind(session.createQuery(hql, BookCopyRow.class)).list();
+            return Page.of(rows, request.size(), BookCopyRow::copyId);
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving page of book copies: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve book copies", e);
+        }
+    }
+
     /*
      * Retrieves all book copies from the database
      */
     public List<BookCopy> getAllBookCopies() {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.getAllBookCopies");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             return session.createQuery("FROM BookCopy", BookCopy.class).list();
 
         // handle errors
@@ -146,4 +298,31 @@ public class BookCopyService {
             throw new RuntimeException("Failed to retrieve book copies", e);
         }
     }
+
+    /*
+     * Retrieves every barcode in use, used to dedupe imports
+     */
+    public Set<String> getAllBarcodes() {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookCopyService.getAllBarcodes");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return new HashSet<>(session.createQuery(
+                "SELECT bc.barcode FROM BookCopy bc WHERE bc.barcode IS NOT NULL", String.class).list());
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving barcodes: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve barcodes", e);
+        }
+    }
+
+    /*
+     * Helper method to turn (copyId, dueDate) rows into a lookup map
+     */
+    private Map<Integer, Date> toDueDateMap(List<Object[]> rows) {
+        Map<Integer, Date> dueDates = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            dueDates.put((Integer) row[0], (Date) row[1]);
+        }
+        return dueDates;
+    }
 }
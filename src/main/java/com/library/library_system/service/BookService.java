@@ -1,15 +1,31 @@
 package com.library.library_system.service;
 
 
+import com.library.library_system.metrics.ServiceMetrics;
 import com.library.library_system.model.Book;
+import com.library.library_system.model.BookStock;
+import com.library.library_system.search.BookSearchBackend;
+import com.library.library_system.search.BookSearchIndex;
+import com.library.library_system.search.SearchBackends;
+import com.library.library_system.search.SearchHit;
+import com.library.library_system.util.ProgressListener;
 import com.library.library_system.util.SessionFactoryProvider;
 import com.library.library_system.model.Loan;
 import com.library.library_system.model.BookCopy;
+import jakarta.persistence.LockModeType;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
 
 /*
  * Service for the Book Management View
@@ -18,15 +34,25 @@ import java.util.List;
  */
 public class BookService {
 
+    // matches hibernate.jdbc.batch_size so every flush sends full JDBC batches
+    static final int BULK_FLUSH_SIZE = 50;
+    // rows committed per transaction by the bulk operations
+    static final int BULK_CHUNK_SIZE = 5000;
+    // books repaired per transaction by the availability reconciliation
+    static final int RECONCILE_CHUNK_SIZE = 500;
+
     /*
      * Creates a new book and adds it to the database
      */
     public void createBook(Book book) {
         Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.createBook");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             tx = session.beginTransaction();
             session.persist(book);
+            addStockRows(session, List.of(book.getBookId()));
             tx.commit();
+            indexBook(book);
 
         // handle errors
         } catch (Exception e) {
@@ -36,11 +62,29 @@ public class BookService {
         }
     }
 
+    /*
+     * Creates many books using JDBC batching, committing one transaction per chunk
+     * The counters of each chunk are added with one insert
+     */
+    public void createBooks(List<Book> books, ProgressListener progress) {
+        // each committed chunk is indexed straight away, so a later failing chunk leaves the index in step
+        int[] indexed = {0};
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.createBooks")) {
+            persistInChunks(books, (done, total) -> {
+                for (; indexed[0] < done; indexed[0]++) {
+                    indexBook(books.get(indexed[0]));
+                }
+                progress.onProgress(done, total);
+            }, "books", (session, chunk) -> addStockRows(session, chunk.stream().map(Book::getBookId).toList()));
+        }
+    }
+
     /*
      * Retrieves a book by its ID
      */
     public Book readBook(int bookId) {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.readBook");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             return session.get(Book.class, bookId);
 
         // handle errors
@@ -55,10 +99,12 @@ public class BookService {
      */
     public void updateBook(Book book) {
         Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.updateBook");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             tx = session.beginTransaction();
             session.merge(book);
             tx.commit();
+            indexBook(book);
 
         // handle errors
         } catch (Exception e) {
@@ -73,7 +119,8 @@ public class BookService {
      */
     public boolean deleteBook(int bookId) {
         Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.deleteBook");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             Book book = session.get(Book.class, bookId);
             if (book == null) return false;
 
@@ -93,8 +140,16 @@ public class BookService {
             for (BookCopy copy : copies) {
                 session.remove(copy);
             }
+            // no copy is set aside, so the queue only has waiting holds left
+            session.createMutationQuery("DELETE FROM Hold h WHERE h.bookId = :id")
+                .setParameter("id", bookId)
+                .executeUpdate();
+            session.createMutationQuery("DELETE FROM BookStock s WHERE s.bookId = :id")
+                .setParameter("id", bookId)
+                .executeUpdate();
             session.remove(book);
             tx.commit();
+            if (SearchBackends.isInMemory()) BookSearchIndex.getInstance().remove(bookId);
             return true;
 
         // handle errors
@@ -109,7 +164,8 @@ public class BookService {
      * Retrieves all book copies for a book
      */
     public List<BookCopy> listBookCopies(int bookId) {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.listBookCopies");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             Query<BookCopy> query = session.createQuery("FROM BookCopy WHERE book.bookId = :id", BookCopy.class);
             query.setParameter("id", bookId);
             return query.list();
@@ -125,7 +181,8 @@ public class BookService {
      * Retrieves the availability and due date of a book copy
      */
     public String fetchAvailabilityAndDueDate(int copyId) {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.fetchAvailabilityAndDueDate");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             BookCopy copy = session.get(BookCopy.class, copyId);
             if (copy == null) return "Copy not found.";
 
@@ -154,8 +211,8 @@ public class BookService {
      * Deletes a book copy from the database
      */
     public boolean deleteBookCopy(int copyId) {
-        Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.deleteBookCopy");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             BookCopy copy = session.get(BookCopy.class, copyId);
             if (copy == null) return false;
 
@@ -164,25 +221,114 @@ public class BookService {
                 return false;
             }
 
-            tx = session.beginTransaction();
-            session.remove(copy);
-            tx.commit();
+            Transaction tx = session.beginTransaction();
+            try {
+                adjustCopyCounters(session, List.of(copyId), -1);
+                session.remove(copy);
+                tx.commit();
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
             return true;
 
         // handle errors
         } catch (Exception e) {
-            if (tx != null) tx.rollback();
             System.err.println("Error deleting book copy with ID " + copyId + ": " + e.getMessage());
             throw new RuntimeException("Failed to delete book copy", e);
         }
     }
 
+    /*
+     * Retrieves one page of books ordered by ID, optionally filtered by title, authors, publisher or ISBN
+     */
+    public Page<Book, Integer> getBooksPage(PageRequest<Integer> request) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.getBooksPage");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            String hql = "FROM Book b WHERE 1 = 1"
+                + request.keysetPredicate("b.bookId")
+                + (request.hasFilter()
+                    ? " AND (lower(b.title) LIKE :filter ESCAPE '\\' OR lower(b.authors) LIKE :filter ESCAPE '\\'"
+                        + " OR lower(b.publisher) LIKE :filter ESCAPE '\\' OR lower(b.isbn) LIKE :filter ESCAPE '\\')"
+                    : "")
+                + request.orderBy("b.bookId");
+            List<Book> rows = request.bind(session.createQuery(hql, Book.class)).list();
+            return Page.of(rows, request.size(), Book::getBookId);
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving page of books: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve books", e);
+        }
+    }
+
+    /*
+     * Searches title, authors, publisher, description and ISBN, best matches first
+     * Uses the configured search backend once it is ready and a LIKE query on the database until then
+     */
+    public List<Book> searchBooks(String query, int limit) {
+        // timed as a whole, the backend lookup is part of the cost
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.searchBooks")) {
+            BookSearchBackend backend = SearchBackends.current();
+            if (!backend.isReady()) {
+                return getBooksPage(PageRequest.<Integer>first(limit).withFilter(query)).items();
+            }
+            List<Integer> ids = backend.search(query, limit).stream().map(SearchHit::bookId).toList();
+            if (ids.isEmpty()) return List.of();
+            try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+                // multiLoad keeps the ranking order and serves cached books from the second-level cache
+                List<Book> books = new ArrayList<>(session.byMultipleIds(Book.class).multiLoad(ids));
+                books.removeIf(Objects::isNull);
+                return books;
+
+            // handle errors
+            } catch (Exception e) {
+                System.err.println("Error searching books for '" + query + "': " + e.getMessage());
+                throw new RuntimeException("Failed to search books", e);
+            }
+        }
+    }
+
+    /*
+     * Rebuilds the search index from the book table, streaming the indexed columns only
+     * Books created, updated or deleted while the rebuild runs keep their newer index entries
+     */
+    public void rebuildSearchIndex() {
+        BookSearchIndex index = BookSearchIndex.getInstance();
+        index.beginRebuild();
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.rebuildSearchIndex");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            // PostgreSQL only streams through a cursor inside a transaction
+            Transaction tx = session.beginTransaction();
+            try (ScrollableResults<Object[]> rows = session.createQuery(
+                    "SELECT b.bookId, b.title, b.authors, b.publisher, b.description, b.isbn FROM Book b", Object[].class)
+                    .setFetchSize(1000)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    index.rebuildEntry((Integer) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4], (String) row[5]);
+                }
+            }
+            tx.commit();
+            index.finishRebuild();
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error building search index: " + e.getMessage());
+            throw new RuntimeException("Failed to build search index", e);
+        }
+    }
+
     /*
      * Retrieves all books from the database
      */
     public List<Book> getAllBooks() {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-            return session.createQuery("FROM Book", Book.class).list();
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.getAllBooks");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery("FROM Book", Book.class)
+                .setCacheable(true)
+                .list();
 
         // handle errors
         } catch (Exception e) {
@@ -190,4 +336,210 @@ public class BookService {
             throw new RuntimeException("Failed to retrieve books", e);
         }
     }
-}
\ No newline at end of file
+
+    /*
+     * Retrieves the availability of many books in a single query, keyed by book ID
+     * Reads the counters of the books, books that do not exist are left out
+     */
+    public Map<Integer, BookAvailability> getAvailability(Collection<Integer> bookIds) {
+        if (bookIds.isEmpty()) return new HashMap<>();
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.getAvailability");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Map<Integer, BookAvailability> availability = new HashMap<>(bookIds.size() * 2);
+            for (BookAvailability row : session.createQuery(
+                    "SELECT new com.library.library_system.service.BookAvailability(s.bookId, s.totalCopies, s.availableCopies) "
+                        + "FROM BookStock s WHERE s.bookId IN :ids", BookAvailability.class)
+                    .setParameter("ids", bookIds)
+                    .list()) {
+                availability.put(row.bookId(), row);
+            }
+            return availability;
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving availability for books " + bookIds + ": " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve availability", e);
+        }
+    }
+
+    /*
+     * Repairs availability counters that no longer match the copies, returns the number of books repaired
+     * Books without counters get them first, at zero, as when the counters table is added to an existing database
+     * Drifted books are found in one grouped query, then locked and recounted a chunk at a time so running checkouts stay correct
+     */
+    public int reconcileAvailability() {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.reconcileAvailability");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction missing = session.beginTransaction();
+            try {
+                session.createMutationQuery(
+                    "INSERT INTO BookStock (bookId, totalCopies, availableCopies) SELECT b.bookId, 0, 0 FROM Book b "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM BookStock s WHERE s.bookId = b.bookId)")
+                    .executeUpdate();
+                missing.commit();
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(missing, e);
+                throw e;
+            }
+
+            List<Integer> drifted = session.createQuery(
+                "SELECT s.bookId FROM BookStock s LEFT JOIN BookCopy bc ON bc.book.bookId = s.bookId "
+                    + "GROUP BY s.bookId, s.totalCopies, s.availableCopies "
+                    + "HAVING s.totalCopies <> COUNT(bc) "
+                    + "OR s.availableCopies <> SUM(CASE WHEN bc.isBorrowed = false THEN 1 ELSE 0 END) "
+                    + "ORDER BY s.bookId", Integer.class).list();
+
+            int repaired = 0;
+            for (int start = 0; start < drifted.size(); start += RECONCILE_CHUNK_SIZE) {
+                List<Integer> ids = drifted.subList(start, Math.min(start + RECONCILE_CHUNK_SIZE, drifted.size()));
+                Transaction tx = session.beginTransaction();
+                try {
+                    // a checkout holding one of these rows commits before the recount, one that comes later applies its change to the result
+                    session.createQuery("SELECT s FROM BookStock s WHERE s.bookId IN :ids ORDER BY s.bookId", BookStock.class)
+                        .setParameter("ids", ids)
+                        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                        .list();
+                    repaired += session.createMutationQuery(
+                        "UPDATE BookStock s SET "
+                            + "s.totalCopies = (SELECT COUNT(bc) FROM BookCopy bc WHERE bc.book.bookId = s.bookId), "
+                            + "s.availableCopies = (SELECT COUNT(bc) FROM BookCopy bc WHERE bc.book.bookId = s.bookId AND bc.isBorrowed = false) "
+                            + "WHERE s.bookId IN :ids")
+                        .setParameter("ids", ids)
+                        .executeUpdate();
+                    tx.commit();
+                } catch (RuntimeException e) {
+                    // roll back while the session still holds its connection
+                    ConflictRetry.rollback(tx, e);
+                    throw e;
+                }
+                session.clear();
+            }
+            return repaired;
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error reconciling book availability: " + e.getMessage());
+            throw new RuntimeException("Failed to reconcile book availability", e);
+        }
+    }
+
+    /*
+     * Retrieves the ID of every book keyed by its ISBN without hyphens or spaces, used to dedupe imports
+     */
+    public Map<String, Integer> getBookIdsByIsbn() {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("BookService.getBookIdsByIsbn");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Map<String, Integer> ids = new HashMap<>();
+            for (Object[] row : session.createQuery(
+                    "SELECT b.isbn, b.bookId FROM Book b WHERE b.isbn IS NOT NULL ORDER BY b.bookId", Object[].class).list()) {
+                String isbn = CatalogRecordParser.normalizeIsbn((String) row[0]);
+                if (isbn != null) ids.putIfAbsent(isbn, (Integer) row[1]);
+            }
+            return ids;
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving book ISBNs: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve book ISBNs", e);
+        }
+    }
+
+    /*
+     * Helper method to keep the search index in step with committed changes
+     */
+    private static void indexBook(Book book) {
+        // the PostgreSQL backend maintains its generated column itself
+        if (!SearchBackends.isInMemory()) return;
+        BookSearchIndex.getInstance().index(book.getBookId(), book.getTitle(), book.getAuthors(),
+            book.getPublisher(), book.getDescription(), book.getIsbn());
+    }
+
+    /*
+     * Helper method to give new books their counters, at zero, in the caller's transaction after the books are flushed
+     */
+    private static void addStockRows(Session session, Collection<Integer> bookIds) {
+        session.createMutationQuery(
+            "INSERT INTO BookStock (bookId, totalCopies, availableCopies) SELECT b.bookId, 0, 0 FROM Book b WHERE b.bookId IN :ids")
+            .setParameter("ids", bookIds)
+            .executeUpdate();
+    }
+
+    /*
+     * Helper method to add each given copy to the counters of its book (sign 1) or take it away (sign -1)
+     * Runs in the caller's transaction, after a new copy is flushed or before a copy is removed
+     * Shared with BookCopyService
+     */
+    static void adjustCopyCounters(Session session, Collection<Integer> copyIds, int sign) {
+        if (copyIds.isEmpty()) return;
+        session.createMutationQuery(
+            "UPDATE BookStock s SET "
+                + "s.totalCopies = s.totalCopies + :sign * (SELECT COUNT(bc) FROM BookCopy bc WHERE bc.book.bookId = s.bookId AND bc.copyId IN :ids), "
+                + "s.availableCopies = s.availableCopies + :sign * (SELECT COUNT(bc) FROM BookCopy bc "
+                + "WHERE bc.book.bookId = s.bookId AND bc.copyId IN :ids AND bc.isBorrowed = false) "
+                + "WHERE s.bookId IN (SELECT bc.book.bookId FROM BookCopy bc WHERE bc.copyId IN :ids)")
+            .setParameter("sign", sign)
+            .setParameter("ids", copyIds)
+            .executeUpdate();
+    }
+
+    /*
+     * Helper method to move the available counters of the books owning the given copies when they are lent (-1) or returned (1)
+     * Runs in the caller's transaction, together with the change of the borrowed flags
+     * Shared with LoanService
+     */
+    static void adjustAvailableCounters(Session session, Collection<Integer> copyIds, int delta) {
+        if (copyIds.isEmpty()) return;
+        session.createMutationQuery(
+            "UPDATE BookStock s SET s.availableCopies = s.availableCopies + :delta * "
+                + "(SELECT COUNT(bc) FROM BookCopy bc WHERE bc.book.bookId = s.bookId AND bc.copyId IN :ids) "
+                + "WHERE s.bookId IN (SELECT bc.book.bookId FROM BookCopy bc WHERE bc.copyId IN :ids)")
+            .setParameter("delta", delta)
+            .setParameter("ids", copyIds)
+            .executeUpdate();
+    }
+
+    /*
+     * Helper method for the bulk inserts ... flushes and clears the session every batch so memory stays flat
+     * Shared with BookCopyService
+     */
+    static void persistInChunks(List<?> entities, ProgressListener progress, String label) {
+        persistInChunks(entities, progress, label, (session, chunk) -> {});
+    }
+
+    /*
+     * Helper method for the bulk inserts, beforeCommit runs on each flushed chunk inside its transaction
+     */
+    static <T> void persistInChunks(List<T> entities, ProgressListener progress, String label,
+                                    BiConsumer<Session, List<T>> beforeCommit) {
+        int total = entities.size();
+        for (int chunkStart = 0; chunkStart < total; chunkStart += BULK_CHUNK_SIZE) {
+            int chunkEnd = Math.min(chunkStart + BULK_CHUNK_SIZE, total);
+            try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+                Transaction tx = session.beginTransaction();
+                try {
+                    for (int i = chunkStart; i < chunkEnd; i++) {
+                        session.persist(entities.get(i));
+                        if ((i - chunkStart + 1) % BULK_FLUSH_SIZE == 0) {
+                            session.flush();
+                            session.clear();
+                        }
+                    }
+                    session.flush();
+                    beforeCommit.accept(session, entities.subList(chunkStart, chunkEnd));
+                    tx.commit();
+                } catch (RuntimeException e) {
+                    // roll back while the session still holds its connection
+                    ConflictRetry.rollback(tx, e);
+                    throw e;
+                }
+
+            // handle errors
+            } catch (Exception e) {
+                System.err.println("Error creating " + label + " " + chunkStart + "-" + chunkEnd + ": " + e.getMessage());
+                throw new RuntimeException("Failed to create " + label, e);
+            }
+            progress.onProgress(chunkEnd, total);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.library.library_system.service;
+
+import com.library.library_system.metrics.ServiceMetrics;
+import com.library.library_system.model.Book;
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.service.CatalogRecordParser.Format;
+import com.library.library_system.service.CatalogRecordParser.ParsedRow;
+import com.library.library_system.service.ImportReport.RejectedRow;
+import com.library.library_system.util.ProgressListener;
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.Session;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * Service for importing catalog dumps
+ * Streams a CSV or JSON Lines file (optionally gzipped), parses and validates records on parallel workers
+ * and writes books and copies through the batched bulk inserts
+ * Books are deduplicated on ISBN and copies on barcode, against the database and within the file
+ */
+public class CatalogImportService {
+
+    // records handed to a worker at a time
+    private static final int PARSE_BATCH_SIZE = 1000;
+    private static final int PARSE_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    // parsed batches waiting for the writer, bounds memory when the database is the bottleneck
+    private static final int MAX_BATCHES_IN_FLIGHT = PARSE_WORKERS * 2;
+    // rejected rows kept in the report, the rejects file has all of them
+    private static final int SAMPLE_REJECTS = 100;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final BookService bookService = new BookService();
+    private final BookCopyService bookCopyService = new BookCopyService();
+
+    // error is set when the record is rejected before parsing
+    private record RawRecord(long line, String text, String error) {}
+
+    /*
+     * Imports a catalog file, optionally writing every rejected row to rejectsFile
+     * Progress is reported in bytes of the source file after each committed chunk
+     * Chunks committed before a database failure stay committed
+     */
+    public ImportReport importCatalog(Path source, Path rejectsFile, ProgressListener progress) {
+        ExecutorService workers = Executors.newFixedThreadPool(PARSE_WORKERS, parseThreads());
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("CatalogImportService.importCatalog");
+             FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+             BufferedReader reader = openReader(source, channel);
+             RejectLog rejects = new RejectLog(rejectsFile)) {
+            CatalogWriter writer = new CatalogWriter(rejects, () -> progress.onProgress(position(channel), size(channel)));
+
+            Format format = Format.of(source);
+            RecordReader records = new RecordReader(reader, format);
+            CatalogRecordParser parser = new CatalogRecordParser(format, format == Format.CSV ? records.readLine() : null);
+            records.maxLength = parser.maxRecordLength();
+
+            // batches are parsed in parallel but written in file order, so the first occurrence of an ISBN or barcode wins
+            Deque<Future<List<ParsedRow>>> inFlight = new ArrayDeque<>();
+            long recordsRead = 0;
+            List<RawRecord> batch = new ArrayList<>(PARSE_BATCH_SIZE);
+            RawRecord record;
+            while ((record = records.next()) != null) {
+                batch.add(record);
+                recordsRead++;
+                if (batch.size() == PARSE_BATCH_SIZE) {
+                    inFlight.add(workers.submit(parseTask(parser, batch)));
+                    batch = new ArrayList<>(PARSE_BATCH_SIZE);
+                    if (inFlight.size() >= MAX_BATCHES_IN_FLIGHT) writer.write(inFlight.poll().get());
+                }
+            }
+            if (!batch.isEmpty()) inFlight.add(workers.submit(parseTask(parser, batch)));
+            while (!inFlight.isEmpty()) {
+                writer.write(inFlight.poll().get());
+            }
+            writer.flush();
+
+            return new ImportReport(recordsRead, writer.booksCreated, writer.copiesCreated,
+                rejects.count, List.copyOf(rejects.sample), rejectsFile);
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error importing catalog " + source + ": " + e.getMessage());
+            throw new RuntimeException("Failed to import catalog: " + e.getMessage(), e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private static BufferedReader openReader(Path source, FileChannel channel) throws IOException {
+        if (source.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Channels.newInputStream(channel), READ_BUFFER_SIZE), StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+        }
+        // malformed bytes become U+FFFD instead of aborting the whole import
+        return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE), READ_BUFFER_SIZE), READ_BUFFER_SIZE);
+    }
+
+    private static Callable<List<ParsedRow>> parseTask(CatalogRecordParser parser, List<RawRecord> batch) {
+        return () -> {
+            List<ParsedRow> rows = new ArrayList<>(batch.size());
+            for (RawRecord record : batch) {
+                rows.add(record.error() != null
+                    ? ParsedRow.rejected(record.line(), record.text(), record.error())
+                    : parser.parse(record.line(), record.text()));
+            }
+            return rows;
+        };
+    }
+
+    private static long position(FileChannel channel) {
+        try {
+            return channel.position();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long size(FileChannel channel) {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static ThreadFactory parseThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "catalog-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /*
+     * Reads the non-blank records of a catalog file, joining CSV lines while a quoted field is open
+     * A quoted field still open past the longest possible record or at the end of the file is rejected on the line it
+     * started, and reading resumes on the line after it, so a stray quote costs one row instead of the rest of the file
+     */
+    private static class RecordReader {
+        private final BufferedReader reader;
+        private final Format format;
+        // lines read ahead for a rejected record, read again as records of their own
+        private final Deque<String> readAhead = new ArrayDeque<>();
+        private long lineNumber;
+        int maxLength = Integer.MAX_VALUE;
+
+        RecordReader(BufferedReader reader, Format format) {
+            this.reader = reader;
+            this.format = format;
+        }
+
+        String readLine() throws IOException {
+            String line = readAhead.isEmpty() ? reader.readLine() : readAhead.poll();
+            if (line != null) lineNumber++;
+            return line;
+        }
+
+        RawRecord next() throws IOException {
+            String line;
+            do {
+                line = readLine();
+                if (line == null) return null;
+            } while (line.isBlank());
+            long start = lineNumber;
+            if (format != Format.CSV || !CatalogRecordParser.hasOpenQuote(line)) {
+                return new RawRecord(start, line, null);
+            }
+
+            // the quote state flips on every line with an odd number of quotes, earlier lines are not scanned again
+            List<String> lines = new ArrayList<>();
+            lines.add(line);
+            long length = line.length();
+            boolean open = true;
+            String next;
+            while (open && length <= maxLength && (next = readLine()) != null) {
+                lines.add(next);
+                length += 1 + next.length();
+                open = open != CatalogRecordParser.hasOpenQuote(next);
+            }
+            if (open) {
+                for (int i = lines.size() - 1; i > 0; i--) {
+                    readAhead.addFirst(lines.get(i));
+                }
+                lineNumber = start;
+                return new RawRecord(start, line, length > maxLength
+                    ? "Quoted field not closed within " + maxLength + " characters" : "Unterminated quoted field");
+            }
+            return new RawRecord(start, String.join("\n", lines), null);
+        }
+    }
+
+    /*
+     * Dedupes parsed rows and writes them in chunks through the bulk inserts
+     * Runs on the importing thread only
+     */
+    private class CatalogWriter {
+        private final RejectLog rejects;
+        private final Runnable onChunk;
+        // ISBNs and barcodes already in the database or written by this import
+        private final Map<String, Integer> bookIds = bookService.getBookIdsByIsbn();
+        private final Set<String> barcodes = bookCopyService.getAllBarcodes();
+
+        private final Map<String, Book> pendingBooks = new LinkedHashMap<>();
+        private final List<BookCopy> pendingCopies = new ArrayList<>();
+        // new copies of books that were already in the database, by book ID
+        private final Map<BookCopy, Integer> pendingExistingBookIds = new IdentityHashMap<>();
+        int booksCreated;
+        int copiesCreated;
+
+        CatalogWriter(RejectLog rejects, Runnable onChunk) {
+            this.rejects = rejects;
+            this.onChunk = onChunk;
+        }
+
+        void write(List<ParsedRow> rows) throws IOException {
+            for (ParsedRow row : rows) {
+                write(row);
+            }
+        }
+
+        private void write(ParsedRow row) throws IOException {
+            if (row.isRejected()) {
+                rejects.add(row.line(), row.error(), row.record());
+                return;
+            }
+            String isbn = row.book().getIsbn();
+            String barcode = row.barcode();
+            Book book = pendingBooks.get(isbn);
+            Integer existingId = book == null ? bookIds.get(isbn) : null;
+            boolean knownIsbn = book != null || existingId != null;
+            if (knownIsbn && barcode == null) {
+                rejects.add(row.line(), "Duplicate ISBN " + isbn, row.record());
+                return;
+            }
+            if (barcode != null && !barcodes.add(barcode)) {
+                rejects.add(row.line(), "Duplicate barcode " + barcode, row.record());
+                return;
+            }
+            if (existingId == null && book == null) {
+                book = row.book();
+                pendingBooks.put(isbn, book);
+            }
+            if (barcode != null) {
+                BookCopy copy = new BookCopy();
+                copy.setBook(book);
+                copy.setBarcode(barcode);
+                copy.setLocation(row.location());
+                pendingCopies.add(copy);
+                if (existingId != null) pendingExistingBookIds.put(copy, existingId);
+            }
+            if (pendingBooks.size() + pendingCopies.size() >= BookService.BULK_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        // books go first so the copies of new books can reference their generated IDs
+        void flush() {
+            if (pendingBooks.isEmpty() && pendingCopies.isEmpty()) return;
+            List<Book> books = new ArrayList<>(pendingBooks.values());
+            bookService.createBooks(books, ProgressListener.NONE);
+            for (Book book : books) {
+                bookIds.put(book.getIsbn(), book.getBookId());
+            }
+            // copies of existing books point at references instead of loading the rows
+            if (!pendingExistingBookIds.isEmpty()) {
+                try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+                    pendingExistingBookIds.forEach((copy, bookId) -> copy.setBook(session.getReference(Book.class, bookId)));
+                }
+            }
+            bookCopyService.createBookCopies(pendingCopies, ProgressListener.NONE);
+            booksCreated += books.size();
+            copiesCreated += pendingCopies.size();
+            pendingBooks.clear();
+            pendingCopies.clear();
+            pendingExistingBookIds.clear();
+            onChunk.run();
+        }
+    }
+
+    /*
+     * Collects rejected rows, streaming them to the rejects file as CSV
+     */
+    private static class RejectLog implements Closeable {
+        private final BufferedWriter out;
+        private final List<RejectedRow> sample = new ArrayList<>();
+        long count;
+
+        RejectLog(Path rejectsFile) throws IOException {
+            out = rejectsFile == null ? null : Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8);
+            if (out != null) {
+                out.write("line,reason,record");
+                out.newLine();
+            }
+        }
+
+        void add(long line, String reason, String record) throws IOException {
+            count++;
+            if (sample.size() < SAMPLE_REJECTS) sample.add(new RejectedRow(line, reason, record));
+            if (out != null) {
+                out.write(line + "," + quote(reason) + "," + quote(record));
+                out.newLine();
+            }
+        }
+
+        private static String quote(String value) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) out.close();
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.library.library_system.service;
+
+import com.library.library_system.model.Book;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Parser for the catalog import
+ * Turns one CSV or JSON Lines record into a validated Book plus an optional copy barcode and location
+ * Instances hold no mutable state, so one parser is shared by all import workers
+ */
+class CatalogRecordParser {
+
+    // default length of the mapped VARCHAR columns, longer values would fail the whole batch
+    static final int MAX_FIELD_LENGTH = 255;
+
+    enum Format {
+        CSV, JSONL;
+
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    /*
+     * One parsed record ... either a valid book row or the reason it was rejected
+     */
+    record ParsedRow(long line, String record, Book book, String barcode, String location, String error) {
+
+        static ParsedRow rejected(long line, String record, String error) {
+            return new ParsedRow(line, record, null, null, null, error);
+        }
+
+        boolean isRejected() {
+            return error != null;
+        }
+    }
+
+    private final Format format;
+    private final char delimiter;
+    // CSV column index by canonical field name
+    private final Map<String, Integer> columns = new HashMap<>();
+    // longest CSV record read before a quoted field still open is given up on
+    private final int maxRecordLength;
+
+    /*
+     * Creates a parser for a file ... CSV files need their header line, JSON Lines files do not
+     */
+    CatalogRecordParser(Format format, String headerLine) {
+        this.format = format;
+        if (format == Format.CSV) {
+            if (headerLine == null) throw new IllegalArgumentException("The CSV file is empty.");
+            this.delimiter = headerLine.indexOf('\t') >= 0 && headerLine.indexOf(',') < 0 ? '\t' : ',';
+            List<String> header = splitCsv(stripBom(headerLine), delimiter);
+            for (int i = 0; i < header.size(); i++) {
+                columns.putIfAbsent(canonicalName(header.get(i)), i);
+            }
+            if (!columns.containsKey("isbn") || !columns.containsKey("title")) {
+                throw new IllegalArgumentException("The CSV header must contain isbn and title columns.");
+            }
+            // every column at the longest accepted value with all of its characters quoted, with room to spare
+            this.maxRecordLength = header.size() * MAX_FIELD_LENGTH * 4;
+        } else {
+            this.delimiter = ',';
+            this.maxRecordLength = Integer.MAX_VALUE;
+        }
+    }
+
+    int maxRecordLength() {
+        return maxRecordLength;
+    }
+
+    /*
+     * Parses and validates one record, never throws for bad input
+     */
+    ParsedRow parse(long line, String record) {
+        Map<String, String> fields;
+        try {
+            fields = format == Format.CSV ? csvFields(record) : jsonFields(record);
+        } catch (IllegalArgumentException e) {
+            return ParsedRow.rejected(line, record, e.getMessage());
+        }
+
+        String isbn = normalizeIsbn(fields.get("isbn"));
+        if (isbn == null) return ParsedRow.rejected(line, record, "Missing ISBN");
+        if (!isValidIsbn(isbn)) return ParsedRow.rejected(line, record, "Invalid ISBN " + fields.get("isbn"));
+        String title = fields.get("title");
+        if (title == null) return ParsedRow.rejected(line, record, "Missing title");
+
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (field.getValue() != null && field.getValue().length() > MAX_FIELD_LENGTH) {
+                return ParsedRow.rejected(line, record, field.getKey() + " is longer than " + MAX_FIELD_LENGTH + " characters");
+            }
+        }
+
+        Book book = new Book();
+        book.setIsbn(isbn);
+        book.setTitle(title);
+        book.setAuthors(fields.get("authors"));
+        book.setPublisher(fields.get("publisher"));
+        book.setDescription(fields.get("description"));
+        String pages = fields.get("numberofpages");
+        if (pages != null) {
+            try {
+                int numberOfPages = Integer.parseInt(pages);
+                if (numberOfPages < 0) throw new NumberFormatException();
+                book.setNumberOfPages(numberOfPages);
+            } catch (NumberFormatException e) {
+                return ParsedRow.rejected(line, record, "Invalid number of pages " + pages);
+            }
+        }
+        String published = fields.get("publicationdate");
+        if (published != null) {
+            try {
+                LocalDate date = published.length() == 4
+                    ? LocalDate.of(Integer.parseInt(published), 1, 1)
+                    : LocalDate.parse(published);
+                book.setPublicationDate(java.sql.Date.valueOf(date));
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return ParsedRow.rejected(line, record, "Invalid publication date " + published);
+            }
+        }
+        return new ParsedRow(line, record, book, fields.get("barcode"), fields.get("location"), null);
+    }
+
+    /*
+     * Strips hyphens and spaces, returns null for a blank ISBN
+     */
+    static String normalizeIsbn(String isbn) {
+        if (isbn == null) return null;
+        String normalized = isbn.replace("-", "").replace(" ", "").toUpperCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /*
+     * Checks the length and check digit of a normalized ISBN-10 or ISBN-13
+     */
+    static boolean isValidIsbn(String isbn) {
+        if (isbn.length() == 10) {
+            int sum = 0;
+            for (int i = 0; i < 10; i++) {
+                char c = isbn.charAt(i);
+                int digit;
+                if (c >= '0' && c <= '9') digit = c - '0';
+                else if (c == 'X' && i == 9) digit = 10;
+                else return false;
+                sum += digit * (10 - i);
+            }
+            return sum % 11 == 0;
+        }
+        if (isbn.length() == 13) {
+            int sum = 0;
+            for (int i = 0; i < 13; i++) {
+                char c = isbn.charAt(i);
+                if (c < '0' || c > '9') return false;
+                sum += (c - '0') * (i % 2 == 0 ? 1 : 3);
+            }
+            return sum % 10 == 0;
+        }
+        return false;
+    }
+
+    /*
+     * Splits one CSV record, honouring quoted fields with doubled quotes and embedded line breaks
+     */
+    static List<String> splitCsv(String record, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unterminated quoted field");
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /*
+     * Returns true while a CSV record has an open quoted field, i.e. its next physical line belongs to it
+     * For a single line, true when the line opens or closes a quoted field, so the state can be kept line by line
+     */
+    static boolean hasOpenQuote(CharSequence record) {
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"') quoted = !quoted;
+        }
+        return quoted;
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private Map<String, String> csvFields(String record) {
+        List<String> values = splitCsv(record, delimiter);
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> column : columns.entrySet()) {
+            int index = column.getValue();
+            fields.put(column.getKey(), index < values.size() ? blankToNull(values.get(index)) : null);
+        }
+        return fields;
+    }
+
+    // reads one flat JSON object, nested objects and arrays are rejected
+    private static Map<String, String> jsonFields(String record) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        JsonCursor cursor = new JsonCursor(record);
+        cursor.expect('{');
+        if (!cursor.consume('}')) {
+            do {
+                String key = cursor.readString();
+                cursor.expect(':');
+                fields.putIfAbsent(canonicalName(key), blankToNull(cursor.readScalar()));
+            } while (cursor.consume(','));
+            cursor.expect('}');
+        }
+        cursor.expectEnd();
+        return fields;
+    }
+
+    // maps header and key spellings such as "Number of Pages" or "publication_date" onto the Book fields
+    private static String canonicalName(String name) {
+        String key = name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+        return switch (key) {
+            case "author" -> "authors";
+            case "pages" -> "numberofpages";
+            case "published", "pubdate", "publicationyear" -> "publicationdate";
+            default -> key;
+        };
+    }
+
+    private static String blankToNull(String value) {
+        if (value == null) return null;
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String stripBom(String line) {
+        return !line.isEmpty() && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    // minimal reader for one line of flat JSON
+    private static class JsonCursor {
+        private final String text;
+        private int pos;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) throw new IllegalArgumentException("Malformed JSON, expected '" + c + "' at column " + (pos + 1));
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (pos != text.length()) throw new IllegalArgumentException("Malformed JSON, trailing characters at column " + (pos + 1));
+        }
+
+        String readScalar() {
+            skipWhitespace();
+            if (pos >= text.length()) throw new IllegalArgumentException("Malformed JSON, missing value");
+            char c = text.charAt(pos);
+            if (c == '"') return readString();
+            if (c == '{' || c == '[') throw new IllegalArgumentException("Nested JSON values are not supported");
+            int start = pos;
+            while (pos < text.length() && ",} \t".indexOf(text.charAt(pos)) < 0) pos++;
+            String literal = text.substring(start, pos);
+            return literal.equals("null") ? null : literal;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) break;
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 't' -> value.append('\t');
+                    case 'r' -> value.append('\r');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) throw new IllegalArgumentException("Malformed JSON escape");
+                        value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+            throw new IllegalArgumentException("Malformed JSON, unterminated string");
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.library.library_system.service;
+
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.hibernate.StaleStateException;
+import org.hibernate.Transaction;
+import org.hibernate.exception.LockAcquisitionException;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/*
+ * Helper for retrying write transactions that lost a race with another desk
+ * Deadlocks, lock timeouts, serialization failures and stale versions are retried with jittered exponential backoff,
+ * any other failure (including rule violations such as a copy that is already borrowed) is thrown straight away
+ */
+final class ConflictRetry {
+
+    static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_DELAY_MILLIS = 5;
+    private static final long MAX_DELAY_MILLIS = 200;
+
+    private ConflictRetry() {}
+
+    /*
+     * Runs one transaction, retrying it on conflicts ... the action must open its own session each time
+     */
+    static <T> T run(Supplier<T> transaction) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.get();
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS || !isConflict(e)) throw e;
+                backOff(attempt);
+            }
+        }
+    }
+
+    /*
+     * Returns true when a failure anywhere in the cause chain means a concurrent transaction got there first
+     */
+    static boolean isConflict(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException
+                    || cause instanceof PessimisticLockException || cause instanceof LockTimeoutException
+                    || cause instanceof LockAcquisitionException
+                    || cause instanceof org.hibernate.PessimisticLockException) {
+                return true;
+            }
+            // serialization failure and deadlock on PostgreSQL, lock timeout on H2
+            if (cause instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().equals("40001") || sql.getSQLState().equals("40P01") || sql.getSQLState().equals("HYT00"))) {
+                return true;
+            }
+            if (cause.getCause() == cause) break;
+        }
+        return false;
+    }
+
+    /*
+     * Rolls back the transaction of a failed attempt without losing the failure
+     * A rollback that fails as well, e.g. on a connection the pool closed after the error, is attached to the failure
+     * as suppressed, so the caller still throws the original one and a conflict is still seen as a conflict
+     */
+    static void rollback(Transaction tx, RuntimeException failure) {
+        if (!tx.getStatus().canRollback()) return;
+        try {
+            tx.rollback();
+        } catch (RuntimeException rollbackFailure) {
+            failure.addSuppressed(rollbackFailure);
+        }
+    }
+
+    private static void backOff(int attempt) {
+        long delay = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << attempt);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(delay / 2, delay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a conflicting transaction", e);
+        }
+    }
+}
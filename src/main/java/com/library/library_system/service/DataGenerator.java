@@ -0,0 +1,621 @@
+package com.library.library_system.service;
+
+import com.library.library_system.util.ProgressListener;
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Synthetic data generator for load tests and benchmarks
+ * Writes students, books, copies and loans straight into the mapped tables with batched JDBC, bypassing the entities
+ * Rows are produced in fixed-size chunks, each with its own random stream derived from the seed, so the output only
+ * depends on the spec and chunks can be written by any number of threads, one transaction per chunk
+ *
+ * Title popularity follows a Zipf distribution: popular titles get more copies and most of the loans
+ * Open loans never share a copy and never push a student past 5 copies, so the data passes the checkout rules
+ * New rows get IDs above the existing ones, run it against a database the application is not writing to
+ */
+public class DataGenerator {
+
+    // rows per task and per transaction
+    private static final int CHUNK_SIZE = 10_000;
+    // rows per JDBC batch
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_COPIES_PER_STUDENT = 5;
+    private static final int LOAN_DAYS = 14;
+    // returned loans are spread over the two years before asOf
+    private static final int HISTORY_DAYS = 730;
+
+    private static final String INSERT_STUDENT =
+        "INSERT INTO student (bronco_id, name, address, degree) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_BOOK =
+        "INSERT INTO book (book_id, isbn, title, authors, publisher, numberOfPages, publicationDate, description)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_STOCK =
+        "INSERT INTO book_stock (book_id, totalCopies, availableCopies) VALUES (?, ?, ?)";
+    private static final String INSERT_COPY =
+        "INSERT INTO bookcopy (copy_id, barcode, location, isBorrowed, book_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_LOAN =
+        "INSERT INTO loan (loan_id, borrowDate, dueDate, returnDate, bronco_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_LOAN_COPY =
+        "INSERT INTO loan_bookcopy (loan_id, copy_id) VALUES (?, ?)";
+
+    private static final String[] FIRST_NAMES = {
+        "Alex", "Maria", "Jordan", "Wei", "Fatima", "Diego", "Priya", "Noah", "Aiko", "Samuel", "Leila", "Mateo",
+        "Hannah", "Kwame", "Sofia", "Ivan", "Grace", "Omar", "Chloe", "Ravi", "Elena", "Jamal", "Mei", "Lucas"};
+    private static final String[] LAST_NAMES = {
+        "Garcia", "Nguyen", "Smith", "Patel", "Kim", "Johnson", "Lopez", "Chen", "Okafor", "Muller", "Rossi",
+        "Tanaka", "Brown", "Hernandez", "Ali", "Cohen", "Silva", "Ivanova", "Martin", "Wilson", "Khan", "Park"};
+    private static final String[] DEGREES = {
+        "Computer Science", "Mechanical Engineering", "Biology", "History", "Economics", "Psychology",
+        "Mathematics", "Architecture", "Chemistry", "English", "Business Administration", "Physics"};
+    private static final String[] STREETS = {
+        "University Dr", "Temple Ave", "Kellogg Dr", "Valley Blvd", "Campus Dr", "Pomona Blvd", "Grand Ave"};
+    private static final String[] TITLE_WORDS = {
+        "Silent", "River", "Empire", "Algorithms", "Garden", "Shadow", "Theory", "Ocean", "Machine", "History",
+        "Light", "Principles", "Journey", "Stone", "Modern", "Night", "Systems", "Winter", "Lost", "City",
+        "Introduction", "Structures", "Fire", "Letters", "Data", "Mountain", "Secret", "Design", "Quantum", "Road"};
+    private static final String[] PUBLISHERS = {
+        "Penguin", "HarperCollins", "Springer", "O'Reilly", "Wiley", "Pearson", "MIT Press", "Vintage",
+        "Oxford University Press", "Cambridge University Press", "Macmillan", "Addison-Wesley"};
+
+    /*
+     * What was written ... new rows use the IDs from the first* values upwards
+     */
+    public record Result(GeneratorSpec spec, int firstBroncoId, int firstBookId, int firstCopyId, int firstLoanId,
+                         int openLoans, int overdueLoans, int studentsAtLimit, long rowsWritten, long elapsedMillis) {
+
+        /*
+         * One-line summary for the console
+         */
+        public String summary() {
+            return String.format("Generated %d students, %d books, %d copies and %d loans (%d open, %d overdue, "
+                    + "%d students at the limit): %d rows in %.1fs, %.0f rows/s",
+                spec.students(), spec.books(), spec.copies(), spec.loans(), openLoans, overdueLoans, studentsAtLimit,
+                rowsWritten, elapsedMillis / 1000.0, rowsWritten * 1000.0 / Math.max(1, elapsedMillis));
+        }
+    }
+
+    // one planned open loan, students and copies as indexes into the generated rows
+    private record OpenLoan(int student, int[] copies, int borrowDaysAgo, boolean overdue) {}
+
+    /*
+     * Generates the rows described by the spec, progress is reported in rows from the writer threads
+     */
+    public Result generate(GeneratorSpec spec, ProgressListener progress) {
+        long start = System.nanoTime();
+        SessionFactory sessionFactory = SessionFactoryProvider.getSessionFactory();
+        ExecutorService writers = Executors.newFixedThreadPool(spec.threads(), writerThreads());
+        try {
+            int[] first = nextIds(sessionFactory);
+            Plan plan = new Plan(spec, first[0], first[1], first[2], first[3]);
+
+            long totalRows = (long) spec.students() + spec.books() + spec.copies() + spec.loans() + plan.loanCopyRows();
+            AtomicLong written = new AtomicLong();
+            Runnable onChunk = () -> progress.onProgress(written.get(), totalRows);
+
+            // parents before children, the foreign keys only see committed rows
+            List<Chunk> parents = new ArrayList<>();
+            addChunks(parents, spec.students(), plan::writeStudents);
+            addChunks(parents, spec.books(), plan::writeBooks);
+            run(writers, sessionFactory, parents, written, onChunk);
+
+            List<Chunk> copies = new ArrayList<>();
+            addChunks(copies, spec.copies(), plan::writeCopies);
+            run(writers, sessionFactory, copies, written, onChunk);
+
+            List<Chunk> loans = new ArrayList<>();
+            addChunks(loans, plan.historyLoans, plan::writeHistoryLoans);
+            addChunks(loans, plan.openLoans.size(), plan::writeOpenLoans);
+            run(writers, sessionFactory, loans, written, onChunk);
+
+            advanceIdGenerators(sessionFactory);
+            long overdue = plan.openLoans.stream().filter(OpenLoan::overdue).count();
+            return new Result(spec, plan.firstBroncoId, plan.firstBookId, plan.firstCopyId, plan.firstLoanId,
+                plan.openLoans.size(), (int) overdue, plan.studentsAtLimit, written.get(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error generating data: " + e.getMessage());
+            throw new RuntimeException("Failed to generate data: " + e.getMessage(), e);
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    // one chunk of rows [from, to) written by one writer in one transaction
+    private interface ChunkWriter {
+        long write(Connection connection, int chunk, int from, int to) throws SQLException;
+    }
+
+    private record Chunk(ChunkWriter writer, int index, int from, int to) {}
+
+    private static void addChunks(List<Chunk> chunks, int rows, ChunkWriter writer) {
+        for (int from = 0, index = 0; from < rows; from += CHUNK_SIZE, index++) {
+            chunks.add(new Chunk(writer, index, from, Math.min(from + CHUNK_SIZE, rows)));
+        }
+    }
+
+    private static void run(ExecutorService writers, SessionFactory sessionFactory, List<Chunk> chunks,
+                            AtomicLong written, Runnable onChunk) throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            futures.add(writers.submit(() -> {
+                try (Session session = sessionFactory.openSession()) {
+                    Transaction tx = session.beginTransaction();
+                    long rows = session.doReturningWork(connection ->
+                        chunk.writer().write(connection, chunk.index(), chunk.from(), chunk.to()));
+                    tx.commit();
+                    written.addAndGet(rows);
+                    onChunk.run();
+                }
+                return null;
+            }));
+        }
+        // the first failure stops the phase, chunks already committed stay committed
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    // the first free ID of each table: student, book, copy and loan
+    private static int[] nextIds(SessionFactory sessionFactory) {
+        try (Session session = sessionFactory.openSession()) {
+            return session.doReturningWork(connection -> new int[] {
+                maxId(connection, "SELECT MAX(bronco_id) FROM student") + 1,
+                maxId(connection, "SELECT MAX(book_id) FROM book") + 1,
+                maxId(connection, "SELECT MAX(copy_id) FROM bookcopy") + 1,
+                maxId(connection, "SELECT MAX(loan_id) FROM loan") + 1});
+        }
+    }
+
+    private static int maxId(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); var rows = statement.executeQuery(sql)) {
+            return rows.next() ? rows.getInt(1) : 0;
+        }
+    }
+
+    /*
+     * Moves the book and copy sequences and the loan identity past the generated IDs
+     * The pooled sequences hand out the 50 IDs below the value they return, so they must return at least MAX(id) + 50
+     */
+    private static void advanceIdGenerators(SessionFactory sessionFactory) {
+        Dialect dialect = ((SessionFactoryImplementor) sessionFactory).getJdbcServices().getDialect();
+        String[] statements;
+        if (dialect instanceof PostgreSQLDialect) {
+            statements = new String[] {
+                "SELECT setval('book_seq', GREATEST((SELECT last_value FROM book_seq), (SELECT COALESCE(MAX(book_id), 0) FROM book)))",
+                "SELECT setval('bookcopy_seq', GREATEST((SELECT last_value FROM bookcopy_seq), (SELECT COALESCE(MAX(copy_id), 0) FROM bookcopy)))",
+                "SELECT setval(pg_get_serial_sequence('loan', 'loan_id'), (SELECT COALESCE(MAX(loan_id), 0) + 1 FROM loan), false)"};
+        } else if (dialect instanceof H2Dialect) {
+            statements = null;
+        } else {
+            System.err.println("Cannot advance the ID generators for " + dialect + ", new rows may collide with generated ones.");
+            return;
+        }
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            session.doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    if (statements != null) {
+                        for (String sql : statements) {
+                            statement.execute(sql);
+                        }
+                    } else {
+                        // H2 cannot take the restart value from a subquery
+                        statement.execute("ALTER SEQUENCE book_seq RESTART WITH "
+                            + (maxId(connection, "SELECT MAX(book_id) FROM book") + 50));
+                        statement.execute("ALTER SEQUENCE bookcopy_seq RESTART WITH "
+                            + (maxId(connection, "SELECT MAX(copy_id) FROM bookcopy") + 50));
+                        statement.execute("ALTER TABLE loan ALTER COLUMN loan_id RESTART WITH "
+                            + (maxId(connection, "SELECT MAX(loan_id) FROM loan") + 1));
+                    }
+                }
+            });
+            tx.commit();
+        }
+    }
+
+    private static ThreadFactory writerThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "data-generator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // independent random stream per table and chunk
+    private static SplittableRandom random(long seed, int table, int chunk) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + table * 0xBF58476D1CE4E5B9L + chunk);
+    }
+
+    private static String isbn13(long bookId) {
+        String digits = String.format("978%09d", bookId % 1_000_000_000L);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    private static int coprimeStride(int n) {
+        int stride = 1_000_003;
+        while (gcd(stride, n) != 1) stride += 2;
+        return stride;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static void flushIfFull(PreparedStatement statement, int rows) throws SQLException {
+        if (rows % BATCH_SIZE == 0) statement.executeBatch();
+    }
+
+    /*
+     * The planned dataset ... popularity, copy layout and open loans are decided up front, single-threaded,
+     * everything else is derived per chunk
+     */
+    private static class Plan {
+        final GeneratorSpec spec;
+        final int firstBroncoId;
+        final int firstBookId;
+        final int firstCopyId;
+        final int firstLoanId;
+        final LocalDate asOf;
+
+        // cumulative popularity by rank, rank r is book (r * bookStride) % books so hot titles are spread over the table
+        final double[] popularity;
+        final int bookStride;
+        // copies of book i are copy indexes copyStart[i] to copyStart[i + 1] - 1
+        final int[] copyStart;
+        // ranks below this have at least one copy
+        final int ranksWithCopies;
+
+        final BitSet borrowed = new BitSet();
+        final List<OpenLoan> openLoans = new ArrayList<>();
+        int studentsAtLimit;
+        final int historyLoans;
+
+        Plan(GeneratorSpec spec, int firstBroncoId, int firstBookId, int firstCopyId, int firstLoanId) {
+            this.spec = spec;
+            this.firstBroncoId = firstBroncoId;
+            this.firstBookId = firstBookId;
+            this.firstCopyId = firstCopyId;
+            this.firstLoanId = firstLoanId;
+            this.asOf = spec.asOf();
+
+            int books = spec.books();
+            popularity = new double[books];
+            double total = 0;
+            for (int r = 0; r < books; r++) {
+                total += 1 / Math.pow(r + 1, spec.popularitySkew());
+                popularity[r] = total;
+            }
+            bookStride = books == 0 ? 1 : coprimeStride(books);
+
+            // one copy per title while they last, the rest in proportion to popularity
+            int[] copiesByRank = new int[books];
+            int extra = spec.copies() - books;
+            if (extra < 0) {
+                Arrays.fill(copiesByRank, 0, spec.copies(), 1);
+            } else if (books > 0) {
+                int assigned = 0;
+                double previous = 0;
+                for (int r = 0; r < books; r++) {
+                    copiesByRank[r] = 1 + (int) (extra * (popularity[r] - previous) / total);
+                    previous = popularity[r];
+                    assigned += copiesByRank[r];
+                }
+                for (int r = 0; assigned < spec.copies(); r = (r + 1) % books, assigned++) {
+                    copiesByRank[r]++;
+                }
+            }
+            ranksWithCopies = Math.min(books, spec.copies());
+            copyStart = new int[books + 1];
+            int[] copiesByBook = new int[books];
+            for (int r = 0; r < books; r++) {
+                copiesByBook[bookAtRank(r)] = copiesByRank[r];
+            }
+            for (int b = 0; b < books; b++) {
+                copyStart[b + 1] = copyStart[b] + copiesByBook[b];
+            }
+
+            planOpenLoans();
+            historyLoans = spec.loans() - openLoans.size();
+        }
+
+        int bookAtRank(int rank) {
+            return (int) ((long) rank * bookStride % spec.books());
+        }
+
+        // a title drawn by popularity among those with copies
+        int sampleBook(SplittableRandom random) {
+            double target = random.nextDouble() * popularity[ranksWithCopies - 1];
+            int rank = Arrays.binarySearch(popularity, 0, ranksWithCopies, target);
+            return bookAtRank(Math.min(rank < 0 ? -rank - 1 : rank, ranksWithCopies - 1));
+        }
+
+        int sampleCopy(SplittableRandom random) {
+            int book = sampleBook(random);
+            return copyStart[book] + random.nextInt(copyStart[book + 1] - copyStart[book]);
+        }
+
+        // a copy nobody holds, preferably of a popular title, or -1 when every copy is out
+        int takeFreeCopy(SplittableRandom random) {
+            for (int attempt = 0; attempt < 20; attempt++) {
+                int book = sampleBook(random);
+                int copy = borrowed.nextClearBit(copyStart[book]);
+                if (copy < copyStart[book + 1]) {
+                    borrowed.set(copy);
+                    return copy;
+                }
+            }
+            int copy = borrowed.nextClearBit(random.nextInt(spec.copies()));
+            if (copy >= spec.copies()) copy = borrowed.nextClearBit(0);
+            if (copy >= spec.copies()) return -1;
+            borrowed.set(copy);
+            return copy;
+        }
+
+        private void planOpenLoans() {
+            int target = (int) Math.round(spec.loans() * spec.openFraction());
+            if (target == 0) return;
+            SplittableRandom random = random(spec.seed(), 0, 0);
+            int[] held = new int[spec.students()];
+
+            // students at the limit first, their 5 copies split over one to three loans
+            int atLimit = (int) Math.min(Math.round(spec.students() * spec.atLimitFraction()), spec.copies() / MAX_COPIES_PER_STUDENT);
+            int studentStride = coprimeStride(spec.students());
+            for (int i = 0; i < atLimit && openLoans.size() < target; i++) {
+                int student = (int) ((long) i * studentStride % spec.students());
+                while (held[student] < MAX_COPIES_PER_STUDENT && openLoans.size() < target) {
+                    int size = Math.min(1 + random.nextInt(3), MAX_COPIES_PER_STUDENT - held[student]);
+                    if (!addOpenLoan(random, student, size)) return;
+                    held[student] += size;
+                }
+                if (held[student] == MAX_COPIES_PER_STUDENT) studentsAtLimit++;
+            }
+
+            // everybody else stays below the limit
+            int misses = 0;
+            while (openLoans.size() < target && misses < 1000) {
+                int student = random.nextInt(spec.students());
+                int size = random.nextInt(4) == 0 ? 2 : 1;
+                if (held[student] + size >= MAX_COPIES_PER_STUDENT) {
+                    misses++;
+                    continue;
+                }
+                if (!addOpenLoan(random, student, size)) return;
+                held[student] += size;
+            }
+        }
+
+        private boolean addOpenLoan(SplittableRandom random, int student, int size) {
+            int[] copies = new int[size];
+            for (int i = 0; i < size; i++) {
+                copies[i] = takeFreeCopy(random);
+                if (copies[i] < 0) return false;
+            }
+            boolean overdue = random.nextDouble() < spec.overdueFraction();
+            int daysAgo = overdue ? LOAN_DAYS + 1 + random.nextInt(60) : random.nextInt(LOAN_DAYS);
+            openLoans.add(new OpenLoan(student, copies, daysAgo, overdue));
+            return true;
+        }
+
+        // rows of the join table, history loans have one to three copies each
+        long loanCopyRows() {
+            long rows = 0;
+            for (OpenLoan loan : openLoans) {
+                rows += loan.copies().length;
+            }
+            // same streams as writeHistoryLoans, so the progress total is exact
+            for (int from = 0, chunk = 0; from < historyLoans; from += CHUNK_SIZE, chunk++) {
+                SplittableRandom sizes = random(spec.seed(), 4, chunk);
+                for (int i = from; i < Math.min(from + CHUNK_SIZE, historyLoans); i++) {
+                    rows += Math.min(historyLoanSize(sizes), spec.copies());
+                }
+            }
+            return rows;
+        }
+
+        int historyLoanSize(SplittableRandom random) {
+            int roll = random.nextInt(100);
+            return roll < 75 ? 1 : roll < 93 ? 2 : 3;
+        }
+
+        Date day(int daysAgo) {
+            return Date.valueOf(asOf.minusDays(daysAgo));
+        }
+
+        /*
+         * Chunk writers
+         */
+
+        long writeStudents(Connection connection, int chunk, int from, int to) throws SQLException {
+            SplittableRandom random = random(spec.seed(), 1, chunk);
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_STUDENT)) {
+                for (int i = from; i < to; i++) {
+                    insert.setInt(1, firstBroncoId + i);
+                    insert.setString(2, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                        + LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+                    insert.setString(3, (100 + random.nextInt(9900)) + " " + STREETS[random.nextInt(STREETS.length)]);
+                    insert.setString(4, DEGREES[random.nextInt(DEGREES.length)]);
+                    insert.addBatch();
+                    flushIfFull(insert, i - from + 1);
+                }
+                insert.executeBatch();
+            }
+            return to - from;
+        }
+
+        long writeBooks(Connection connection, int chunk, int from, int to) throws SQLException {
+            SplittableRandom random = random(spec.seed(), 2, chunk);
+            int authors = Math.max(1, spec.books() / 8);
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_BOOK);
+                 PreparedStatement stock = connection.prepareStatement(INSERT_STOCK)) {
+                for (int i = from; i < to; i++) {
+                    int bookId = firstBookId + i;
+                    String title = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " "
+                        + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+                    int author = random.nextInt(authors);
+                    insert.setInt(1, bookId);
+                    insert.setString(2, isbn13(bookId));
+                    insert.setString(3, title);
+                    insert.setString(4, FIRST_NAMES[author % FIRST_NAMES.length] + " "
+                        + LAST_NAMES[(author / FIRST_NAMES.length) % LAST_NAMES.length]);
+                    insert.setString(5, PUBLISHERS[random.nextInt(PUBLISHERS.length)]);
+                    insert.setInt(6, 80 + random.nextInt(900));
+                    insert.setDate(7, Date.valueOf(asOf.minusDays(random.nextInt(365 * 60))));
+                    if (random.nextInt(10) < 3) {
+                        insert.setString(8, "A study of " + title.toLowerCase() + ".");
+                    } else {
+                        insert.setNull(8, Types.VARCHAR);
+                    }
+                    insert.addBatch();
+                    // the copies and the open loans are planned already, so the counters are known up front
+                    int copies = copyStart[i + 1] - copyStart[i];
+                    stock.setInt(1, bookId);
+                    stock.setInt(2, copies);
+                    stock.setInt(3, copies - borrowed.get(copyStart[i], copyStart[i + 1]).cardinality());
+                    stock.addBatch();
+                    flushIfFull(insert, i - from + 1);
+                    flushIfFull(stock, i - from + 1);
+                }
+                insert.executeBatch();
+                stock.executeBatch();
+            }
+            return to - from;
+        }
+
+        long writeCopies(Connection connection, int chunk, int from, int to) throws SQLException {
+            SplittableRandom random = random(spec.seed(), 3, chunk);
+            int book = Arrays.binarySearch(copyStart, from);
+            // the first book whose copies include index from
+            book = book < 0 ? -book - 2 : book;
+            while (copyStart[book + 1] <= from) book++;
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_COPY)) {
+                for (int i = from; i < to; i++) {
+                    while (copyStart[book + 1] <= i) book++;
+                    int copyId = firstCopyId + i;
+                    insert.setInt(1, copyId);
+                    insert.setString(2, "G" + copyId);
+                    insert.setString(3, "Floor " + (1 + random.nextInt(4)) + ", Shelf " + (1 + random.nextInt(250)));
+                    insert.setBoolean(4, borrowed.get(i));
+                    insert.setInt(5, firstBookId + book);
+                    insert.addBatch();
+                    flushIfFull(insert, i - from + 1);
+                }
+                insert.executeBatch();
+            }
+            return to - from;
+        }
+
+        long writeHistoryLoans(Connection connection, int chunk, int from, int to) throws SQLException {
+            SplittableRandom random = random(spec.seed(), 5, chunk);
+            SplittableRandom sizes = random(spec.seed(), 4, chunk);
+            long rows = 0;
+            try (PreparedStatement loans = connection.prepareStatement(INSERT_LOAN);
+                 PreparedStatement copies = connection.prepareStatement(INSERT_LOAN_COPY)) {
+                int[] picked = new int[3];
+                for (int i = from; i < to; i++) {
+                    int loanId = firstLoanId + i;
+                    int daysAgo = LOAN_DAYS + 1 + random.nextInt(HISTORY_DAYS);
+                    int keptDays = 1 + random.nextInt(LOAN_DAYS + 7);
+                    loans.setInt(1, loanId);
+                    loans.setDate(2, day(daysAgo));
+                    loans.setDate(3, day(daysAgo - LOAN_DAYS));
+                    loans.setDate(4, day(Math.max(1, daysAgo - keptDays)));
+                    loans.setInt(5, firstBroncoId + random.nextInt(spec.students()));
+                    loans.addBatch();
+                    flushIfFull(loans, i - from + 1);
+
+                    int size = Math.min(historyLoanSize(sizes), spec.copies());
+                    for (int c = 0; c < size; c++) {
+                        int copy;
+                        do {
+                            copy = sampleCopy(random);
+                        } while (contains(picked, c, copy));
+                        picked[c] = copy;
+                        copies.setInt(1, loanId);
+                        copies.setInt(2, firstCopyId + copy);
+                        copies.addBatch();
+                    }
+                    rows += 1 + size;
+                }
+                loans.executeBatch();
+                copies.executeBatch();
+            }
+            return rows;
+        }
+
+        long writeOpenLoans(Connection connection, int chunk, int from, int to) throws SQLException {
+            long rows = 0;
+            try (PreparedStatement loans = connection.prepareStatement(INSERT_LOAN);
+                 PreparedStatement copies = connection.prepareStatement(INSERT_LOAN_COPY)) {
+                for (int i = from; i < to; i++) {
+                    OpenLoan loan = openLoans.get(i);
+                    int loanId = firstLoanId + historyLoans + i;
+                    loans.setInt(1, loanId);
+                    loans.setDate(2, day(loan.borrowDaysAgo()));
+                    loans.setDate(3, day(loan.borrowDaysAgo() - LOAN_DAYS));
+                    loans.setNull(4, Types.DATE);
+                    loans.setInt(5, firstBroncoId + loan.student());
+                    loans.addBatch();
+                    flushIfFull(loans, i - from + 1);
+                    for (int copy : loan.copies()) {
+                        copies.setInt(1, loanId);
+                        copies.setInt(2, firstCopyId + copy);
+                        copies.addBatch();
+                    }
+                    rows += 1 + loan.copies().length;
+                }
+                loans.executeBatch();
+                copies.executeBatch();
+            }
+            return rows;
+        }
+
+        private static boolean contains(int[] values, int count, int value) {
+            for (int i = 0; i < count; i++) {
+                if (values[i] == value) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.library.library_system.service;
+
+import com.library.library_system.metrics.ServiceMetrics;
+import com.library.library_system.model.Book;
+import com.library.library_system.model.Student;
+import com.library.library_system.util.ProgressListener;
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Service for exporting loans, books and students
+ * Rows are streamed from a forward-only cursor and written as they arrive, and the session is cleared
+ * every few hundred rows, so memory stays flat however large the table is
+ */
+public class ExportService {
+
+    // rows fetched per round trip by the JDBC cursor
+    private static final int FETCH_SIZE = 500;
+    // rows written between session clears and progress updates
+    private static final int CLEAR_INTERVAL = 1000;
+
+    private static final String[] LOAN_COLUMNS = {
+        "loanId", "broncoId", "studentName", "borrowDate", "dueDate", "returnDate", "barcodes"};
+    private static final String[] REPORT_COLUMNS = {
+        "studentName", "broncoId", "loanId", "borrowDate", "dueDate", "returnDate", "copies", "status"};
+    private static final String[] BOOK_COLUMNS = {
+        "bookId", "isbn", "title", "authors", "publisher", "numberOfPages", "publicationDate", "description"};
+    private static final String[] STUDENT_COLUMNS = {
+        "broncoId", "name", "address", "degree"};
+
+    /*
+     * Exports the loans matching a filter with the barcodes of their copies, ordered by loan ID
+     * Returns the number of loans written
+     */
+    public long exportLoans(Path target, LoanFilter filter, ProgressListener progress) {
+        String where = " WHERE 1 = 1" + filter.predicate("l");
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("ExportService.exportLoans");
+             Session session = openReadOnlySession();
+             ExportWriter out = ExportWriter.open(target, LOAN_COLUMNS)) {
+            // PostgreSQL only streams through a cursor inside a transaction
+            Transaction tx = session.beginTransaction();
+            long total = filter.bind(session.createQuery("SELECT COUNT(l) FROM Loan l" + where, Long.class)).uniqueResult();
+            long written = 0;
+
+            // one row per loan and copy, consecutive rows of a loan are folded into one record
+            String hql = "SELECT l.loanId, s.broncoId, s.name, l.borrowDate, l.dueDate, l.returnDate, bc.barcode "
+                + "FROM Loan l JOIN l.student s LEFT JOIN l.bookCopies bc" + where + " ORDER BY l.loanId, bc.copyId";
+            try (ScrollableResults<Object[]> rows = filter.bind(session.createQuery(hql, Object[].class))
+                    .setFetchSize(FETCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                Object[] loan = null;
+                List<String> barcodes = new ArrayList<>();
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    if (loan != null && !loan[0].equals(row[0])) {
+                        writeLoan(out, loan, barcodes);
+                        barcodes = new ArrayList<>();
+                        if (++written % CLEAR_INTERVAL == 0) {
+                            session.clear();
+                            progress.onProgress(written, total);
+                        }
+                    }
+                    loan = row;
+                    if (row[6] != null) barcodes.add((String) row[6]);
+                }
+                if (loan != null) {
+                    writeLoan(out, loan, barcodes);
+                    written++;
+                }
+            }
+            tx.commit();
+            progress.onProgress(written, total);
+            return written;
+
+        // handle errors
+        } catch (Exception e) {
+            deletePartial(target);
+            System.err.println("Error exporting loans to " + target + ": " + e.getMessage());
+            throw new RuntimeException("Failed to export loans", e);
+        }
+    }
+
+    /*
+     * Exports the loan report in report order (student name and ID, due date, loan ID), returns the number of rows written
+     */
+    public long exportLoanReport(Path target, LoanFilter filter, ProgressListener progress) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("ExportService.exportLoanReport");
+             Session session = openReadOnlySession();
+             ExportWriter out = ExportWriter.open(target, REPORT_COLUMNS)) {
+            Transaction tx = session.beginTransaction();
+            long total = filter.bind(session.createQuery(
+                "SELECT COUNT(l) FROM Loan l WHERE 1 = 1" + filter.predicate("l"), Long.class)).uniqueResult();
+            long written = 0;
+            String hql = LoanService.REPORT_SELECT + filter.predicate("l") + LoanService.REPORT_GROUP_AND_ORDER;
+            try (ScrollableResults<LoanReportRow> rows = filter.bind(session.createQuery(hql, LoanReportRow.class))
+                    .setFetchSize(FETCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    LoanReportRow row = rows.get();
+                    out.writeRow(row.studentName(), row.broncoId(), row.loanId(), row.borrowDate(), row.dueDate(),
+                        row.returnDate(), row.copyCount(), row.getStatus());
+                    if (++written % CLEAR_INTERVAL == 0) {
+                        session.clear();
+                        progress.onProgress(written, total);
+                    }
+                }
+            }
+            tx.commit();
+            progress.onProgress(written, total);
+            return written;
+
+        // handle errors
+        } catch (Exception e) {
+            deletePartial(target);
+            System.err.println("Error exporting loan report to " + target + ": " + e.getMessage());
+            throw new RuntimeException("Failed to export loan report", e);
+        }
+    }
+
+    /*
+     * Exports every book ordered by book ID, returns the number of books written
+     */
+    public long exportBooks(Path target, ProgressListener progress) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("ExportService.exportBooks");
+             Session session = openReadOnlySession();
+             ExportWriter out = ExportWriter.open(target, BOOK_COLUMNS)) {
+            Transaction tx = session.beginTransaction();
+            long total = session.createQuery("SELECT COUNT(b) FROM Book b", Long.class).uniqueResult();
+            long written = 0;
+            try (ScrollableResults<Book> books = session.createQuery("FROM Book b ORDER BY b.bookId", Book.class)
+                    .setFetchSize(FETCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (books.next()) {
+                    Book book = books.get();
+                    out.writeRow(book.getBookId(), book.getIsbn(), book.getTitle(), book.getAuthors(), book.getPublisher(),
+                        book.getNumberOfPages(), book.getPublicationDate(), book.getDescription());
+                    if (++written % CLEAR_INTERVAL == 0) {
+                        session.clear();
+                        progress.onProgress(written, total);
+                    }
+                }
+            }
+            tx.commit();
+            progress.onProgress(written, total);
+            return written;
+
+        // handle errors
+        } catch (Exception e) {
+            deletePartial(target);
+            System.err.println("Error exporting books to " + target + ": " + e.getMessage());
+            throw new RuntimeException("Failed to export books", e);
+        }
+    }
+
+    /*
+     * Exports every student ordered by Bronco ID, returns the number of students written
+     */
+    public long exportStudents(Path target, ProgressListener progress) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("ExportService.exportStudents");
+             Session session = openReadOnlySession();
+             ExportWriter out = ExportWriter.open(target, STUDENT_COLUMNS)) {
+            Transaction tx = session.beginTransaction();
+            long total = session.createQuery("SELECT COUNT(s) FROM Student s", Long.class).uniqueResult();
+            long written = 0;
+            try (ScrollableResults<Student> students = session.createQuery("FROM Student s ORDER BY s.broncoId", Student.class)
+                    .setFetchSize(FETCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (students.next()) {
+                    Student student = students.get();
+                    out.writeRow(student.getBroncoId(), student.getName(), student.getAddress(), student.getDegree());
+                    if (++written % CLEAR_INTERVAL == 0) {
+                        session.clear();
+                        progress.onProgress(written, total);
+                    }
+                }
+            }
+            tx.commit();
+            progress.onProgress(written, total);
+            return written;
+
+        // handle errors
+        } catch (Exception e) {
+            deletePartial(target);
+            System.err.println("Error exporting students to " + target + ": " + e.getMessage());
+            throw new RuntimeException("Failed to export students", e);
+        }
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    // read-only and bypassing the second-level cache, so a full scan neither snapshots entities nor evicts hot entries
+    private static Session openReadOnlySession() {
+        Session session = SessionFactoryProvider.getSessionFactory().openSession();
+        session.setDefaultReadOnly(true);
+        session.setCacheMode(CacheMode.IGNORE);
+        return session;
+    }
+
+    private static void writeLoan(ExportWriter out, Object[] loan, List<String> barcodes) throws IOException {
+        out.writeRow(loan[0], loan[1], loan[2], loan[3], loan[4], loan[5], barcodes);
+    }
+
+    // a failed export leaves no truncated file behind
+    private static void deletePartial(Path target) {
+        try {
+            Files.deleteIfExists(target);
+        } catch (IOException e) {
+            System.err.println("Error deleting partial export " + target + ": " + e.getMessage());
+        }
+    }
+}
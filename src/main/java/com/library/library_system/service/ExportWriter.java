@@ -0,0 +1,150 @@
+package com.library.library_system.service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Writer for the exports
+ * Writes rows as CSV with a header line or as JSON Lines, chosen by the file extension (.csv, .jsonl, optionally .gz)
+ * Output goes through a buffered writer on a FileChannel
+ */
+class ExportWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+    private final boolean json;
+    private final String[] columns;
+
+    private ExportWriter(Writer out, boolean json, String[] columns) {
+        this.out = out;
+        this.json = json;
+        this.columns = columns;
+    }
+
+    /*
+     * Creates or truncates the target file and writes the CSV header
+     */
+    static ExportWriter open(Path target, String... columns) throws IOException {
+        String name = target.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) name = name.substring(0, name.length() - 3);
+        boolean json = name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json");
+
+        FileChannel channel = FileChannel.open(target,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        Writer writer = gzip
+            ? new OutputStreamWriter(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), StandardCharsets.UTF_8)
+            : Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE);
+        ExportWriter export = new ExportWriter(new BufferedWriter(writer, BUFFER_SIZE), json, columns);
+        if (!json) export.writeCsvRow(columns);
+        return export;
+    }
+
+    /*
+     * Writes one row, values are matched to the columns by position
+     * Dates are written as yyyy-MM-dd and collections as a JSON array or a ';' separated CSV field
+     */
+    void writeRow(Object... values) throws IOException {
+        if (json) {
+            out.write('{');
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) out.write(',');
+                writeJsonString(columns[i]);
+                out.write(':');
+                writeJsonValue(values[i]);
+            }
+            out.write("}\n");
+        } else {
+            Object[] fields = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                fields[i] = values[i] instanceof Collection<?> list
+                    ? String.join(";", list.stream().map(ExportWriter::text).toList())
+                    : values[i];
+            }
+            writeCsvRow(fields);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private void writeCsvRow(Object[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) out.write(',');
+            String text = text(fields[i]);
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(text.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(text);
+            }
+        }
+        out.write('\n');
+    }
+
+    private void writeJsonValue(Object value) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.write(value.toString());
+        } else if (value instanceof Collection<?> list) {
+            out.write('[');
+            boolean first = true;
+            for (Object item : list) {
+                if (!first) out.write(',');
+                writeJsonValue(item);
+                first = false;
+            }
+            out.write(']');
+        } else {
+            writeJsonString(text(value));
+        }
+    }
+
+    private void writeJsonString(String text) throws IOException {
+        out.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) out.write(String.format("\\u%04x", (int) c));
+                    else out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+
+    private static String text(Object value) {
+        if (value == null) return "";
+        if (value instanceof java.sql.Date date) return date.toLocalDate().toString();
+        if (value instanceof Date date) return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toString();
+        return value.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.library.library_system.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs the fine accrual of FineService every night on its own daemon thread
+ * The hour comes from -Dlibrary.fines.accrual.hour, 2 by default and -1 turns the accrual off
+ * When the application starts after the hour and today has not been accrued yet, the accrual runs shortly after startup
+ */
+public class FineAccrualScheduler {
+
+    public static final String HOUR_PROPERTY = "library.fines.accrual.hour";
+    static final int DEFAULT_HOUR = 2;
+    // catch-up run once the application has started
+    static final Duration STARTUP_DELAY = Duration.ofMinutes(1);
+    // retry after a failed run
+    static final Duration RETRY_DELAY = Duration.ofMinutes(15);
+
+    private final FineService fineService = new FineService();
+    private final ScheduledExecutorService scheduler;
+    private final int hour;
+    private volatile FineService.AccrualResult lastResult;
+
+    private FineAccrualScheduler(int hour) {
+        this.hour = hour;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fine-accrual");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Starts the nightly accrual at the hour from the system property, returns null when it is turned off
+     */
+    public static FineAccrualScheduler startIfConfigured() {
+        String hour = System.getProperty(HOUR_PROPERTY, String.valueOf(DEFAULT_HOUR));
+        try {
+            int value = Integer.parseInt(hour.trim());
+            if (value < 0) return null;
+            if (value > 23) throw new NumberFormatException("hour must be 0 to 23");
+            return start(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Error starting fine accrual, invalid hour " + hour + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static FineAccrualScheduler start(int hour) {
+        FineAccrualScheduler accrual = new FineAccrualScheduler(hour);
+        accrual.scheduler.execute(accrual::scheduleFirstRun);
+        return accrual;
+    }
+
+    /*
+     * Returns the outcome of the last run, null before the first one has finished
+     */
+    public FineService.AccrualResult getLastResult() {
+        return lastResult;
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    // reads the last accrued day off the FX thread, a missed night is caught up soon after startup
+    private void scheduleFirstRun() {
+        try {
+            LocalDate last = fineService.getLastAccrualDay();
+            boolean missed = (last == null || last.isBefore(LocalDate.now())) && LocalDateTime.now().getHour() >= hour;
+            schedule(missed ? STARTUP_DELAY : untilNextRun());
+        } catch (RuntimeException e) {
+            schedule(RETRY_DELAY);
+        }
+    }
+
+    private void runOnce() {
+        Duration next;
+        try {
+            lastResult = fineService.accrueFines(LocalDate.now());
+            System.out.println(lastResult.summary());
+            next = untilNextRun();
+        } catch (RuntimeException e) {
+            // already logged by the service
+            next = RETRY_DELAY;
+        }
+        schedule(next);
+    }
+
+    private Duration untilNextRun() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(hour, 0);
+        if (!next.isAfter(now)) next = next.plusDays(1);
+        return Duration.between(now, next);
+    }
+
+    private void schedule(Duration delay) {
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::runOnce, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.library.library_system.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/*
+ * Fine rates in cents, read from system properties
+ *
+ * dailyRateCents   charged per copy for every day a loan is overdue       -Dlibrary.fines.daily.cents, 25 by default
+ * capCents         the most one copy of a loan is charged                 -Dlibrary.fines.cap.cents, 1000 by default
+ * blockingCents    unpaid fines above which a student cannot borrow       -Dlibrary.fines.block.cents, 500 by default
+ */
+public record FinePolicy(long dailyRateCents, long capCents, long blockingCents) {
+
+    public static final String DAILY_RATE_PROPERTY = "library.fines.daily.cents";
+    public static final String CAP_PROPERTY = "library.fines.cap.cents";
+    public static final String BLOCKING_PROPERTY = "library.fines.block.cents";
+
+    public FinePolicy {
+        if (dailyRateCents < 0 || capCents < 0 || blockingCents < 0) {
+            throw new IllegalArgumentException("Fine rates cannot be negative.");
+        }
+    }
+
+    public static FinePolicy fromSystemProperties() {
+        return new FinePolicy(Long.getLong(DAILY_RATE_PROPERTY, 25), Long.getLong(CAP_PROPERTY, 1000),
+            Long.getLong(BLOCKING_PROPERTY, 500));
+    }
+
+    /*
+     * Returns the fine for a loan of the given number of copies that is the given number of days overdue
+     */
+    public long fineFor(long daysOverdue, int copies) {
+        if (daysOverdue <= 0) return 0;
+        return Math.min(daysOverdue * dailyRateCents, capCents) * copies;
+    }
+
+    /*
+     * Checks if unpaid fines stop a student from borrowing
+     */
+    public boolean blocksCheckout(long owedCents) {
+        return owedCents > blockingCents;
+    }
+
+    /*
+     * Returns the whole days from the due date to a day, negative while the loan is not due yet
+     */
+    public static long daysOverdue(Date dueDate, Date day) {
+        return ChronoUnit.DAYS.between(toLocalDate(dueDate), toLocalDate(day));
+    }
+
+    /*
+     * Formats an amount in cents as dollars, e.g. $12.50
+     */
+    public static String format(long cents) {
+        return String.format("%s$%d.%02d", cents < 0 ? "-" : "", Math.abs(cents) / 100, Math.abs(cents) % 100);
+    }
+
+    // java.sql.Date from the database does not support toInstant
+    private static LocalDate toLocalDate(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
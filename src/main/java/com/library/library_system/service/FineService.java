@@ -0,0 +1,220 @@
+package com.library.library_system.service;
+
+import com.library.library_system.metrics.ServiceMetrics;
+import com.library.library_system.model.Loan;
+import com.library.library_system.model.ScanCheckpoint;
+import com.library.library_system.model.Student;
+import com.library.library_system.util.SessionFactoryProvider;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+/*
+ * Service for fines
+ * The fine of an open overdue loan is recomputed from its due date by the nightly accrual, the fine of a returned loan
+ * is fixed by LoanService.returnLoan, and a student's balance is the sum of the unpaid fines of all their loans
+ */
+public class FineService {
+
+    // name of the checkpoint row holding the last day accrued
+    static final String CHECKPOINT = "fines";
+    // loan IDs per accrual transaction
+    static final int ACCRUAL_CHUNK_SIZE = 50_000;
+    // fine of the open loan l as of :day, capped per copy
+    private static final String FINE_AS_OF_DAY =
+        "least((cast(:day as LocalDate) - l.dueDate) by day * :rate, :cap) * (SELECT COUNT(bc) FROM l.bookCopies bc)";
+
+    private final FinePolicy policy;
+
+    public FineService() {
+        this(FinePolicy.fromSystemProperties());
+    }
+
+    public FineService(FinePolicy policy) {
+        this.policy = policy;
+    }
+
+    /*
+     * Outcome of one accrual run
+     */
+    public record AccrualResult(LocalDate day, int loansUpdated, int chunks, long elapsedMillis) {
+
+        public String summary() {
+            return String.format("Accrued fines as of %s on %d loans in %d chunks in %d ms", day, loansUpdated, chunks, elapsedMillis);
+        }
+    }
+
+    /*
+     * Brings the fine of every open overdue loan up to the given day with one set-based update per range of loan IDs,
+     * each range committed on its own so no transaction holds more than ACCRUAL_CHUNK_SIZE loans
+     * Fines are recomputed rather than added to, so a second run for the same day or a missed night changes nothing,
+     * and loans whose fine is already right (e.g. capped) are not written
+     * The update bumps the loan versions, so a payment or return that read a loan before its chunk committed fails its
+     * version check and is retried instead of writing the old fine back
+     */
+    public AccrualResult accrueFines(LocalDate day) {
+        long start = System.nanoTime();
+        Date asOf = java.sql.Date.valueOf(day);
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("FineService.accrueFines");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Object[] bounds = session.createQuery(
+                "SELECT MIN(l.loanId), MAX(l.loanId) FROM Loan l WHERE l.returnDate IS NULL AND l.dueDate < :day", Object[].class)
+                .setParameter("day", asOf)
+                .uniqueResult();
+
+            int updated = 0;
+            int chunks = 0;
+            if (bounds[0] != null) {
+                long last = (Integer) bounds[1];
+                for (long from = (Integer) bounds[0]; from <= last; from += ACCRUAL_CHUNK_SIZE) {
+                    long to = Math.min(from + ACCRUAL_CHUNK_SIZE - 1, last);
+                    Transaction tx = session.beginTransaction();
+                    try {
+                        updated += session.createMutationQuery(
+                            "UPDATE VERSIONED Loan l SET l.fineCents = " + FINE_AS_OF_DAY + " "
+                                + "WHERE l.returnDate IS NULL AND l.dueDate < :day AND l.loanId BETWEEN :from AND :to "
+                                + "AND l.fineCents <> " + FINE_AS_OF_DAY)
+                            .setParameter("day", asOf)
+                            .setParameter("rate", policy.dailyRateCents())
+                            .setParameter("cap", policy.capCents())
+                            .setParameter("from", (int) from)
+                            .setParameter("to", (int) to)
+                            .executeUpdate();
+                        tx.commit();
+                    } catch (RuntimeException e) {
+                        // roll back while the session still holds its connection
+                        ConflictRetry.rollback(tx, e);
+                        throw e;
+                    }
+                    chunks++;
+                }
+            }
+            recordAccrualDay(session, asOf);
+            return new AccrualResult(day, updated, chunks, (System.nanoTime() - start) / 1_000_000);
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error accruing fines as of " + day + ": " + e.getMessage());
+            throw new RuntimeException("Failed to accrue fines", e);
+        }
+    }
+
+    /*
+     * Retrieves the last day fines were accrued for, null before the first accrual
+     */
+    public LocalDate getLastAccrualDay() {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("FineService.getLastAccrualDay");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            ScanCheckpoint checkpoint = session.get(ScanCheckpoint.class, CHECKPOINT);
+            return checkpoint == null ? null : new java.sql.Date(checkpoint.getDueDate().getTime()).toLocalDate();
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error reading last fine accrual: " + e.getMessage());
+            throw new RuntimeException("Failed to read last fine accrual", e);
+        }
+    }
+
+    /*
+     * Retrieves the unpaid fines of a student in cents
+     */
+    public long getBalance(int broncoId) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("FineService.getBalance");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery(
+                "SELECT COALESCE(SUM(l.fineCents - l.finePaidCents), 0) FROM Loan l WHERE l.student.broncoId = :id", Long.class)
+                .setParameter("id", broncoId)
+                .uniqueResult();
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving fine balance for student " + broncoId + ": " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve fine balance", e);
+        }
+    }
+
+    /*
+     * Records a payment against a student's fines, oldest loan first, returns the balance left in cents
+     */
+    public long recordPayment(int broncoId, long cents) {
+        if (cents <= 0) {
+            throw new IllegalArgumentException("The payment must be more than zero.");
+        }
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("FineService.recordPayment")) {
+            return ConflictRetry.run(() -> applyPayment(broncoId, cents));
+        }
+    }
+
+    public FinePolicy getPolicy() {
+        return policy;
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    /*
+     * Helper method for one payment transaction
+     * The student row lock orders the payment with checkouts of the same student, which read the balance under it
+     */
+    private long applyPayment(int broncoId, long cents) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                if (session.find(Student.class, broncoId, LockModeType.PESSIMISTIC_WRITE) == null) {
+                    throw new IllegalArgumentException("Student not found.");
+                }
+                List<Loan> owing = session.createQuery(
+                    "FROM Loan l WHERE l.student.broncoId = :id AND l.fineCents > l.finePaidCents ORDER BY l.dueDate, l.loanId", Loan.class)
+                    .setParameter("id", broncoId)
+                    .list();
+                long balance = owing.stream().mapToLong(Loan::getFineOwedCents).sum();
+                if (cents > balance) {
+                    throw new IllegalArgumentException("The payment is more than the unpaid fines of " + FinePolicy.format(balance) + ".");
+                }
+                long left = cents;
+                for (Loan loan : owing) {
+                    long paid = Math.min(left, loan.getFineOwedCents());
+                    loan.setFinePaidCents(loan.getFinePaidCents() + paid);
+                    left -= paid;
+                    if (left == 0) break;
+                }
+                tx.commit();
+                return balance - cents;
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (RuntimeException e) {
+            if (!ConflictRetry.isConflict(e)) e.printStackTrace();
+            throw e;
+        }
+    }
+
+    // remembers the day, so a restart can tell whether last night's accrual ran
+    private static void recordAccrualDay(Session session, Date asOf) {
+        Transaction tx = session.beginTransaction();
+        try {
+            ScanCheckpoint checkpoint = session.find(ScanCheckpoint.class, CHECKPOINT, LockModeType.PESSIMISTIC_WRITE);
+            if (checkpoint == null) {
+                checkpoint = new ScanCheckpoint(CHECKPOINT, asOf, 0);
+                session.persist(checkpoint);
+            } else if (!checkpoint.getDueDate().after(asOf)) {
+                checkpoint.advance(asOf, 0);
+            }
+            checkpoint.setScannedAt(new Date());
+            tx.commit();
+        } catch (RuntimeException e) {
+            // roll back while the session still holds its connection
+            ConflictRetry.rollback(tx, e);
+            throw e;
+        }
+    }
+}
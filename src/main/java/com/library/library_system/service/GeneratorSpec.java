@@ -0,0 +1,74 @@
+package com.library.library_system.service;
+
+import java.time.LocalDate;
+
+/*
+ * Sizes and distributions for the synthetic data generator
+ * The same spec (including seed and asOf) always produces the same rows, whatever the number of threads
+ *
+ * openFraction      share of the loans that are still open
+ * overdueFraction   share of the open loans whose due date has passed
+ * atLimitFraction   share of the students holding the maximum of 5 copies
+ * popularitySkew    Zipf exponent of title popularity, copies and loans both follow it (0 is uniform)
+ */
+public record GeneratorSpec(int students, int books, int copies, int loans, double openFraction, double overdueFraction,
+                            double atLimitFraction, double popularitySkew, long seed, int threads, LocalDate asOf) {
+
+    public GeneratorSpec {
+        if (students < 0 || books < 0 || copies < 0 || loans < 0) {
+            throw new IllegalArgumentException("Row counts cannot be negative.");
+        }
+        if (loans > 0 && (students == 0 || copies == 0)) {
+            throw new IllegalArgumentException("Loans need at least one student and one copy.");
+        }
+        if (copies > 0 && books == 0) {
+            throw new IllegalArgumentException("Copies need at least one book.");
+        }
+        if (!isFraction(openFraction) || !isFraction(overdueFraction) || !isFraction(atLimitFraction)) {
+            throw new IllegalArgumentException("Fractions must be between 0 and 1.");
+        }
+        if (popularitySkew < 0) throw new IllegalArgumentException("The popularity skew cannot be negative.");
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed.");
+    }
+
+    /*
+     * Returns a spec with the given sizes and realistic defaults: 3% of loans open, a fifth of those overdue,
+     * 2% of students at the copy limit and a Zipf skew of 1
+     */
+    public static GeneratorSpec of(int students, int books, int copies, int loans) {
+        return new GeneratorSpec(students, books, copies, loans, 0.03, 0.2, 0.02, 1.0, 42L,
+            Runtime.getRuntime().availableProcessors(), LocalDate.now());
+    }
+
+    public GeneratorSpec withSeed(long seed) {
+        return new GeneratorSpec(students, books, copies, loans, openFraction, overdueFraction, atLimitFraction,
+            popularitySkew, seed, threads, asOf);
+    }
+
+    public GeneratorSpec withThreads(int threads) {
+        return new GeneratorSpec(students, books, copies, loans, openFraction, overdueFraction, atLimitFraction,
+            popularitySkew, seed, threads, asOf);
+    }
+
+    public GeneratorSpec withOpenLoans(double openFraction, double overdueFraction, double atLimitFraction) {
+        return new GeneratorSpec(students, books, copies, loans, openFraction, overdueFraction, atLimitFraction,
+            popularitySkew, seed, threads, asOf);
+    }
+
+    public GeneratorSpec withPopularitySkew(double popularitySkew) {
+        return new GeneratorSpec(students, books, copies, loans, openFraction, overdueFraction, atLimitFraction,
+            popularitySkew, seed, threads, asOf);
+    }
+
+    /*
+     * Returns a copy of this spec whose dates are relative to another day, which makes runs on different days identical
+     */
+    public GeneratorSpec asOf(LocalDate asOf) {
+        return new GeneratorSpec(students, books, copies, loans, openFraction, overdueFraction, atLimitFraction,
+            popularitySkew, seed, threads, asOf);
+    }
+
+    private static boolean isFraction(double value) {
+        return value >= 0 && value <= 1;
+    }
+}
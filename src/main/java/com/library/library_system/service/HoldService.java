@@ -0,0 +1,361 @@
+package com.library.library_system.service;
+
+import com.library.library_system.metrics.ServiceMetrics;
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.BookStock;
+import com.library.library_system.model.Hold;
+import com.library.library_system.model.Student;
+import com.library.library_system.util.SessionFactoryProvider;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Service for holds on titles whose copies are all borrowed
+ * Each book has a first in, first out queue of holds. A returned copy goes to the head of its book's queue in the
+ * return transaction and stays off the shelf until the student collects it by checking it out or the pickup deadline
+ * passes, then it goes to the next hold or back on the shelf
+ * The stock row of the book is the lock of its queue: placing a hold, returning a copy, expiring a hold and renewing a loan lock it
+ * before reading the queue, so concurrent returns at several desks hand their copies to different holds, a hold placed
+ * during a return is never left waiting while the copy sits on the shelf and a renewal never misses a new hold
+ */
+public class HoldService {
+
+    public static final String PICKUP_DAYS_PROPERTY = "library.holds.pickup.days";
+    static final int DEFAULT_PICKUP_DAYS = 3;
+    // ready holds expired per read of the sweep
+    static final int SWEEP_BATCH_SIZE = 500;
+
+    /*
+     * Outcome of one sweep
+     */
+    public record SweepResult(int expired, int allocated, long elapsedMillis) {
+
+        public String summary() {
+            return String.format("Expired %d uncollected holds and set aside %d copies for waiting holds in %d ms",
+                expired, allocated, elapsedMillis);
+        }
+    }
+
+    /*
+     * Puts a student in the queue of a book, only when no copy of it is available
+     */
+    public Hold placeHold(int broncoId, int bookId) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("HoldService.placeHold")) {
+            return ConflictRetry.run(() -> insertHold(broncoId, bookId));
+        }
+    }
+
+    /*
+     * Cancels a waiting or ready hold, a copy set aside for it goes to the next hold
+     * Returns false when the hold is not active anymore
+     */
+    public boolean cancelHold(int holdId) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("HoldService.cancelHold")) {
+            return ConflictRetry.run(() -> closeHold(holdId, Hold.Status.CANCELLED, new Date()));
+        }
+    }
+
+    /*
+     * Retrieves the place of a waiting hold in its queue, 1 is next, 0 when the hold is not waiting
+     */
+    public int getQueuePosition(int holdId) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("HoldService.getQueuePosition");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Hold hold = session.get(Hold.class, holdId);
+            if (hold == null || hold.getStatus() != Hold.Status.WAITING) return 0;
+            Long ahead = session.createQuery(
+                "SELECT COUNT(h) FROM Hold h WHERE h.bookId = :book AND h.status = :waiting "
+                    + "AND (h.placedAt, h.holdId) < (:placedAt, :id)", Long.class)
+                .setParameter("book", hold.getBookId())
+                .setParameter("waiting", Hold.Status.WAITING)
+                .setParameter("placedAt", hold.getPlacedAt())
+                .setParameter("id", holdId)
+                .uniqueResult();
+            return ahead.intValue() + 1;
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving queue position of hold " + holdId + ": " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve queue position", e);
+        }
+    }
+
+    /*
+     * Retrieves the active holds of a book, ready holds first, then the queue in order
+     */
+    public List<Hold> getActiveHolds(int bookId) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("HoldService.getActiveHolds");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery(
+                "FROM Hold h WHERE h.bookId = :book AND h.status IN :active ORDER BY h.status, h.placedAt, h.holdId", Hold.class)
+                .setParameter("book", bookId)
+                .setParameter("active", List.of(Hold.Status.WAITING, Hold.Status.READY))
+                .list();
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving holds for book " + bookId + ": " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve holds", e);
+        }
+    }
+
+    /*
+     * Expires ready holds past their pickup deadline, passing their copies on, then sets aside available copies
+     * for books that still have a queue (e.g. after copies were added)
+     * Every hold and every book is its own transaction
+     */
+    public SweepResult sweepHolds(Date now) {
+        long start = System.nanoTime();
+        int expired = 0;
+        int allocated = 0;
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("HoldService.sweepHolds")) {
+            List<Integer> due;
+            do {
+                due = readExpiredHolds(now);
+                for (int holdId : due) {
+                    if (ConflictRetry.run(() -> closeHold(holdId, Hold.Status.EXPIRED, now))) expired++;
+                }
+            } while (due.size() == SWEEP_BATCH_SIZE);
+
+            for (int bookId : readBooksToFill()) {
+                allocated += ConflictRetry.run(() -> fillWaitingHolds(bookId, now));
+            }
+        }
+        return new SweepResult(expired, allocated, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    /*
+     * Helper method to hand returned copies to the heads of their books' queues, in the caller's transaction
+     * The caller must have locked the stock rows of the books first (the available counter update does), returns the IDs of the
+     * copies set aside, which stay flagged as borrowed
+     * Shared with LoanService
+     */
+    static Set<Integer> allocateReturnedCopies(Session session, Collection<BookCopy> copies, Date now) {
+        // the book of a copy is a proxy, its ID is read without loading it
+        Map<Integer, List<Integer>> copiesByBook = new TreeMap<>();
+        for (BookCopy copy : copies) {
+            if (copy.getBook() != null) {
+                copiesByBook.computeIfAbsent(copy.getBook().getBookId(), id -> new ArrayList<>()).add(copy.getCopyId());
+            }
+        }
+
+        Set<Integer> held = new HashSet<>();
+        copiesByBook.forEach((bookId, copyIds) -> {
+            List<Hold> heads = queueHeads(session, bookId, copyIds.size());
+            for (int i = 0; i < heads.size(); i++) {
+                heads.get(i).allocate(copyIds.get(i), now, pickupDeadline(now));
+                held.add(copyIds.get(i));
+            }
+        });
+        return held;
+    }
+
+    /*
+     * Helper method for one hold placement transaction
+     */
+    private Hold insertHold(int broncoId, int bookId) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                // locks the queue, a return in progress finishes first and its copy is seen as available
+                BookStock stock = session.find(BookStock.class, bookId, LockModeType.PESSIMISTIC_WRITE);
+                if (stock == null) {
+                    throw new IllegalArgumentException("Book not found.");
+                }
+                if (session.get(Student.class, broncoId) == null) {
+                    throw new IllegalArgumentException("Student not found.");
+                }
+                if (stock.getAvailableCopies() > 0) {
+                    throw new IllegalArgumentException("A copy of this book is available, check it out instead.");
+                }
+                Long active = session.createQuery(
+                    "SELECT COUNT(h) FROM Hold h WHERE h.bookId = :book AND h.broncoId = :id AND h.status IN :active", Long.class)
+                    .setParameter("book", bookId)
+                    .setParameter("id", broncoId)
+                    .setParameter("active", List.of(Hold.Status.WAITING, Hold.Status.READY))
+                    .uniqueResult();
+                if (active > 0) {
+                    throw new IllegalArgumentException("Student already has a hold on this book.");
+                }
+
+                Hold hold = new Hold(bookId, broncoId, new Date());
+                session.persist(hold);
+                tx.commit();
+                return hold;
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (RuntimeException e) {
+            if (!ConflictRetry.isConflict(e)) e.printStackTrace();
+            throw e;
+        }
+    }
+
+    /*
+     * Helper method for one transaction cancelling or expiring a hold
+     * A checkout collecting the same hold at the same time bumps its version, this one then retries and finds it closed
+     */
+    private boolean closeHold(int holdId, Hold.Status status, Date now) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                Hold hold = session.get(Hold.class, holdId);
+                boolean closable = hold != null && (status == Hold.Status.EXPIRED
+                    ? hold.getStatus() == Hold.Status.READY && hold.getExpiresAt().before(now)
+                    : hold.isActive());
+                if (!closable) {
+                    tx.commit();
+                    return false;
+                }
+
+                session.find(BookStock.class, hold.getBookId(), LockModeType.PESSIMISTIC_WRITE);
+                boolean ready = hold.getStatus() == Hold.Status.READY;
+                hold.close(status, now);
+                if (ready) {
+                    passOn(session, hold.getBookId(), hold.getCopyId(), now);
+                }
+                tx.commit();
+                return true;
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (RuntimeException e) {
+            if (!ConflictRetry.isConflict(e)) e.printStackTrace();
+            throw e;
+        }
+    }
+
+    /*
+     * Helper method for one transaction setting aside available copies of a book for its waiting holds
+     * Copies are flagged before the book counter is updated, in the same order as a checkout, so the two never deadlock
+     */
+    private int fillWaitingHolds(int bookId, Date now) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                List<Integer> free = session.createQuery(
+                    "SELECT bc.copyId FROM BookCopy bc WHERE bc.book.bookId = :book AND bc.isBorrowed = false ORDER BY bc.copyId", Integer.class)
+                    .setParameter("book", bookId)
+                    .setMaxResults(SWEEP_BATCH_SIZE)
+                    .list();
+                List<Hold> heads = queueHeads(session, bookId, Math.max(1, free.size()));
+                List<Integer> copyIds = free.subList(0, Math.min(free.size(), heads.size()));
+                if (copyIds.isEmpty()) {
+                    tx.commit();
+                    return 0;
+                }
+
+                int flagged = session.createMutationQuery(
+                    "UPDATE VERSIONED BookCopy bc SET bc.isBorrowed = true WHERE bc.copyId IN :ids AND bc.isBorrowed = false")
+                    .setParameter("ids", copyIds)
+                    .executeUpdate();
+                if (flagged != copyIds.size()) {
+                    // a checkout took one of the copies, retried
+                    throw new OptimisticLockException("Copies of book " + bookId + " were checked out during the sweep");
+                }
+                BookService.adjustAvailableCounters(session, copyIds, -1);
+                for (int i = 0; i < copyIds.size(); i++) {
+                    heads.get(i).allocate(copyIds.get(i), now, pickupDeadline(now));
+                }
+                tx.commit();
+                return copyIds.size();
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (RuntimeException e) {
+            if (!ConflictRetry.isConflict(e)) e.printStackTrace();
+            throw e;
+        }
+    }
+
+    private List<Integer> readExpiredHolds(Date now) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery(
+                "SELECT h.holdId FROM Hold h WHERE h.status = :ready AND h.expiresAt < :now ORDER BY h.expiresAt, h.holdId", Integer.class)
+                .setParameter("ready", Hold.Status.READY)
+                .setParameter("now", now)
+                .setMaxResults(SWEEP_BATCH_SIZE)
+                .list();
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error reading expired holds: " + e.getMessage());
+            throw new RuntimeException("Failed to read expired holds", e);
+        }
+    }
+
+    // books with a queue and copies on the shelf
+    private List<Integer> readBooksToFill() {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery(
+                "SELECT DISTINCT h.bookId FROM Hold h JOIN BookStock s ON s.bookId = h.bookId "
+                    + "WHERE h.status = :waiting AND s.availableCopies > 0", Integer.class)
+                .setParameter("waiting", Hold.Status.WAITING)
+                .list();
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error reading books with waiting holds: " + e.getMessage());
+            throw new RuntimeException("Failed to read books with waiting holds", e);
+        }
+    }
+
+    // a copy freed from a hold goes to the next hold, or back on the shelf when nobody is waiting
+    private static void passOn(Session session, int bookId, int copyId, Date now) {
+        List<Hold> next = queueHeads(session, bookId, 1);
+        if (!next.isEmpty()) {
+            next.get(0).allocate(copyId, now, pickupDeadline(now));
+            return;
+        }
+        int released = session.createMutationQuery(
+            "UPDATE VERSIONED BookCopy bc SET bc.isBorrowed = false WHERE bc.copyId = :id AND bc.isBorrowed = true")
+            .setParameter("id", copyId)
+            .executeUpdate();
+        if (released == 1) {
+            BookService.adjustAvailableCounters(session, List.of(copyId), 1);
+        }
+    }
+
+    // the first holds of the queue of a book, read off the queue index
+    private static List<Hold> queueHeads(Session session, int bookId, int count) {
+        return session.createQuery(
+            "FROM Hold h WHERE h.bookId = :book AND h.status = :waiting ORDER BY h.placedAt, h.holdId", Hold.class)
+            .setParameter("book", bookId)
+            .setParameter("waiting", Hold.Status.WAITING)
+            .setMaxResults(count)
+            .list();
+    }
+
+    private static Date pickupDeadline(Date now) {
+        int days = Integer.getInteger(PICKUP_DAYS_PROPERTY, DEFAULT_PICKUP_DAYS);
+        return new Date(now.getTime() + TimeUnit.DAYS.toMillis(days));
+    }
+}
@@ -0,0 +1,79 @@
+package com.library.library_system.service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs the hold sweep of HoldService in background on its own daemon thread
+ * Expires holds that were not collected by their pickup deadline and passes their copies on
+ * The interval comes from -Dlibrary.holds.sweep.minutes, 15 minutes by default and 0 turns the sweeper off
+ */
+public class HoldSweeper {
+
+    public static final String INTERVAL_PROPERTY = "library.holds.sweep.minutes";
+    static final long DEFAULT_INTERVAL_MINUTES = 15;
+    // first run once the application has started
+    static final Duration INITIAL_DELAY = Duration.ofSeconds(45);
+
+    private final HoldService holdService = new HoldService();
+    private final ScheduledExecutorService scheduler;
+    private final Duration interval;
+    private volatile HoldService.SweepResult lastResult;
+
+    private HoldSweeper(Duration interval) {
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hold-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Starts the sweeper with the interval from the system property, returns null when it is turned off
+     */
+    public static HoldSweeper startIfConfigured() {
+        String minutes = System.getProperty(INTERVAL_PROPERTY, String.valueOf(DEFAULT_INTERVAL_MINUTES));
+        try {
+            long interval = Long.parseLong(minutes.trim());
+            if (interval <= 0) return null;
+            return start(Duration.ofMinutes(interval));
+        } catch (NumberFormatException e) {
+            System.err.println("Error starting hold sweeper, invalid interval " + minutes + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static HoldSweeper start(Duration interval) {
+        HoldSweeper sweeper = new HoldSweeper(interval);
+        sweeper.scheduler.scheduleWithFixedDelay(sweeper::runOnce, INITIAL_DELAY.toMillis(), interval.toMillis(),
+            TimeUnit.MILLISECONDS);
+        return sweeper;
+    }
+
+    /*
+     * Returns the outcome of the last run, null before the first one has finished
+     */
+    public HoldService.SweepResult getLastResult() {
+        return lastResult;
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private void runOnce() {
+        try {
+            lastResult = holdService.sweepHolds(new Date());
+        } catch (RuntimeException e) {
+            // already logged by the service, the next run tries again
+        }
+    }
+}
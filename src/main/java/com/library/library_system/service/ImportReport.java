@@ -0,0 +1,26 @@
+package com.library.library_system.service;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/*
+ * Outcome of a catalog import
+ * Only the first rejected rows are kept in memory, the full list is written to the rejects file when one was given
+ */
+public record ImportReport(long recordsRead, int booksCreated, int copiesCreated, long rejectedCount,
+                           List<RejectedRow> sampleRejects, Path rejectsFile) {
+
+    public record RejectedRow(long line, String reason, String record) {}
+
+    /*
+     * One-line summary for the console and the import dialog
+     */
+    public String summary() {
+        String summary = String.format("Read %d records: %d books and %d copies created, %d rejected.",
+            recordsRead, booksCreated, copiesCreated, rejectedCount);
+        if (rejectedCount > 0 && rejectsFile != null) {
+            summary += " Rejected rows were written to " + rejectsFile + ".";
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,61 @@
+package com.library.library_system.service;
+
+import org.hibernate.query.Query;
+
+import java.util.Date;
+
+/*
+ * Filter for loan exports and reports
+ * Every part is optional ... null borrow dates leave the range open, a null returned flag matches both
+ */
+public record LoanFilter(Date borrowedFrom, Date borrowedTo, Boolean returned, Integer broncoId) {
+
+    /*
+     * Returns a filter that matches every loan
+     */
+    public static LoanFilter all() {
+        return new LoanFilter(null, null, null, null);
+    }
+
+    /*
+     * Returns a copy of this filter with a different borrow date range, both ends inclusive
+     */
+    public LoanFilter borrowedBetween(Date from, Date to) {
+        return new LoanFilter(from, to, returned, broncoId);
+    }
+
+    /*
+     * Returns a copy of this filter matching only returned (true) or unreturned (false) loans
+     */
+    public LoanFilter withReturned(Boolean returned) {
+        return new LoanFilter(borrowedFrom, borrowedTo, returned, broncoId);
+    }
+
+    /*
+     * Returns a copy of this filter matching only the loans of one student
+     */
+    public LoanFilter forStudent(Integer broncoId) {
+        return new LoanFilter(borrowedFrom, borrowedTo, returned, broncoId);
+    }
+
+    /*
+     * Helper methods used by the services to build the filtered HQL
+     */
+
+    // predicates on a Loan alias, each starting with AND
+    String predicate(String loan) {
+        StringBuilder hql = new StringBuilder();
+        if (borrowedFrom != null) hql.append(" AND ").append(loan).append(".borrowDate >= :borrowedFrom");
+        if (borrowedTo != null) hql.append(" AND ").append(loan).append(".borrowDate <= :borrowedTo");
+        if (returned != null) hql.append(" AND ").append(loan).append(returned ? ".returnDate IS NOT NULL" : ".returnDate IS NULL");
+        if (broncoId != null) hql.append(" AND ").append(loan).append(".student.broncoId = :broncoId");
+        return hql.toString();
+    }
+
+    <T> Query<T> bind(Query<T> query) {
+        if (borrowedFrom != null) query.setParameter("borrowedFrom", borrowedFrom);
+        if (borrowedTo != null) query.setParameter("borrowedTo", borrowedTo);
+        if (broncoId != null) query.setParameter("broncoId", broncoId);
+        return query;
+    }
+}
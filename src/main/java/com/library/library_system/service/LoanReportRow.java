@@ -0,0 +1,23 @@
+package com.library.library_system.service;
+
+import java.util.Date;
+
+/*
+ * One line of the loan report
+ * Rows are ordered by student, due date and loan ID, and a row is also the cursor for the page after it
+ */
+public record LoanReportRow(int loanId, int broncoId, String studentName, Date borrowDate, Date dueDate,
+                            Date returnDate, long copyCount) {
+
+    public boolean isReturned() {
+        return returnDate != null;
+    }
+
+    public boolean isOverdue() {
+        return returnDate == null && dueDate != null && new Date().after(dueDate);
+    }
+
+    public String getStatus() {
+        return isReturned() ? "Returned" : isOverdue() ? "Overdue" : "On loan";
+    }
+}
@@ -0,0 +1,13 @@
+package com.library.library_system.service;
+
+/*
+ * Totals shown above the loan report, computed in one aggregate query
+ */
+public record LoanReportSummary(long loans, long students, long unreturned, long overdue, long copies) {
+
+    @Override
+    public String toString() {
+        return String.format("%d loans for %d students, %d unreturned, %d overdue, %d copies",
+            loans, students, unreturned, overdue, copies);
+    }
+}
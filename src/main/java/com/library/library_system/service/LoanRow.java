@@ -0,0 +1,32 @@
+package com.library.library_system.service;
+
+import com.library.library_system.model.Loan;
+
+import java.util.Date;
+
+/*
+ * One row of the loan table, read-only
+ * Carries the displayed columns of the loan and the name of its student instead of the entities
+ */
+public record LoanRow(int loanId, int broncoId, String studentName, Date borrowDate, Date dueDate, Date returnDate) {
+
+    /*
+     * Builds a row for a loan held as an entity, e.g. one just created
+     */
+    public static LoanRow of(Loan loan) {
+        return new LoanRow(loan.getLoanId(), loan.getStudent().getBroncoId(), loan.getStudent().getName(),
+            loan.getBorrowDate(), loan.getDueDate(), loan.getReturnDate());
+    }
+
+    public LoanRow withReturnDate(Date returnDate) {
+        return new LoanRow(loanId, broncoId, studentName, borrowDate, dueDate, returnDate);
+    }
+
+    public LoanRow withDueDate(Date dueDate) {
+        return new LoanRow(loanId, broncoId, studentName, borrowDate, dueDate, returnDate);
+    }
+
+    public boolean isReturned() {
+        return returnDate != null;
+    }
+}
@@ -1,15 +1,31 @@
 package com.library.library_system.service;
 
+import com.library.library_system.metrics.ServiceMetrics;
 import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.BookStock;
+import com.library.library_system.model.Hold;
 import com.library.library_system.model.Loan;
 import com.library.library_system.model.Student;
 import com.library.library_system.util.SessionFactoryProvider;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.query.Query;
 
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /*
  * Service for the Loan Management View
@@ -18,64 +34,79 @@ import java.util.List;
  */
 public class LoanService {
 
-    /*
-     * Creates a new loan and adds it to the database
-     */
-    public void createLoan(Student student, List<BookCopy> copies, Date borrowDate, Date dueDate) {
-        Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-
-            /*
-             * validate user input
-             */
+    // one report row per loan with its number of copies, shared with the report export
+    static final String REPORT_SELECT = "SELECT new com.library.library_system.service.LoanReportRow("
+        + "l.loanId, s.broncoId, s.name, l.borrowDate, l.dueDate, l.returnDate, COUNT(bc)) "
+        + "FROM Loan l JOIN l.student s LEFT JOIN l.bookCopies bc WHERE 1 = 1";
+    // a student without a name sorts first and a loan without a due date last, the report cursor compares the same keys
+    private static final String REPORT_NAME_KEY = "COALESCE(s.name, '')";
+    private static final String REPORT_DUE_KEY = "COALESCE(l.dueDate, {d '9999-12-31'})";
+    private static final Date REPORT_NO_DUE_DATE = java.sql.Date.valueOf("9999-12-31");
+    static final String REPORT_GROUP_AND_ORDER =
+        " GROUP BY l.loanId, s.broncoId, s.name, l.borrowDate, l.dueDate, l.returnDate"
+        + " ORDER BY " + REPORT_NAME_KEY + ", s.broncoId, " + REPORT_DUE_KEY + ", l.loanId";
 
+    // longest a loan may run from its borrow date, renewals included
+    static final int MAX_LOAN_DAYS = 180;
+    // loans checked and renewed per transaction
+    static final int RENEW_CHUNK_SIZE = 1000;
+    // why each loan cannot be renewed until :due, null when it can, all rules in a single query
+    private static final String RENEWAL_CHECK = "SELECT l.loanId, CASE "
+        + "WHEN l.returnDate IS NOT NULL THEN 'already returned' "
+        + "WHEN l.dueDate < current_date THEN 'overdue' "
+        + "WHEN l.dueDate >= :due THEN 'already due by then' "
+        + "WHEN l.borrowDate < :earliestBorrow THEN 'past the " + MAX_LOAN_DAYS + "-day limit' "
+        + "WHEN EXISTS (SELECT o FROM Loan o WHERE o.student = l.student AND o.returnDate IS NULL AND o.dueDate < current_date) "
+        + "THEN 'student has overdue items' "
+        + "WHEN EXISTS (SELECT h FROM Hold h WHERE h.status = :waiting AND h.bookId IN (SELECT bc.book.bookId FROM l.bookCopies bc)) "
+        + "THEN 'wanted by a hold' "
+        + "END FROM Loan l WHERE l.loanId IN :ids";
 
-            // max 5 book copies per student
-            Long activeCopies = session.createQuery(
-                "SELECT COUNT(bc) FROM Loan l JOIN l.bookCopies bc WHERE l.student.broncoId = :id AND l.returnDate IS NULL", Long.class)
-                .setParameter("id", student.getBroncoId())
-                .uniqueResult();
-            if (activeCopies + copies.size() > 5) {
-                throw new IllegalArgumentException("Student cannot borrow more than 5 book copies at a time.");
-            }
-
-            // no loans if student has overdue items
-            Long overdueCount = session.createQuery(
-                "SELECT COUNT(l) FROM Loan l WHERE l.student.broncoId = :id AND l.returnDate IS NULL AND l.dueDate < current_date", Long.class)
-                .setParameter("id", student.getBroncoId())
-                .uniqueResult();
-            if (overdueCount > 0) {
-                throw new IllegalArgumentException("Student has overdue items and cannot borrow more.");
-            }
+    private final FinePolicy finePolicy = FinePolicy.fromSystemProperties();
 
-            // max loan duration of 180 days
-            long diff = dueDate.getTime() - borrowDate.getTime();
-            long days = diff / (1000 * 60 * 60 * 24);
-            if (days > 180) {
-                throw new IllegalArgumentException("Loan duration cannot exceed 180 days.");
-            }
+    /*
+     * Creates a new loan and adds it to the database
+     */
+    public Loan createLoan(Student student, List<BookCopy> copies, Date borrowDate, Date dueDate) {
+        List<Integer> copyIds = copies.stream().map(BookCopy::getCopyId).collect(Collectors.toList());
+        Loan loan = createLoanForCopyIds(student, copyIds, borrowDate, dueDate);
+        // the loan lists each copy once, swap its references for the given copies
+        Map<Integer, BookCopy> byId = new HashMap<>();
+        copies.forEach(copy -> byId.putIfAbsent(copy.getCopyId(), copy));
+        List<BookCopy> lent = loan.getBookCopies().stream()
+            .map(reference -> byId.get(reference.getCopyId()))
+            .collect(Collectors.toList());
+        for (BookCopy copy : lent) {
+            copy.setBorrowed(true);
+        }
+        loan.setBookCopies(lent);
+        return loan;
+    }
 
-            tx = session.beginTransaction();
+    /*
+     * Creates a new loan for the copies with the given IDs, e.g. copies picked from projection rows
+     * The copies are never loaded, the loan references them by ID
+     * Safe when several desks check out at once: the student row is locked before the rules are checked and the copies
+     * are flagged with one conditional update, so a copy is never lent twice and no student goes past 5 copies
+     */
+    public Loan createLoanForCopyIds(Student student, List<Integer> copyIds, Date borrowDate, Date dueDate) {
 
-            Loan loan = new Loan();
-            loan.setBorrowDate(borrowDate);
-            loan.setDueDate(dueDate);
-            loan.setStudent(student);
-            loan.setBookCopies(copies);
+        /*
+         * validate user input
+         */
 
-            for (BookCopy copy : copies) {
-                copy.setBorrowed(true);
-                session.merge(copy);
-            }
+        // a copy picked twice is lent once and counts once towards the 5-copy limit
+        List<Integer> distinctIds = copyIds.stream().distinct().collect(Collectors.toList());
 
-            session.persist(loan);
-            tx.commit();
+        // max loan duration of 180 days
+        long diff = dueDate.getTime() - borrowDate.getTime();
+        long days = diff / (1000 * 60 * 60 * 24);
+        if (days > MAX_LOAN_DAYS) {
+            throw new IllegalArgumentException("Loan duration cannot exceed " + MAX_LOAN_DAYS + " days.");
+        }
 
-        // handle errors
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            e.printStackTrace();
-            throw e;
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.createLoanForCopyIds")) {
+            return ConflictRetry.run(() -> checkout(student.getBroncoId(), distinctIds, borrowDate, dueDate));
         }
     }
 
@@ -83,10 +114,11 @@ public class LoanService {
      * Retrieves a loan by its ID
      */
     public Loan getLoanById(int id) {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-            return session.createQuery(
-                "SELECT l FROM Loan l LEFT JOIN FETCH l.bookCopies WHERE l.loanId = :id", Loan.class)
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.getLoanById");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery("SELECT l FROM Loan l WHERE l.loanId = :id", Loan.class)
                 .setParameter("id", id)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("Loan.details"))
                 .uniqueResult();
         }
     }
@@ -95,70 +127,180 @@ public class LoanService {
      * Retrieves all loans from the database
      */
     public List<Loan> getAllLoans() {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-            return session.createQuery(
-                "SELECT DISTINCT l FROM Loan l LEFT JOIN FETCH l.bookCopies", Loan.class)
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.getAllLoans");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            // the fetched collection repeats each loan per copy, Hibernate folds the rows back into one loan
+            return session.createQuery("SELECT l FROM Loan l", Loan.class)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("Loan.details"))
                 .list();
         }
     }
 
     /*
-     * Deletes a loan from the database
+     * Retrieves one page of loan rows ordered by ID, optionally filtered by student name
+     * Only the displayed columns are selected, the students and copies of the loans are not loaded
      */
-    public void deleteLoan(int loanId) {
-        Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-            tx = session.beginTransaction();
-            Loan loan = session.get(Loan.class, loanId);
-            if (loan != null) {
-                for (BookCopy copy : loan.getBookCopies()) {
-                    copy.setBorrowed(false);
-                    session.merge(copy);
-                }
-                session.remove(loan);
+    public Page<LoanRow, Integer> getLoansPage(PageRequest<Integer> request) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.getLoansPage");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            String hql = "SELECT new com.library.library_system.service.LoanRow("
+                + "l.loanId, s.broncoId, s.name, l.borrowDate, l.dueDate, l.returnDate) "
+                + "FROM Loan l JOIN l.student s WHERE 1 = 1"
+                + request.keysetPredicate("l.loanId")
+                + (request.hasFilter() ? " AND lower(s.name) LIKE :filter ESCAPE '\\'" : "")
+                + request.orderBy("l.loanId");
+            List<LoanRow> rows = request.bind(session.createQuery(hql, LoanRow.class)).list();
+            return Page.of(rows, request.size(), LoanRow::loanId);
+        }
+    }
+
+    /*
+     * Retrieves one page of the loan report ordered by student name, Bronco ID, due date and loan ID
+     * Grouping and sorting run in the database, and the next page starts after the last row of this one
+     * Only the cursor and size of the request are used, the scope comes from the loan filter
+     */
+    public Page<LoanReportRow, LoanReportRow> getLoanReportPage(LoanFilter filter, PageRequest<LoanReportRow> request) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.getLoanReportPage");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            LoanReportRow after = request.after();
+            String hql = REPORT_SELECT + filter.predicate("l")
+                + (after == null ? "" : " AND (" + REPORT_NAME_KEY + ", s.broncoId, " + REPORT_DUE_KEY + ", l.loanId)"
+                    + " > (:afterName, :afterStudent, :afterDue, :afterId)")
+                + REPORT_GROUP_AND_ORDER;
+            Query<LoanReportRow> query = filter.bind(session.createQuery(hql, LoanReportRow.class));
+            if (after != null) {
+                query.setParameter("afterName", after.studentName() == null ? "" : after.studentName())
+                    .setParameter("afterStudent", after.broncoId())
+                    .setParameter("afterDue", after.dueDate() == null ? REPORT_NO_DUE_DATE : after.dueDate())
+                    .setParameter("afterId", after.loanId());
             }
-            tx.commit();
+            List<LoanReportRow> rows = query.setMaxResults(request.size() + 1).list();
+            return Page.of(rows, request.size(), row -> row);
 
         // handle errors
         } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            e.printStackTrace();
+            System.err.println("Error retrieving loan report: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve loan report", e);
+        }
+    }
+
+    /*
+     * Retrieves the totals of the loan report
+     */
+    public LoanReportSummary getLoanReportSummary(LoanFilter filter) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.getLoanReportSummary");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Object[] totals = filter.bind(session.createQuery(
+                "SELECT COUNT(l), COUNT(DISTINCT l.student.broncoId),"
+                    + " SUM(CASE WHEN l.returnDate IS NULL THEN 1 ELSE 0 END),"
+                    + " SUM(CASE WHEN l.returnDate IS NULL AND l.dueDate < current_date THEN 1 ELSE 0 END)"
+                    + " FROM Loan l WHERE 1 = 1" + filter.predicate("l"), Object[].class))
+                .uniqueResult();
+            Long copies = filter.bind(session.createQuery(
+                "SELECT COUNT(bc) FROM Loan l JOIN l.bookCopies bc WHERE 1 = 1" + filter.predicate("l"), Long.class))
+                .uniqueResult();
+            return new LoanReportSummary(count(totals[0]), count(totals[1]), count(totals[2]), count(totals[3]), count(copies));
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving loan report summary: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve loan report summary", e);
+        }
+    }
+
+    /*
+     * Deletes a loan from the database, retried if another desk changes the loan at the same time
+     */
+    public void deleteLoan(int loanId) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.deleteLoan")) {
+            ConflictRetry.run(() -> {
+                removeLoan(loanId);
+                return null;
+            });
         }
     }
 
     /*
      * Returns a loan and updates the database
+     * Returning a loan that is already returned changes nothing, so a retried or repeated return is harmless
      */
     public void returnLoan(int loanId, Date returnDate) {
-        Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-            tx = session.beginTransaction();
-            Loan loan = session.get(Loan.class, loanId);
-            if (loan != null) {
-                loan.setReturnDate(returnDate);
-                for (BookCopy copy : loan.getBookCopies()) {
-                    copy.setBorrowed(false);
-                    session.merge(copy);
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.returnLoan")) {
+            ConflictRetry.run(() -> {
+                markReturned(loanId, returnDate);
+                return null;
+            });
+        }
+    }
+
+    /*
+     * Moves the due date of an open loan, the loan keeps its row and history
+     * Refused for returned or overdue loans, students with overdue items, copies other students are waiting for,
+     * and due dates more than 180 days after the borrow date
+     */
+    public void renewLoan(int loanId, Date newDueDate) {
+        RenewalResult result = renewLoans(List.of(loanId), newDueDate);
+        if (result.renewed() == 0) {
+            String reason = result.refusals().keySet().stream().findFirst().orElse("loan not found");
+            throw new IllegalArgumentException("Loan cannot be renewed: " + reason + ".");
+        }
+    }
+
+    /*
+     * Renews the given loans until the new due date, loans that break a rule are counted by reason and left alone
+     * Each chunk of loans is checked with one query and renewed with one update, so thousands of loans take a few
+     * dozen statements
+     */
+    public RenewalResult renewLoans(Collection<Integer> loanIds, Date newDueDate) {
+        List<Integer> ids = loanIds.stream().distinct().collect(Collectors.toList());
+        List<Integer> renewed = new ArrayList<>();
+        Map<String, Integer> refusals = new LinkedHashMap<>();
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.renewLoans")) {
+            for (int from = 0; from < ids.size(); from += RENEW_CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + RENEW_CHUNK_SIZE, ids.size()));
+                Map<Integer, String> refused = ConflictRetry.run(() -> renewChunk(chunk, newDueDate));
+                for (int id : chunk) {
+                    if (refused.containsKey(id)) {
+                        refusals.merge(refused.get(id), 1, Integer::sum);
+                    } else {
+                        renewed.add(id);
+                    }
                 }
-                session.merge(loan);
             }
-            tx.commit();
+        }
+        return new RenewalResult(newDueDate, renewed, refusals);
+    }
+
+    /*
+     * Renews every open loan of a student until the new due date
+     */
+    public RenewalResult renewAll(int broncoId, Date newDueDate) {
+        List<Integer> open;
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.renewAll");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            open = session.createQuery(
+                "SELECT l.loanId FROM Loan l WHERE l.student.broncoId = :id AND l.returnDate IS NULL ORDER BY l.loanId", Integer.class)
+                .setParameter("id", broncoId)
+                .list();
 
         // handle errors
         } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            e.printStackTrace();
+            System.err.println("Error retrieving open loans of student " + broncoId + ": " + e.getMessage());
+            throw new RuntimeException("Failed to renew loans", e);
         }
+        return renewLoans(open, newDueDate);
     }
 
     /*
      * Helper method to generate a receipt for a loan
      */
     public String generateReceipt(int loanId) {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-            Loan loan = session.createQuery(
-                "SELECT l FROM Loan l LEFT JOIN FETCH l.bookCopies WHERE l.loanId = :id", Loan.class)
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.generateReceipt");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            // copies and their books come with the loan in one query instead of one query per copy
+            Loan loan = session.createQuery("SELECT l FROM Loan l WHERE l.loanId = :id", Loan.class)
                 .setParameter("id", loanId)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("Loan.receipt"))
                 .uniqueResult();
             if (loan == null) return "Loan not found.";
 
@@ -181,9 +323,262 @@ public class LoanService {
      * Retrieves all overdue loans from the database
      */
     public List<Loan> getOverdueLoans() {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("LoanService.getOverdueLoans");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             return session.createQuery(
-                "FROM Loan WHERE returnDate IS NULL AND dueDate < current_date", Loan.class).list();
+                "FROM Loan WHERE returnDate IS NULL AND dueDate < current_date", Loan.class)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("Loan.student"))
+                .list();
+        }
+    }
+
+    /*
+     * Helper method for aggregate results, which are null when no rows match
+     */
+    private static long count(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    /*
+     * Helper method for the IDs of the copies on a loan
+     */
+    private static List<Integer> copyIds(Loan loan) {
+        return loan.getBookCopies().stream().map(BookCopy::getCopyId).collect(Collectors.toList());
+    }
+
+    /*
+     * Helper method to put the copies of an open loan back, in the caller's transaction
+     * The counter update locks the stock rows of the books first, so their hold queues are read after any hold placed before it committed,
+     * and copies wanted by a hold go to the head of the queue instead of the shelf
+     */
+    private static void releaseCopies(Session session, Loan loan) {
+        BookService.adjustAvailableCounters(session, copyIds(loan), 1);
+        Set<Integer> held = HoldService.allocateReturnedCopies(session, loan.getBookCopies(), new Date());
+        for (BookCopy copy : loan.getBookCopies()) {
+            if (!held.contains(copy.getCopyId())) copy.setBorrowed(false);
+        }
+        BookService.adjustAvailableCounters(session, held, -1);
+    }
+
+    /*
+     * Helper method for one renewal transaction, returns the reason for every loan of the chunk that was not renewed
+     * The stock rows of the books on the loans are locked before the check, in book ID order, so a hold placed on one of them either
+     * committed before the check and is seen by it, or waits until the renewal has committed
+     * The update repeats the loan rules another desk can change in between, a loan returned or renewed meanwhile makes
+     * the counts differ and the chunk is checked again
+     */
+    private Map<Integer, String> renewChunk(List<Integer> loanIds, Date newDueDate) {
+        LocalDate dueDay = new java.sql.Date(newDueDate.getTime()).toLocalDate();
+        Date due = java.sql.Date.valueOf(dueDay);
+        Date earliestBorrow = java.sql.Date.valueOf(dueDay.minusDays(MAX_LOAN_DAYS));
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                // the stock rows are the locks of the hold queues, see HoldService
+                session.createQuery(
+                    "SELECT s FROM BookStock s WHERE s.bookId IN "
+                        + "(SELECT bc.book.bookId FROM Loan l JOIN l.bookCopies bc WHERE l.loanId IN :ids) ORDER BY s.bookId", BookStock.class)
+                    .setParameter("ids", loanIds)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .list();
+
+                Map<Integer, String> refused = new HashMap<>();
+                List<Integer> renewable = new ArrayList<>();
+                Set<Integer> found = new HashSet<>();
+                List<Object[]> checks = session.createQuery(RENEWAL_CHECK, Object[].class)
+                    .setParameter("due", due)
+                    .setParameter("earliestBorrow", earliestBorrow)
+                    .setParameter("waiting", Hold.Status.WAITING)
+                    .setParameter("ids", loanIds)
+                    .list();
+                for (Object[] check : checks) {
+                    found.add((Integer) check[0]);
+                    if (check[1] == null) {
+                        renewable.add((Integer) check[0]);
+                    } else {
+                        refused.put((Integer) check[0], (String) check[1]);
+                    }
+                }
+                for (int id : loanIds) {
+                    if (!found.contains(id)) refused.put(id, "loan not found");
+                }
+
+                if (!renewable.isEmpty()) {
+                    int updated = session.createMutationQuery(
+                        "UPDATE VERSIONED Loan l SET l.dueDate = :due WHERE l.loanId IN :ids "
+                            + "AND l.returnDate IS NULL AND l.dueDate >= current_date AND l.dueDate < :due")
+                        .setParameter("due", due)
+                        .setParameter("ids", renewable)
+                        .executeUpdate();
+                    if (updated != renewable.size()) {
+                        throw new OptimisticLockException("Loans were changed while they were renewed");
+                    }
+                }
+                tx.commit();
+                return refused;
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (RuntimeException e) {
+            if (!ConflictRetry.isConflict(e)) e.printStackTrace();
+            throw e;
+        }
+    }
+
+    /*
+     * Helper method for one checkout transaction, see createLoanForCopyIds
+     * Locking the student row serialises checkouts for the same student, so the copy count cannot be read twice
+     * before either loan is saved, while checkouts for different students never wait on each other
+     */
+    private Loan checkout(int broncoId, List<Integer> copyIds, Date borrowDate, Date dueDate) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                Student student = session.find(Student.class, broncoId, LockModeType.PESSIMISTIC_WRITE);
+                if (student == null) {
+                    throw new IllegalArgumentException("Student not found.");
+                }
+
+                // active copies, overdue items, unpaid fines and copies set aside by holds in a single round trip
+                Object[] eligibility = session.createQuery(
+                    "SELECT COUNT(bc), SUM(CASE WHEN l.dueDate < current_date THEN 1 ELSE 0 END), "
+                        + "(SELECT SUM(f.fineCents - f.finePaidCents) FROM Loan f WHERE f.student.broncoId = :id), "
+                        + "(SELECT COUNT(h) FROM Hold h WHERE h.broncoId = :id AND h.status = :ready AND h.copyId IN :ids) "
+                        + "FROM Loan l LEFT JOIN l.bookCopies bc WHERE l.student.broncoId = :id AND l.returnDate IS NULL", Object[].class)
+                    .setParameter("id", broncoId)
+                    .setParameter("ready", Hold.Status.READY)
+                    .setParameter("ids", copyIds)
+                    .uniqueResult();
+
+                // max 5 book copies per student
+                if (count(eligibility[0]) + copyIds.size() > 5) {
+                    throw new IllegalArgumentException("Student cannot borrow more than 5 book copies at a time.");
+                }
+
+                // no loans if student has overdue items
+                if (count(eligibility[1]) > 0) {
+                    throw new IllegalArgumentException("Student has overdue items and cannot borrow more.");
+                }
+
+                // no loans while unpaid fines are above the limit
+                if (finePolicy.blocksCheckout(count(eligibility[2]))) {
+                    throw new IllegalArgumentException("Student owes " + FinePolicy.format(count(eligibility[2]))
+                        + " in fines and cannot borrow more.");
+                }
+
+                // copies set aside for this student are collected, they are flagged and off the counters already
+                // the hold versions catch an expiry sweep passing the same copies on at the same time
+                List<Integer> fromShelf = copyIds;
+                if (count(eligibility[3]) > 0) {
+                    List<Hold> collected = session.createQuery(
+                        "FROM Hold h WHERE h.broncoId = :id AND h.status = :ready AND h.copyId IN :ids", Hold.class)
+                        .setParameter("id", broncoId)
+                        .setParameter("ready", Hold.Status.READY)
+                        .setParameter("ids", copyIds)
+                        .list();
+                    Date now = new Date();
+                    collected.forEach(hold -> hold.close(Hold.Status.COLLECTED, now));
+                    Set<Integer> heldIds = collected.stream().map(Hold::getCopyId).collect(Collectors.toSet());
+                    fromShelf = copyIds.stream().filter(id -> !heldIds.contains(id)).collect(Collectors.toList());
+                }
+
+                if (!fromShelf.isEmpty()) {
+                    // flag every copy as borrowed in one statement, only if none was borrowed in the meantime
+                    // a concurrent checkout of the same copy waits for this row lock and then finds it borrowed
+                    int borrowed = session.createMutationQuery(
+                        "UPDATE VERSIONED BookCopy bc SET bc.isBorrowed = true WHERE bc.copyId IN :ids AND bc.isBorrowed = false")
+                        .setParameter("ids", fromShelf)
+                        .executeUpdate();
+                    if (borrowed != fromShelf.size()) {
+                        throw new IllegalArgumentException("One or more selected copies are already borrowed or set aside for a hold.");
+                    }
+                    BookService.adjustAvailableCounters(session, fromShelf, -1);
+                }
+
+                // copies as references, so they are not selected
+                Loan loan = new Loan();
+                loan.setBorrowDate(borrowDate);
+                loan.setDueDate(dueDate);
+                loan.setStudent(student);
+                loan.setBookCopies(copyIds.stream()
+                    .map(id -> session.getReference(BookCopy.class, id))
+                    .collect(Collectors.toList()));
+
+                session.persist(loan);
+                tx.commit();
+                return loan;
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (RuntimeException e) {
+            if (!ConflictRetry.isConflict(e)) e.printStackTrace();
+            throw e;
+        }
+    }
+
+    /*
+     * Helper method for one delete transaction, the copies of an open loan become available again
+     * The copies of a returned loan are left alone, they may be out on a newer loan
+     */
+    private void removeLoan(int loanId) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                Loan loan = session.get(Loan.class, loanId);
+                if (loan != null) {
+                    if (loan.getReturnDate() == null) {
+                        releaseCopies(session, loan);
+                    }
+                    session.remove(loan);
+                }
+                tx.commit();
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (RuntimeException e) {
+            if (!ConflictRetry.isConflict(e)) e.printStackTrace();
+            throw e;
+        }
+    }
+
+    /*
+     * Helper method for one return transaction
+     */
+    private void markReturned(int loanId, Date returnDate) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                Loan loan = session.get(Loan.class, loanId);
+                if (loan != null && loan.getReturnDate() == null) {
+                    loan.setReturnDate(returnDate);
+                    // the fine stops growing at the return, the nightly accrual only covers open loans
+                    loan.setFineCents(finePolicy.fineFor(FinePolicy.daysOverdue(loan.getDueDate(), returnDate),
+                        loan.getBookCopies().size()));
+                    releaseCopies(session, loan);
+                }
+                tx.commit();
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (RuntimeException e) {
+            if (!ConflictRetry.isConflict(e)) e.printStackTrace();
+            throw e;
         }
     }
 }
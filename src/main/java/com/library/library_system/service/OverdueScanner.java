@@ -0,0 +1,94 @@
+package com.library.library_system.service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs the overdue scan of OverdueService in background on its own daemon thread
+ * Each run stops after its time budget, a run that did not catch up is followed shortly by the next one,
+ * so a backlog of millions of loans is worked off in bounded steps without holding a connection for long
+ * The interval comes from -Dlibrary.overdue.scan.minutes, 15 minutes by default and 0 turns the scanner off
+ */
+public class OverdueScanner {
+
+    public static final String INTERVAL_PROPERTY = "library.overdue.scan.minutes";
+    static final long DEFAULT_INTERVAL_MINUTES = 15;
+    // time budget of one run
+    static final Duration RUN_BUDGET = Duration.ofSeconds(20);
+    // pause between runs while there is a backlog, leaves the database to the desks in between
+    static final Duration BACKLOG_PAUSE = Duration.ofSeconds(2);
+    // first run once the application has started
+    static final Duration INITIAL_DELAY = Duration.ofSeconds(30);
+
+    private final OverdueService overdueService = new OverdueService();
+    private final ScheduledExecutorService scheduler;
+    private final Duration interval;
+    private final Duration budget;
+    private volatile OverdueService.ScanResult lastResult;
+
+    private OverdueScanner(Duration interval, Duration budget) {
+        this.interval = interval;
+        this.budget = budget;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "overdue-scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Starts the scanner with the interval from the system property, returns null when it is turned off
+     */
+    public static OverdueScanner startIfConfigured() {
+        String minutes = System.getProperty(INTERVAL_PROPERTY, String.valueOf(DEFAULT_INTERVAL_MINUTES));
+        try {
+            long interval = Long.parseLong(minutes.trim());
+            if (interval <= 0) return null;
+            return start(Duration.ofMinutes(interval), RUN_BUDGET);
+        } catch (NumberFormatException e) {
+            System.err.println("Error starting overdue scanner, invalid interval " + minutes + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static OverdueScanner start(Duration interval, Duration budget) {
+        OverdueScanner scanner = new OverdueScanner(interval, budget);
+        scanner.schedule(INITIAL_DELAY);
+        return scanner;
+    }
+
+    /*
+     * Returns the outcome of the last run, null before the first one has finished
+     */
+    public OverdueService.ScanResult getLastResult() {
+        return lastResult;
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    private void schedule(Duration delay) {
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::runOnce, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void runOnce() {
+        Duration next = interval;
+        try {
+            lastResult = overdueService.scanNewlyOverdue(budget);
+            if (!lastResult.caughtUp()) next = BACKLOG_PAUSE;
+        } catch (RuntimeException e) {
+            // already logged by the service, the next run tries again
+        } finally {
+            schedule(next);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.library.library_system.service;
+
+import com.library.library_system.metrics.ServiceMetrics;
+import com.library.library_system.model.OverdueNotice;
+import com.library.library_system.model.ScanCheckpoint;
+import com.library.library_system.util.SessionFactoryProvider;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Service for overdue loans
+ * Finds loans that went past due since the last scan and queues one notice for each in the overdue_notice table
+ * The scan walks the open loans in (due date, loan ID) order from a stored checkpoint, so each loan is read once
+ * instead of every open loan on every run
+ * Loans saved with a due date already behind the checkpoint (more than a day in the past) are not noticed
+ */
+public class OverdueService {
+
+    // name of the checkpoint row of the scan
+    static final String CHECKPOINT = "overdue";
+    // loans read and notices queued per transaction
+    static final int SCAN_BATCH_SIZE = 1000;
+
+    /*
+     * Outcome of one scan, caughtUp is false when the time budget ran out before the last overdue loan
+     */
+    public record ScanResult(int loansScanned, int noticesQueued, boolean caughtUp, long elapsedMillis) {
+
+        public String summary() {
+            return String.format("Scanned %d newly overdue loans and queued %d notices in %d ms%s",
+                loansScanned, noticesQueued, elapsedMillis, caughtUp ? "" : ", more to scan");
+        }
+    }
+
+    /*
+     * Queues a notice for every loan that went past due since the checkpoint, one batch per transaction
+     * Stops at the first batch that ends after the budget, the next scan continues from there
+     */
+    public ScanResult scanNewlyOverdue(Duration budget) {
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        int scanned = 0;
+        int queued = 0;
+        boolean caughtUp = false;
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("OverdueService.scanNewlyOverdue")) {
+            while (!caughtUp && System.nanoTime() < deadline) {
+                int[] batch = scanBatch();
+                scanned += batch[0];
+                queued += batch[1];
+                caughtUp = batch[0] < SCAN_BATCH_SIZE;
+            }
+        }
+        return new ScanResult(scanned, queued, caughtUp, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /*
+     * Retrieves the totals for the overdue dashboard
+     */
+    public OverdueSummary getOverdueSummary() {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("OverdueService.getOverdueSummary");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Object[] overdue = session.createQuery(
+                "SELECT COUNT(l), COUNT(DISTINCT l.student.broncoId), MIN(l.dueDate) FROM Loan l "
+                    + "WHERE l.returnDate IS NULL AND l.dueDate < current_date", Object[].class)
+                .uniqueResult();
+            Long pending = session.createQuery(
+                "SELECT COUNT(n) FROM OverdueNotice n WHERE n.sentAt IS NULL", Long.class)
+                .uniqueResult();
+            ScanCheckpoint checkpoint = session.get(ScanCheckpoint.class, CHECKPOINT);
+            return new OverdueSummary(((Number) overdue[0]).longValue(), ((Number) overdue[1]).longValue(),
+                (Date) overdue[2], pending, checkpoint == null ? null : checkpoint.getScannedAt());
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving overdue summary: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve overdue summary", e);
+        }
+    }
+
+    /*
+     * Retrieves the open loans that are overdue the longest, as loan table rows
+     */
+    public List<LoanRow> getMostOverdueLoans(int limit) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("OverdueService.getMostOverdueLoans");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery(
+                "SELECT new com.library.library_system.service.LoanRow("
+                    + "l.loanId, s.broncoId, s.name, l.borrowDate, l.dueDate, l.returnDate) "
+                    + "FROM Loan l JOIN l.student s WHERE l.returnDate IS NULL AND l.dueDate < current_date "
+                    + "ORDER BY l.dueDate, l.loanId", LoanRow.class)
+                .setMaxResults(limit)
+                .list();
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving overdue loans: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve overdue loans", e);
+        }
+    }
+
+    /*
+     * Retrieves the oldest notices waiting to be sent
+     */
+    public List<OverdueNotice> getPendingNotices(int limit) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("OverdueService.getPendingNotices");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery(
+                "FROM OverdueNotice n WHERE n.sentAt IS NULL ORDER BY n.noticeId", OverdueNotice.class)
+                .setMaxResults(limit)
+                .list();
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error retrieving pending notices: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve pending notices", e);
+        }
+    }
+
+    /*
+     * Marks notices as sent in one statement, returns the number of notices that were still pending
+     */
+    public int markNoticesSent(Collection<Integer> noticeIds) {
+        if (noticeIds.isEmpty()) return 0;
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("OverdueService.markNoticesSent");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                int sent = session.createMutationQuery(
+                    "UPDATE OverdueNotice n SET n.sentAt = :now WHERE n.noticeId IN :ids AND n.sentAt IS NULL")
+                    .setParameter("now", new Date())
+                    .setParameter("ids", noticeIds)
+                    .executeUpdate();
+                tx.commit();
+                return sent;
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error marking notices " + noticeIds + " as sent: " + e.getMessage());
+            throw new RuntimeException("Failed to mark notices as sent", e);
+        }
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    /*
+     * Helper method for one scan transaction, returns the loans read and the notices queued
+     * The notices and the checkpoint commit together, so a failed batch is scanned again and never queued twice
+     */
+    private int[] scanBatch() {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                // the checkpoint row lock keeps scans from overlapping, also across application instances
+                ScanCheckpoint checkpoint = session.find(ScanCheckpoint.class, CHECKPOINT, LockModeType.PESSIMISTIC_WRITE);
+                if (checkpoint == null) {
+                    checkpoint = new ScanCheckpoint(CHECKPOINT, new Date(0), 0);
+                    session.persist(checkpoint);
+                }
+
+                // range scan of the open-loan due date index from the checkpoint on
+                List<Object[]> loans = session.createQuery(
+                    "SELECT l.loanId, l.student.broncoId, l.dueDate FROM Loan l "
+                        + "WHERE l.returnDate IS NULL AND l.dueDate < current_date "
+                        + "AND (l.dueDate, l.loanId) > (:dueDate, :loanId) "
+                        + "ORDER BY l.dueDate, l.loanId", Object[].class)
+                    .setParameter("dueDate", checkpoint.getDueDate())
+                    .setParameter("loanId", checkpoint.getLoanId())
+                    .setMaxResults(SCAN_BATCH_SIZE)
+                    .list();
+
+                int queued = 0;
+                if (!loans.isEmpty()) {
+                    List<Integer> loanIds = loans.stream().map(row -> (Integer) row[0]).toList();
+                    // after the checkpoint was reset for a rescan, loans noticed before keep their single notice
+                    Set<Integer> noticed = new HashSet<>(session.createQuery(
+                        "SELECT n.loanId FROM OverdueNotice n, Loan l "
+                            + "WHERE l.loanId = n.loanId AND n.dueDate = l.dueDate AND n.loanId IN :ids", Integer.class)
+                        .setParameter("ids", loanIds)
+                        .list());
+                    Date now = new Date();
+                    for (Object[] row : loans) {
+                        if (noticed.contains((Integer) row[0])) continue;
+                        session.persist(new OverdueNotice((Integer) row[0], (Integer) row[1], (Date) row[2], now));
+                        queued++;
+                    }
+                    Object[] last = loans.get(loans.size() - 1);
+                    checkpoint.advance((Date) last[2], (Integer) last[0]);
+                }
+                checkpoint.setScannedAt(new Date());
+                tx.commit();
+                return new int[] {loans.size(), queued};
+            } catch (RuntimeException e) {
+                // roll back while the session still holds its connection
+                ConflictRetry.rollback(tx, e);
+                throw e;
+            }
+
+        // handle errors
+        } catch (Exception e) {
+            System.err.println("Error scanning for overdue loans: " + e.getMessage());
+            throw new RuntimeException("Failed to scan for overdue loans", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.library.library_system.service;
+
+import java.util.Date;
+
+/*
+ * Totals shown on the overdue dashboard, oldestDueDate and lastScan are null when there is nothing to show
+ */
+public record OverdueSummary(long overdueLoans, long students, Date oldestDueDate, long pendingNotices, Date lastScan) {
+
+    @Override
+    public String toString() {
+        return String.format("%d overdue loans for %d students%s, %d notices waiting, %s",
+            overdueLoans, students, oldestDueDate == null ? "" : String.format(", oldest due %tF", oldestDueDate),
+            pendingNotices, lastScan == null ? "not scanned yet" : String.format("last scan %1$tF %1$tR", lastScan));
+    }
+}
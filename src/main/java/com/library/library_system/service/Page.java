@@ -0,0 +1,28 @@
+package com.library.library_system.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * One page of a keyset-paginated listing
+ * nextCursor is the key of the last row and is null when there are no further pages
+ * Listings ordered by ID are keyed by the ID, listings sorted on several columns by the whole row
+ */
+public record Page<T, K>(List<T> items, K nextCursor) {
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /*
+     * Builds a page from rows fetched with one extra row beyond the requested size
+     */
+    static <T, K> Page<T, K> of(List<T> rows, int size, Function<T, K> key) {
+        if (rows.size() <= size) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, size));
+        return new Page<>(items, key.apply(items.get(size - 1)));
+    }
+}
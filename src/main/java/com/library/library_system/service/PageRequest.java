@@ -0,0 +1,61 @@
+package com.library.library_system.service;
+
+import org.hibernate.query.Query;
+
+/*
+ * Request for one page of a keyset-paginated listing
+ * A page starts after the key of the last row of the previous page, for most listings the ID of that row
+ */
+public record PageRequest<K>(K after, int size, boolean descending, String filter) {
+
+    /*
+     * Returns a request for the first page in ascending order
+     */
+    public static <K> PageRequest<K> first(int size) {
+        return new PageRequest<>(null, size, false, null);
+    }
+
+    /*
+     * Returns a request for the page following the given page
+     */
+    public PageRequest<K> next(Page<?, K> page) {
+        return new PageRequest<>(page.nextCursor(), size, descending, filter);
+    }
+
+    /*
+     * Returns a copy of this request with a different text filter
+     */
+    public PageRequest<K> withFilter(String filter) {
+        return new PageRequest<>(null, size, descending, filter);
+    }
+
+    public boolean hasFilter() {
+        return filter != null && !filter.isBlank();
+    }
+
+    /*
+     * Helper methods used by the services to build the paged HQL
+     */
+
+    // keyset predicate, only present after the first page
+    String keysetPredicate(String keyPath) {
+        if (after == null) return "";
+        return " AND " + keyPath + (descending ? " < " : " > ") + ":after";
+    }
+
+    String orderBy(String keyPath) {
+        return " ORDER BY " + keyPath + (descending ? " DESC" : " ASC");
+    }
+
+    // binds the cursor and filter and fetches one extra row to detect whether another page exists
+    // the filter is matched literally, its wildcards are escaped for the ESCAPE '\' of the LIKE predicates
+    <T> Query<T> bind(Query<T> query) {
+        if (after != null) query.setParameter("after", after);
+        if (hasFilter()) query.setParameter("filter", "%" + escapeLike(filter.trim().toLowerCase()) + "%");
+        return query.setMaxResults(size + 1);
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
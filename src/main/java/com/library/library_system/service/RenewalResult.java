@@ -0,0 +1,22 @@
+package com.library.library_system.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Outcome of a renewal, read-only
+ * refusals counts the loans that were not renewed by reason
+ */
+public record RenewalResult(Date dueDate, List<Integer> renewedIds, Map<String, Integer> refusals) {
+
+    public int renewed() {
+        return renewedIds.size();
+    }
+
+    public String summary() {
+        StringBuilder text = new StringBuilder(String.format("Renewed %d loans until %tF", renewed(), dueDate));
+        refusals.forEach((reason, count) -> text.append(String.format(", %d not renewed: %s", count, reason)));
+        return text.toString();
+    }
+}
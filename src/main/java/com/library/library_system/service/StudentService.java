@@ -1,11 +1,14 @@
 package com.library.library_system.service;
 
 
+import com.library.library_system.metrics.ServiceMetrics;
+import com.library.library_system.model.Hold;
 import com.library.library_system.model.Student;
 import com.library.library_system.util.SessionFactoryProvider;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 
+import java.util.Date;
 import java.util.List;
 
 /*
@@ -20,13 +23,15 @@ public class StudentService {
      */
     public void addStudent(Student student) {
         Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("StudentService.addStudent");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             tx = session.beginTransaction();
             session.persist(student);
             tx.commit();
         } catch (Exception e) {
             if (tx != null) tx.rollback();
             e.printStackTrace();
+            throw e;
         }
     }
 
@@ -34,7 +39,8 @@ public class StudentService {
      * Retrieves a student by their broncoId
      */
     public Student getStudentById(int broncoId) {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("StudentService.getStudentById");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             return session.get(Student.class, broncoId);
         }
     }
@@ -43,8 +49,28 @@ public class StudentService {
      * Retrieves all students from the database
      */
     public List<Student> getAllStudents() {
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
-            return session.createQuery("FROM Student", Student.class).list();
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("StudentService.getAllStudents");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery("FROM Student", Student.class)
+                .setCacheable(true)
+                .list();
+        }
+    }
+
+    /*
+     * Retrieves one page of students ordered by bronco ID, optionally filtered by name or degree
+     */
+    public Page<Student, Integer> getStudentsPage(PageRequest<Integer> request) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("StudentService.getStudentsPage");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            String hql = "FROM Student s WHERE 1 = 1"
+                + request.keysetPredicate("s.broncoId")
+                + (request.hasFilter()
+                    ? " AND (lower(s.name) LIKE :filter ESCAPE '\\' OR lower(s.degree) LIKE :filter ESCAPE '\\')"
+                    : "")
+                + request.orderBy("s.broncoId");
+            List<Student> rows = request.bind(session.createQuery(hql, Student.class)).list();
+            return Page.of(rows, request.size(), Student::getBroncoId);
         }
     }
 
@@ -53,7 +79,8 @@ public class StudentService {
      */
     public void updateStudentAddress(int broncoId, String newAddress) {
         Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("StudentService.updateStudentAddress");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             tx = session.beginTransaction();
             Student student = session.get(Student.class, broncoId);
             if (student != null) {
@@ -74,7 +101,8 @@ public class StudentService {
      */
     public void updateStudentDegree(int broncoId, String newDegree) {
         Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("StudentService.updateStudentDegree");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             tx = session.beginTransaction();
             Student student = session.get(Student.class, broncoId);
             if (student != null) {
@@ -95,7 +123,8 @@ public class StudentService {
      */
     public void updateStudent(Student student) {
         Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("StudentService.updateStudent");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             tx = session.beginTransaction();
             session.merge(student);
             tx.commit();
@@ -112,7 +141,8 @@ public class StudentService {
      */
     public boolean deleteStudent(int broncoId) {
         Transaction tx = null;
-        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+        try (ServiceMetrics.Timer timer = ServiceMetrics.time("StudentService.deleteStudent");
+             Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
             tx = session.beginTransaction();
 
             Student student = session.get(Student.class, broncoId);
@@ -132,6 +162,15 @@ public class StudentService {
                 return false;
             }
 
+            // waiting holds leave the queue, a copy already set aside goes to the next hold when it expires
+            session.createMutationQuery(
+                "UPDATE Hold h SET h.status = :cancelled, h.closedAt = :now WHERE h.broncoId = :broncoId AND h.status = :waiting")
+                .setParameter("cancelled", Hold.Status.CANCELLED)
+                .setParameter("now", new Date())
+                .setParameter("broncoId", broncoId)
+                .setParameter("waiting", Hold.Status.WAITING)
+                .executeUpdate();
+
             session.remove(student);
             tx.commit();
             System.out.println("Student deleted.");
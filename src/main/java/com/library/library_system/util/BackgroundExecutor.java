@@ -0,0 +1,156 @@
+package com.library.library_system.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Utility class for the Background Executor
+ * Runs every background task of the application on one bounded pool of daemon threads
+ * Loads are keyed per owner so a newer load replaces a pending one and a scene switch cancels them all
+ */
+public class BackgroundExecutor {
+
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreads());
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // loads in flight, by owner and key
+    private static final Map<LoadKey, Future<?>> loads = new ConcurrentHashMap<>();
+
+    private static final LongAdder completedTasks = new LongAdder();
+    private static final LongAdder queueWaitNanos = new LongAdder();
+    private static final LongAdder runNanos = new LongAdder();
+    private static final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Long::max, 0);
+    private static final LongAccumulator maxRunNanos = new LongAccumulator(Long::max, 0);
+
+    private record LoadKey(Object owner, Object key) {
+        // owners are compared by identity, keys by value
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof LoadKey that && owner == that.owner && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(owner) + key.hashCode();
+        }
+    }
+
+    private BackgroundExecutor() {}
+
+    /*
+     * Submits a read that belongs to an owner, usually a controller
+     * A pending or running load with the same owner and key is cancelled so duplicate reloads coalesce into the latest
+     */
+    public static void load(Object owner, Object key, RunnableFuture<?> task) {
+        LoadKey loadKey = new LoadKey(owner, key);
+        Future<?> previous = loads.put(loadKey, task);
+        if (previous != null) previous.cancel(true);
+        executor.execute(timed(task, () -> loads.remove(loadKey, task)));
+    }
+
+    /*
+     * Submits a task that must not be cancelled when the user switches scenes, such as a write
+     */
+    public static void run(RunnableFuture<?> task) {
+        executor.execute(timed(task, () -> {}));
+    }
+
+    /*
+     * Cancels every load submitted by an owner, called when its scene is left
+     */
+    public static void cancelAll(Object owner) {
+        loads.forEach((key, task) -> {
+            if (key.owner == owner && loads.remove(key, task)) {
+                task.cancel(true);
+            }
+        });
+    }
+
+    /*
+     * Stops accepting work and interrupts running tasks
+     */
+    public static void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * Getters for the executor metrics
+     */
+
+    public static int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public static int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public static long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    public static double getAverageQueueWaitMillis() {
+        long count = completedTasks.sum();
+        return count == 0 ? 0 : queueWaitNanos.sum() / 1e6 / count;
+    }
+
+    public static double getMaxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1e6;
+    }
+
+    public static double getAverageRunMillis() {
+        long count = completedTasks.sum();
+        return count == 0 ? 0 : runNanos.sum() / 1e6 / count;
+    }
+
+    public static double getMaxRunMillis() {
+        return maxRunNanos.get() / 1e6;
+    }
+
+    /*
+     * Helper Methods
+     */
+
+    // wraps a task to record how long it waited in the queue and how long it ran
+    private static Runnable timed(RunnableFuture<?> task, Runnable onDone) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long started = System.nanoTime();
+            try {
+                if (!task.isCancelled()) task.run();
+            } finally {
+                long finished = System.nanoTime();
+                onDone.run();
+                completedTasks.increment();
+                queueWaitNanos.add(started - submitted);
+                maxQueueWaitNanos.accumulate(started - submitted);
+                runNanos.add(finished - started);
+                maxRunNanos.accumulate(finished - started);
+            }
+        };
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "library-background-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
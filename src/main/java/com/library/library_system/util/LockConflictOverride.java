@@ -0,0 +1,25 @@
+package com.library.library_system.util;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+/*
+ * Utility class for the Lock Conflict Override
+ * Keeps a pooled connection in the pool when its statement lost a lock race ... H2 reports a lock timeout as an
+ * SQLTimeoutException, which HikariCP would otherwise take for a broken connection and close under the transaction
+ * that still has to roll back
+ * Set as hibernate.hikari.exceptionOverrideClassName in hibernate.cfg.xml
+ */
+public class LockConflictOverride implements SQLExceptionOverride {
+
+    // lock timeout on H2, serialization failure, deadlock and lock not available on PostgreSQL
+    private static final Set<String> LOCK_CONFLICT_STATES = Set.of("HYT00", "40001", "40P01", "55P03");
+
+    @java.lang.Override
+    public Override adjudicate(SQLException sqlException) {
+        String state = sqlException.getSQLState();
+        return state != null && LOCK_CONFLICT_STATES.contains(state) ? Override.DO_NOT_EVICT : Override.CONTINUE_EVICT;
+    }
+}
@@ -0,0 +1,112 @@
+package com.library.library_system.util;
+
+import com.library.library_system.metrics.LatencyHistogram;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Utility class for the Connection Pool Metrics
+ * Collects pool occupancy and connection wait times reported by HikariCP
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private volatile PoolStats poolStats;
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireCount.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+                acquireLatency.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    /*
+     * Getters for the current pool state
+     */
+
+    public int getActiveConnections() {
+        return poolStats != null ? poolStats.getActiveConnections() : 0;
+    }
+
+    public int getIdleConnections() {
+        return poolStats != null ? poolStats.getIdleConnections() : 0;
+    }
+
+    public int getTotalConnections() {
+        return poolStats != null ? poolStats.getTotalConnections() : 0;
+    }
+
+    public int getPendingThreads() {
+        return poolStats != null ? poolStats.getPendingThreads() : 0;
+    }
+
+    /*
+     * Getters for the cumulative wait and usage counters
+     */
+
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = acquireCount.sum();
+        return count == 0 ? 0 : (double) acquireNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxWaitMillis() {
+        return (double) maxAcquireNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getAverageUsageMillis() {
+        long count = acquireCount.sum();
+        return count == 0 ? 0 : (double) usageMillis.sum() / count;
+    }
+
+    public long getConnectionTimeouts() {
+        return timeouts.sum();
+    }
+
+    /*
+     * Returns the distribution of connection wait times
+     */
+    public LatencyHistogram getAcquireLatency() {
+        return acquireLatency;
+    }
+
+    /*
+     * toString method to display a one line summary of the pool
+     */
+    @Override
+    public String toString() {
+        return String.format("active=%d idle=%d total=%d pending=%d acquired=%d avgWait=%.3fms maxWait=%.3fms timeouts=%d",
+            getActiveConnections(), getIdleConnections(), getTotalConnections(), getPendingThreads(),
+            getAcquireCount(), getAverageWaitMillis(), getMaxWaitMillis(), getConnectionTimeouts());
+    }
+}
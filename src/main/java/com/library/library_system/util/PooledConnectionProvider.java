@@ -0,0 +1,60 @@
+package com.library.library_system.util;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Stoppable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/*
+ * Utility class for the Pooled Connection Provider
+ * Hands Hibernate connections from the HikariCP pool and closes the pool with the session factory
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Stoppable {
+
+    private final HikariDataSource dataSource;
+
+    public PooledConnectionProvider(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return unwrapType.isAssignableFrom(HikariDataSource.class) || unwrapType.isAssignableFrom(getClass());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isAssignableFrom(HikariDataSource.class) || DataSource.class.equals(unwrapType)) {
+            return (T) dataSource;
+        }
+        if (unwrapType.isAssignableFrom(getClass())) {
+            return (T) this;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    @Override
+    public void stop() {
+        dataSource.close();
+    }
+}
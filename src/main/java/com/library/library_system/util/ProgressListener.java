@@ -0,0 +1,16 @@
+package com.library.library_system.util;
+
+/*
+ * Utility interface for the Progress Listener
+ * Receives progress updates from long-running bulk operations
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    ProgressListener NONE = (done, total) -> {};
+
+    /*
+     * Called after each committed chunk with the number of rows processed so far
+     */
+    void onProgress(long done, long total);
+}
@@ -0,0 +1,63 @@
+package com.library.library_system.util;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.sql.Statement;
+
+/*
+ * Utility class for the Schema Migrations
+ * Applies PostgreSQL-specific changes that hbm2ddl cannot express, after the session factory is built
+ * Every statement is idempotent and a failure is logged without stopping the application
+ */
+public class SchemaMigrations {
+
+    private static final String[] POSTGRES_MIGRATIONS = {
+        // ids used to come from identity columns ... move the pooled sequences past existing rows
+        "SELECT setval('book_seq', GREATEST((SELECT last_value FROM book_seq), (SELECT COALESCE(MAX(book_id), 0) FROM book)))",
+        "SELECT setval('bookcopy_seq', GREATEST((SELECT last_value FROM bookcopy_seq), (SELECT COALESCE(MAX(copy_id), 0) FROM bookcopy)))",
+        // the loan report orders by student name and filters loans by student
+        "CREATE INDEX IF NOT EXISTS student_name_idx ON student (name, bronco_id)",
+        "CREATE INDEX IF NOT EXISTS loan_student_due_idx ON loan (bronco_id, dueDate)",
+        // the overdue scan and dashboard only read open loans, in due date order
+        "CREATE INDEX IF NOT EXISTS loan_open_due_idx ON loan (dueDate, loan_id) WHERE returnDate IS NULL",
+        // notices waiting to be sent, the queue is read oldest first
+        "CREATE INDEX IF NOT EXISTS overdue_notice_pending_idx ON overdue_notice (notice_id) WHERE sentAt IS NULL",
+        // full-text and trigram search for PostgresSearchBackend, generated columns need PostgreSQL 12 or later
+        "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+        "ALTER TABLE book ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS ("
+            + "setweight(to_tsvector('simple', coalesce(title, '')), 'A')"
+            + " || setweight(to_tsvector('simple', replace(coalesce(isbn, ''), '-', '')), 'A')"
+            + " || setweight(to_tsvector('simple', coalesce(authors, '')), 'B')"
+            + " || setweight(to_tsvector('simple', coalesce(publisher, '')), 'C')"
+            + " || setweight(to_tsvector('simple', coalesce(description, '')), 'D')) STORED",
+        "CREATE INDEX IF NOT EXISTS book_search_vector_idx ON book USING GIN (search_vector)",
+        "CREATE INDEX IF NOT EXISTS book_title_trgm_idx ON book USING GIN (title gin_trgm_ops)",
+        "CREATE INDEX IF NOT EXISTS book_authors_trgm_idx ON book USING GIN (authors gin_trgm_ops)",
+    };
+
+    private SchemaMigrations() {}
+
+    /*
+     * Runs the migrations for the database the session factory is connected to
+     */
+    public static void apply(SessionFactory sessionFactory) {
+        Dialect dialect = ((SessionFactoryImplementor) sessionFactory).getJdbcServices().getDialect();
+        if (!(dialect instanceof PostgreSQLDialect)) return;
+
+        try (Session session = sessionFactory.openSession()) {
+            session.doWork(connection -> {
+                for (String sql : POSTGRES_MIGRATIONS) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(sql);
+                    } catch (Exception e) {
+                        System.err.println("Schema migration failed: " + sql + ": " + e.getMessage());
+                    }
+                }
+            });
+        }
+    }
+}
@@ -1,27 +1,99 @@
 package com.library.library_system.util;
 
 
+import com.library.library_system.metrics.SqlLog;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 
+import java.util.Properties;
+
 /*
  * Utility class for the Session Factory
  * Handles the creation and retrieval of the session factory
+ * Connections are served from a HikariCP pool configured by the hibernate.hikari.* properties
  */
 public class SessionFactoryProvider {
 
+    private static final String HIKARI_PREFIX = "hibernate.hikari.";
+
+    private static final PoolMetrics poolMetrics = new PoolMetrics();
+    private static HikariDataSource dataSource;
     private static final SessionFactory sessionFactory = buildSessionFactory();
 
     private static SessionFactory buildSessionFactory() {
         try {
-            return new Configuration().configure("hibernate.cfg.xml").buildSessionFactory();
+            Configuration configuration = new Configuration().configure("hibernate.cfg.xml");
+            applySystemOverrides(configuration);
+            dataSource = buildDataSource(configuration.getProperties());
+            configuration.getProperties().put(AvailableSettings.CONNECTION_PROVIDER, new PooledConnectionProvider(dataSource));
+            // SQL logging is switched at runtime instead of through hibernate.show_sql
+            configuration.setStatementInspector(SqlLog.INSTANCE);
+            SessionFactory factory = configuration.buildSessionFactory();
+            SchemaMigrations.apply(factory);
+            return factory;
         } catch (Exception ex) {
             System.err.println("SessionFactory creation failed: " + ex);
+            if (dataSource != null) dataSource.close();
             throw new ExceptionInInitializerError(ex);
         }
     }
 
+    /*
+     * Lets any hibernate.* setting from hibernate.cfg.xml be overridden with a -D system property
+     */
+    private static void applySystemOverrides(Configuration configuration) {
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("hibernate.")) {
+                configuration.setProperty(name, System.getProperty(name));
+            }
+        }
+    }
+
+    /*
+     * Builds the pooled DataSource from the connection.* and hibernate.hikari.* settings
+     */
+    private static HikariDataSource buildDataSource(Properties settings) {
+        Properties poolSettings = new Properties();
+        for (String name : settings.stringPropertyNames()) {
+            if (name.startsWith(HIKARI_PREFIX)) {
+                poolSettings.setProperty(name.substring(HIKARI_PREFIX.length()), settings.getProperty(name));
+            }
+        }
+
+        HikariConfig config = new HikariConfig(poolSettings);
+        config.setJdbcUrl(connectionSetting(settings, "url"));
+        config.setUsername(connectionSetting(settings, "username"));
+        config.setPassword(connectionSetting(settings, "password"));
+        String driverClass = connectionSetting(settings, "driver_class");
+        if (driverClass != null) config.setDriverClassName(driverClass);
+        config.setMetricsTrackerFactory(poolMetrics);
+        return new HikariDataSource(config);
+    }
+
+    // reads a connection.* setting, preferring the hibernate.* form used by overrides
+    private static String connectionSetting(Properties settings, String key) {
+        String value = settings.getProperty("hibernate.connection." + key);
+        return value != null ? value : settings.getProperty("connection." + key);
+    }
+
     public static SessionFactory getSessionFactory() {
         return sessionFactory;
     }
-}
\ No newline at end of file
+
+    /*
+     * Returns live statistics for the connection pool
+     */
+    public static PoolMetrics getPoolMetrics() {
+        return poolMetrics;
+    }
+
+    /*
+     * Closes the session factory, which also releases every pooled connection
+     */
+    public static void shutdown() {
+        sessionFactory.close();
+    }
+}
@@ -0,0 +1,77 @@
+package com.library.library_system.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Unit tests for the in-memory book search index.
+ */
+public class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new BookSearchIndex();
+        index.index(1, "The Hobbit", "J. R. R. Tolkien", "Allen & Unwin", "A hobbit goes on an adventure", "978-0-261-10221-7");
+        index.index(2, "The Lord of the Rings", "J. R. R. Tolkien", "Allen & Unwin", "The One Ring", "9780261103252");
+        index.index(3, "Hobbies for Everyone", "Ann Lee", "Penguin", "Pastimes", "0140449132");
+        index.index(4, "Les Misérables", "Victor Hugo", "Penguin", "Jean Valjean", "9780140444308");
+    }
+
+    @Test
+    public void matchesAllTokensAndRanksTitleFirst() {
+        assertEquals(List.of(1, 2), ids("tolkien"));
+        assertEquals(List.of(2), ids("tolkien rings"));
+        assertEquals(List.of(1), ids("hobbit"));
+    }
+
+    @Test
+    public void matchesLastTokenAsPrefix() {
+        assertEquals(List.of(1, 3), ids("hobb"));
+        assertEquals(List.of(4), ids("penguin mis"));
+    }
+
+    @Test
+    public void matchesMisspelledTokens() {
+        assertEquals(List.of(4), ids("miserabels"));
+        assertEquals(List.of(1, 2), ids("tolkein"));
+    }
+
+    @Test
+    public void matchesIsbnWithOrWithoutHyphens() {
+        assertEquals(List.of(1), ids("978-0-261-10221-7"));
+        assertEquals(List.of(2), ids("9780261103"));
+    }
+
+    @Test
+    public void updatesAndRemovesBooks() {
+        index.index(3, "Gardening", "Ann Lee", "Penguin", null, null);
+        assertEquals(List.of(1), ids("hobb"));
+        assertEquals(List.of(3), ids("gardening"));
+        index.remove(1);
+        assertTrue(ids("hobbit").isEmpty());
+        assertEquals(List.of(2), ids("tolkien"));
+    }
+
+    @Test
+    public void keepsNewerEntriesDuringRebuild() {
+        index.beginRebuild();
+        index.index(5, "Dune", "Frank Herbert", null, null, null);
+        index.rebuildEntry(5, "Old Title", null, null, null, null);
+        index.rebuildEntry(6, "Emma", "Jane Austen", null, null, null);
+        index.finishRebuild();
+        assertEquals(List.of(5), ids("dune"));
+        assertEquals(List.of(6), ids("emma"));
+        assertTrue(ids("hobbit").isEmpty());
+    }
+
+    private List<Integer> ids(String query) {
+        return index.search(query, 10).stream().map(SearchHit::bookId).toList();
+    }
+}
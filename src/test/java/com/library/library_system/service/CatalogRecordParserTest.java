@@ -0,0 +1,59 @@
+package com.library.library_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.library_system.service.CatalogRecordParser.Format;
+import com.library.library_system.service.CatalogRecordParser.ParsedRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Unit tests for the catalog import parser.
+ */
+public class CatalogRecordParserTest {
+
+    private final CatalogRecordParser csv = new CatalogRecordParser(Format.CSV,
+        "ISBN,Title,Authors,Number of Pages,Publication Date,Barcode,Location");
+
+    @Test
+    public void parsesQuotedCsvRecord() {
+        ParsedRow row = csv.parse(2, "978-0-306-40615-7,\"Signals, \"\"Noise\"\"\",Ann Lee,320,1999,BC-1,Stacks");
+        assertFalse(row.isRejected(), row.error());
+        assertEquals("9780306406157", row.book().getIsbn());
+        assertEquals("Signals, \"Noise\"", row.book().getTitle());
+        assertEquals(320, row.book().getNumberOfPages());
+        assertEquals("BC-1", row.barcode());
+        assertEquals("Stacks", row.location());
+    }
+
+    @Test
+    public void rejectsInvalidRecords() {
+        assertEquals("Invalid ISBN 9780306406158", csv.parse(2, "9780306406158,Title,,,,,").error());
+        assertEquals("Missing title", csv.parse(3, "0306406152,,,,,,").error());
+        assertEquals("Invalid number of pages -4", csv.parse(4, "0306406152,Title,,-4,,,").error());
+        assertTrue(csv.parse(5, "0306406152,\"Title,,,,,").isRejected());
+    }
+
+    @Test
+    public void parsesJsonLine() {
+        CatalogRecordParser json = new CatalogRecordParser(Format.JSONL, null);
+        ParsedRow row = json.parse(1, "{\"isbn\": \"080442957X\", \"title\": \"A \\\"B\\\"\", \"pages\": 12, \"barcode\": null}");
+        assertFalse(row.isRejected(), row.error());
+        assertEquals("080442957X", row.book().getIsbn());
+        assertEquals("A \"B\"", row.book().getTitle());
+        assertEquals(12, row.book().getNumberOfPages());
+        assertEquals(null, row.barcode());
+        assertTrue(json.parse(2, "{\"isbn\": [1]}").isRejected());
+    }
+
+    @Test
+    public void splitsCsvWithEmbeddedLineBreak() {
+        String record = "a,\"b\nc\",d";
+        assertFalse(CatalogRecordParser.hasOpenQuote(record));
+        assertTrue(CatalogRecordParser.hasOpenQuote("a,\"b"));
+        assertEquals(List.of("a", "b\nc", "d"), CatalogRecordParser.splitCsv(record, ','));
+    }
+}
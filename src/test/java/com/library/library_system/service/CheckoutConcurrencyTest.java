@@ -0,0 +1,211 @@
+package com.library.library_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.library_system.model.Book;
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.Loan;
+import com.library.library_system.model.Student;
+import com.library.library_system.util.ProgressListener;
+import com.library.library_system.util.SessionFactoryProvider;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Stress test for concurrent checkouts: several desks lend and return a small pool of copies to a few students
+ * at once, then every copy must be in at most one open loan, match its borrowed flag, and no student may hold
+ * more than 5 copies. A checkout that waits on a lock past the lock timeout must be retried, not fail. Runs against the
+ * in-memory H2 database configured for surefire and removes its rows afterwards.
+ */
+public class CheckoutConcurrencyTest {
+
+    private static final int DESKS = 8;
+    private static final int CHECKOUTS_PER_DESK = 60;
+    private static final int COPIES = 30;
+    private static final int STUDENTS = 6;
+    private static final int FIRST_BRONCO_ID = 7100;
+    // longer than the lock timeout of H2 (2 seconds by default)
+    private static final long PAST_LOCK_TIMEOUT_MILLIS = 2500;
+
+    private static Book book;
+    private static List<Integer> copyIds;
+    private static List<Student> students;
+    // a student and a copy of their own for the lock timeout test, the stress test never touches them
+    private static Student waiting;
+    private static BookCopy spare;
+
+    @BeforeAll
+    public static void createFixture() {
+        book = new Book();
+        book.setIsbn("9780262033848");
+        book.setTitle("Introduction to Algorithms");
+        new BookService().createBook(book);
+
+        List<BookCopy> copies = new ArrayList<>();
+        for (int i = 0; i < COPIES; i++) {
+            BookCopy copy = new BookCopy();
+            copy.setBook(book);
+            copy.setBarcode("CC-" + i);
+            copies.add(copy);
+        }
+        spare = new BookCopy();
+        spare.setBook(book);
+        spare.setBarcode("CC-spare");
+        new BookCopyService().createBookCopies(copies, ProgressListener.NONE);
+        new BookCopyService().createBookCopy(spare);
+        copyIds = copies.stream().map(BookCopy::getCopyId).collect(Collectors.toList());
+
+        students = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = new Student();
+            student.setBroncoId(FIRST_BRONCO_ID + i);
+            student.setName("Desk Student " + i);
+            new StudentService().addStudent(student);
+            students.add(student);
+        }
+        waiting = new Student();
+        waiting.setBroncoId(FIRST_BRONCO_ID + STUDENTS);
+        waiting.setName("Waiting Student");
+        new StudentService().addStudent(waiting);
+    }
+
+    @AfterAll
+    public static void removeFixture() {
+        List<Integer> allCopyIds = new ArrayList<>(copyIds);
+        allCopyIds.add(spare.getCopyId());
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            session.createNativeMutationQuery("DELETE FROM loan_bookcopy WHERE copy_id IN (:ids)")
+                .setParameter("ids", allCopyIds).executeUpdate();
+            session.createMutationQuery("DELETE FROM Loan l WHERE l.student.broncoId BETWEEN :first AND :last")
+                .setParameter("first", FIRST_BRONCO_ID).setParameter("last", FIRST_BRONCO_ID + STUDENTS).executeUpdate();
+            session.createMutationQuery("DELETE FROM BookCopy bc WHERE bc.copyId IN :ids")
+                .setParameter("ids", allCopyIds).executeUpdate();
+            session.createMutationQuery("DELETE FROM Student s WHERE s.broncoId BETWEEN :first AND :last")
+                .setParameter("first", FIRST_BRONCO_ID).setParameter("last", FIRST_BRONCO_ID + STUDENTS).executeUpdate();
+            tx.commit();
+        }
+        // also drops the book from the search index
+        new BookService().deleteBook(book.getBookId());
+    }
+
+    @Test
+    public void checkoutThatTimesOutOnALockIsRetried() throws Exception {
+        ExecutorService desk = Executors.newSingleThreadExecutor();
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            // another desk holds the student row longer than the lock timeout, the first attempt of the checkout times out
+            Transaction tx = session.beginTransaction();
+            session.find(Student.class, waiting.getBroncoId(), LockModeType.PESSIMISTIC_WRITE);
+            Date today = new Date();
+            Future<Loan> checkout = desk.submit(() -> new LoanService().createLoanForCopyIds(waiting, List.of(spare.getCopyId()),
+                today, new Date(today.getTime() + TimeUnit.DAYS.toMillis(7))));
+            Thread.sleep(PAST_LOCK_TIMEOUT_MILLIS);
+            tx.commit();
+
+            Loan loan = checkout.get(1, TimeUnit.MINUTES);
+            new LoanService().deleteLoan(loan.getLoanId());
+        } finally {
+            desk.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentCheckoutsNeverDoubleLend() throws Exception {
+        AtomicInteger lent = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService desks = Executors.newFixedThreadPool(DESKS);
+        List<Future<?>> runs = new ArrayList<>();
+
+        for (int d = 0; d < DESKS; d++) {
+            Random random = new Random(d);
+            runs.add(desks.submit(() -> {
+                LoanService loanService = new LoanService();
+                List<Integer> open = new ArrayList<>();
+                start.await();
+                for (int i = 0; i < CHECKOUTS_PER_DESK; i++) {
+                    // every desk goes after the same few students and copies
+                    List<Integer> wanted = new ArrayList<>(copyIds);
+                    Collections.shuffle(wanted, random);
+                    wanted = wanted.subList(0, 1 + random.nextInt(2));
+                    Date today = new Date();
+                    try {
+                        open.add(loanService.createLoanForCopyIds(students.get(random.nextInt(STUDENTS)), wanted, today,
+                            new Date(today.getTime() + TimeUnit.DAYS.toMillis(7))).getLoanId());
+                        lent.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        refused.incrementAndGet();
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                    if (!open.isEmpty() && random.nextInt(3) == 0) {
+                        loanService.returnLoan(open.remove(random.nextInt(open.size())), new Date());
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> run : runs) {
+            run.get(2, TimeUnit.MINUTES);
+        }
+        desks.shutdown();
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+        assertTrue(lent.get() > 0 && refused.get() > 0, "Expected both successful and refused checkouts");
+        assertEquals(DESKS * CHECKOUTS_PER_DESK, lent.get() + refused.get());
+
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Map<Integer, Long> openLoansPerCopy = session.createQuery(
+                    "SELECT bc.copyId, COUNT(l) FROM Loan l JOIN l.bookCopies bc WHERE l.returnDate IS NULL AND bc.copyId IN :ids"
+                        + " GROUP BY bc.copyId", Object[].class)
+                .setParameter("ids", copyIds)
+                .list().stream()
+                .collect(Collectors.toMap(row -> (Integer) row[0], row -> (Long) row[1]));
+            for (BookCopy copy : session.createQuery("FROM BookCopy bc WHERE bc.copyId IN :ids", BookCopy.class)
+                    .setParameter("ids", copyIds).list()) {
+                long openLoans = openLoansPerCopy.getOrDefault(copy.getCopyId(), 0L);
+                assertTrue(openLoans <= 1, "Copy " + copy.getBarcode() + " is in " + openLoans + " open loans");
+                assertEquals(openLoans == 1, copy.isBorrowed(), "Borrowed flag of copy " + copy.getBarcode());
+            }
+
+            List<Long> heldPerStudent = session.createQuery(
+                    "SELECT COUNT(bc) FROM Loan l JOIN l.bookCopies bc WHERE l.returnDate IS NULL"
+                        + " AND l.student.broncoId BETWEEN :first AND :last GROUP BY l.student.broncoId", Long.class)
+                .setParameter("first", FIRST_BRONCO_ID)
+                .setParameter("last", FIRST_BRONCO_ID + STUDENTS - 1)
+                .list();
+            heldPerStudent.forEach(held -> assertTrue(held <= 5, "A student holds " + held + " copies"));
+
+            // the counters moved with every checkout and return
+            long available = session.createQuery(
+                    "SELECT COUNT(bc) FROM BookCopy bc WHERE bc.book.bookId = :id AND bc.isBorrowed = false", Long.class)
+                .setParameter("id", book.getBookId())
+                .uniqueResult();
+            BookAvailability availability = new BookService().getAvailability(List.of(book.getBookId())).get(book.getBookId());
+            assertEquals(COPIES + 1, availability.totalCopies(), "Copies and the spare");
+            assertEquals(available, availability.availableCopies());
+        }
+    }
+}
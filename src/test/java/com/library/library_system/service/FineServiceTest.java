@@ -0,0 +1,138 @@
+package com.library.library_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.library_system.model.Book;
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.Loan;
+import com.library.library_system.model.Student;
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that fines accrue once per day on open overdue loans, are kept when the loan is returned, block checkouts
+ * above the limit and are paid down by payments. Uses the default policy of 25 cents a day, capped at $10 per copy.
+ * Runs against the in-memory H2 database configured for surefire.
+ */
+public class FineServiceTest {
+
+    private static final int BRONCO_ID = 7400;
+    private static final int PAYING_BRONCO_ID = 7401;
+
+    private static Book book;
+    private static BookCopy[] copies;
+    private static Student student;
+    private static Student payingStudent;
+    private static final List<Integer> loanIds = new ArrayList<>();
+
+    @BeforeAll
+    public static void createFixture() {
+        book = new Book();
+        book.setIsbn("9780262033848");
+        book.setTitle("Introduction to Algorithms");
+        new BookService().createBook(book);
+
+        BookCopyService bookCopyService = new BookCopyService();
+        copies = new BookCopy[3];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = new BookCopy();
+            copies[i].setBook(book);
+            copies[i].setBarcode("FN-" + i);
+            bookCopyService.createBookCopy(copies[i]);
+        }
+
+        student = new Student();
+        student.setBroncoId(BRONCO_ID);
+        student.setName("Fined Reader");
+        new StudentService().addStudent(student);
+
+        payingStudent = new Student();
+        payingStudent.setBroncoId(PAYING_BRONCO_ID);
+        payingStudent.setName("Paying Reader");
+        new StudentService().addStudent(payingStudent);
+    }
+
+    @AfterAll
+    public static void removeFixture() {
+        loanIds.forEach(new LoanService()::deleteLoan);
+        new BookService().deleteBook(book.getBookId());
+        new StudentService().deleteStudent(BRONCO_ID);
+        new StudentService().deleteStudent(PAYING_BRONCO_ID);
+    }
+
+    @Test
+    public void finesAccrueBlockCheckoutAndArePaid() {
+        FineService fineService = new FineService();
+        LoanService loanService = new LoanService();
+        long now = System.currentTimeMillis();
+        Loan late = loanService.createLoanForCopyIds(student, List.of(copies[0].getCopyId()),
+            new Date(now - TimeUnit.DAYS.toMillis(44)), new Date(now - TimeUnit.DAYS.toMillis(30)));
+        loanIds.add(late.getLoanId());
+
+        // 30 days at 25 cents, then the same day again writes nothing
+        LocalDate today = LocalDate.now();
+        assertTrue(fineService.accrueFines(today).loansUpdated() >= 1);
+        assertEquals(750, fineService.getBalance(BRONCO_ID));
+        assertEquals(0, fineService.accrueFines(today).loansUpdated());
+        assertEquals(today, fineService.getLastAccrualDay());
+
+        // capped at $10 for the one copy
+        fineService.accrueFines(today.plusDays(60));
+        assertEquals(1000, fineService.getBalance(BRONCO_ID));
+
+        // returning fixes the fine as of the return day
+        loanService.returnLoan(late.getLoanId(), new Date(now));
+        assertEquals(750, fineService.getBalance(BRONCO_ID));
+
+        List<Integer> next = List.of(copies[1].getCopyId());
+        Date dueDate = new Date(now + TimeUnit.DAYS.toMillis(14));
+        IllegalArgumentException blocked = assertThrows(IllegalArgumentException.class,
+            () -> loanService.createLoanForCopyIds(student, next, new Date(now), dueDate));
+        assertTrue(blocked.getMessage().contains("$7.50"));
+
+        assertThrows(IllegalArgumentException.class, () -> fineService.recordPayment(BRONCO_ID, 751));
+        assertEquals(450, fineService.recordPayment(BRONCO_ID, 300));
+        assertEquals(450, fineService.getBalance(BRONCO_ID));
+        loanIds.add(loanService.createLoanForCopyIds(student, next, new Date(now), dueDate).getLoanId());
+    }
+
+    @Test
+    public void paymentThatReadTheLoanBeforeAnAccrualIsRetried() {
+        FineService fineService = new FineService();
+        long now = System.currentTimeMillis();
+        Loan late = new LoanService().createLoanForCopyIds(payingStudent, List.of(copies[2].getCopyId()),
+            new Date(now - TimeUnit.DAYS.toMillis(24)), new Date(now - TimeUnit.DAYS.toMillis(10)));
+        loanIds.add(late.getLoanId());
+        LocalDate today = LocalDate.now();
+        fineService.accrueFines(today);
+        assertEquals(250, fineService.getBalance(PAYING_BRONCO_ID));
+
+        // a payment reads the loan, then the next night's accrual commits before the payment is flushed
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            Loan read = session.get(Loan.class, late.getLoanId());
+            fineService.accrueFines(today.plusDays(1));
+            read.setFinePaidCents(100);
+            RuntimeException stale = assertThrows(RuntimeException.class, tx::commit);
+            assertTrue(ConflictRetry.isConflict(stale));
+            if (tx.getStatus().canRollback()) tx.rollback();
+        }
+        assertEquals(275, fineService.getBalance(PAYING_BRONCO_ID));
+
+        // retried payments read the accrued fine
+        assertEquals(175, fineService.recordPayment(PAYING_BRONCO_ID, 100));
+        assertEquals(175, fineService.getBalance(PAYING_BRONCO_ID));
+    }
+}
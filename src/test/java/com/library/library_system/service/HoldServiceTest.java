@@ -0,0 +1,146 @@
+package com.library.library_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.library_system.model.Book;
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.Hold;
+import com.library.library_system.model.Loan;
+import com.library.library_system.model.Student;
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walks a title through its hold queue: holds are placed while every copy is out, two copies returned at once at
+ * different desks go to the first two holds in order, only the student a copy is set aside for can check it out,
+ * and an uncollected hold expires to the next one. Runs against the in-memory H2 database configured for surefire.
+ */
+public class HoldServiceTest {
+
+    private static final int FIRST_BRONCO_ID = 7500;
+    private static final int STUDENTS = 5;
+
+    private static Book book;
+    private static BookCopy[] copies;
+    private static final List<Student> students = new ArrayList<>();
+    private static final List<Integer> loanIds = new ArrayList<>();
+
+    @BeforeAll
+    public static void createFixture() {
+        book = new Book();
+        book.setIsbn("9780201633610");
+        book.setTitle("Design Patterns");
+        new BookService().createBook(book);
+
+        BookCopyService bookCopyService = new BookCopyService();
+        copies = new BookCopy[2];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = new BookCopy();
+            copies[i].setBook(book);
+            copies[i].setBarcode("HD-" + i);
+            bookCopyService.createBookCopy(copies[i]);
+        }
+
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = new Student();
+            student.setBroncoId(FIRST_BRONCO_ID + i);
+            student.setName("Waiting Reader " + i);
+            new StudentService().addStudent(student);
+            students.add(student);
+        }
+    }
+
+    @AfterAll
+    public static void removeFixture() {
+        loanIds.forEach(new LoanService()::deleteLoan);
+        // also drops the holds of the book
+        new BookService().deleteBook(book.getBookId());
+        students.forEach(student -> new StudentService().deleteStudent(student.getBroncoId()));
+    }
+
+    @Test
+    public void returnedCopiesGoToTheQueueInOrder() throws Exception {
+        LoanService loanService = new LoanService();
+        HoldService holdService = new HoldService();
+        long now = System.currentTimeMillis();
+        Date dueDate = new Date(now + TimeUnit.DAYS.toMillis(14));
+        for (int i = 0; i < copies.length; i++) {
+            loanIds.add(loanService.createLoanForCopyIds(students.get(i), List.of(copies[i].getCopyId()), new Date(now), dueDate).getLoanId());
+        }
+
+        Hold first = holdService.placeHold(students.get(2).getBroncoId(), book.getBookId());
+        Hold second = holdService.placeHold(students.get(3).getBroncoId(), book.getBookId());
+        Hold third = holdService.placeHold(students.get(4).getBroncoId(), book.getBookId());
+        assertEquals(3, holdService.getQueuePosition(third.getHoldId()));
+        assertThrows(IllegalArgumentException.class, () -> holdService.placeHold(students.get(2).getBroncoId(), book.getBookId()));
+
+        // both copies come back at the same time at two desks
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService desks = Executors.newFixedThreadPool(loanIds.size());
+        List<Future<?>> returns = new ArrayList<>();
+        for (int loanId : loanIds) {
+            returns.add(desks.submit(() -> {
+                start.await();
+                new LoanService().returnLoan(loanId, new Date());
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> ret : returns) {
+            ret.get(1, TimeUnit.MINUTES);
+        }
+        desks.shutdown();
+
+        Hold firstReady = hold(first);
+        Hold secondReady = hold(second);
+        assertEquals(Hold.Status.READY, firstReady.getStatus());
+        assertEquals(Hold.Status.READY, secondReady.getStatus());
+        assertNotEquals(firstReady.getCopyId(), secondReady.getCopyId());
+        assertEquals(1, holdService.getQueuePosition(third.getHoldId()));
+        assertEquals(0, availableCopies());
+
+        // set aside for the first student only
+        List<Integer> firstCopy = List.of(firstReady.getCopyId());
+        assertThrows(IllegalArgumentException.class,
+            () -> loanService.createLoanForCopyIds(students.get(3), firstCopy, new Date(now), dueDate));
+        loanIds.add(loanService.createLoanForCopyIds(students.get(2), firstCopy, new Date(now), dueDate).getLoanId());
+        assertEquals(Hold.Status.COLLECTED, hold(first).getStatus());
+        assertEquals(0, availableCopies());
+
+        // the second student does not come, their copy goes to the third
+        HoldService.SweepResult sweep = holdService.sweepHolds(new Date(now + TimeUnit.DAYS.toMillis(HoldService.DEFAULT_PICKUP_DAYS + 1)));
+        assertEquals(1, sweep.expired());
+        assertEquals(Hold.Status.EXPIRED, hold(second).getStatus());
+        assertEquals(secondReady.getCopyId(), hold(third).getCopyId());
+
+        // nobody is left waiting, the copy goes back on the shelf
+        assertTrue(holdService.cancelHold(third.getHoldId()));
+        assertEquals(1, availableCopies());
+        assertThrows(IllegalArgumentException.class, () -> holdService.placeHold(students.get(3).getBroncoId(), book.getBookId()));
+    }
+
+    private static Hold hold(Hold hold) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.get(Hold.class, hold.getHoldId());
+        }
+    }
+
+    private static int availableCopies() {
+        return new BookService().getAvailability(List.of(book.getBookId())).get(book.getBookId()).availableCopies();
+    }
+}
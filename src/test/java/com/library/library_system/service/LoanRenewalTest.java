@@ -0,0 +1,157 @@
+package com.library.library_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.library_system.model.Book;
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.BookStock;
+import com.library.library_system.model.Hold;
+import com.library.library_system.model.Loan;
+import com.library.library_system.model.Student;
+import com.library.library_system.util.SessionFactoryProvider;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks that renewals move the due date in place and refuse loans past the 180-day limit, returned loans and
+ * loans of a title other students are waiting for, including a hold placed while the renewal runs. Runs against the in-memory H2 database configured for surefire.
+ */
+public class LoanRenewalTest {
+
+    private static final int FIRST_BRONCO_ID = 7600;
+    private static final int STUDENTS = 5;
+
+    private static Book book;
+    private static BookCopy[] copies;
+    // a title with a single copy for the race with a hold
+    private static Book contested;
+    private static BookCopy contestedCopy;
+    private static final List<Student> students = new ArrayList<>();
+    private static final List<Integer> loanIds = new ArrayList<>();
+    private static final List<Hold> holds = new ArrayList<>();
+
+    @BeforeAll
+    public static void createFixture() {
+        book = new Book();
+        book.setIsbn("9780596007126");
+        book.setTitle("Head First Design Patterns");
+        new BookService().createBook(book);
+
+        BookCopyService bookCopyService = new BookCopyService();
+        copies = new BookCopy[3];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = new BookCopy();
+            copies[i].setBook(book);
+            copies[i].setBarcode("RN-" + i);
+            bookCopyService.createBookCopy(copies[i]);
+        }
+
+        contested = new Book();
+        contested.setIsbn("9780321125217");
+        contested.setTitle("Domain-Driven Design");
+        new BookService().createBook(contested);
+        contestedCopy = new BookCopy();
+        contestedCopy.setBook(contested);
+        contestedCopy.setBarcode("RN-C");
+        bookCopyService.createBookCopy(contestedCopy);
+
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = new Student();
+            student.setBroncoId(FIRST_BRONCO_ID + i);
+            student.setName("Renewing Reader " + i);
+            new StudentService().addStudent(student);
+            students.add(student);
+        }
+    }
+
+    @AfterAll
+    public static void removeFixture() {
+        // cancelled first, so the copies of the deleted loans are not set aside for it
+        holds.forEach(hold -> new HoldService().cancelHold(hold.getHoldId()));
+        loanIds.forEach(new LoanService()::deleteLoan);
+        new BookService().deleteBook(book.getBookId());
+        new BookService().deleteBook(contested.getBookId());
+        students.forEach(student -> new StudentService().deleteStudent(student.getBroncoId()));
+    }
+
+    @Test
+    public void renewalsMoveTheDueDateWithinTheRules() {
+        LoanService loanService = new LoanService();
+        long now = System.currentTimeMillis();
+        Student reader = students.get(0);
+        Loan recent = loan(reader, copies[0], now, now + TimeUnit.DAYS.toMillis(14));
+        Loan longRunning = loan(reader, copies[1], now - TimeUnit.DAYS.toMillis(170), now + TimeUnit.DAYS.toMillis(5));
+
+        Date newDueDate = new Date(now + TimeUnit.DAYS.toMillis(28));
+        RenewalResult result = loanService.renewAll(reader.getBroncoId(), newDueDate);
+        assertEquals(List.of(recent.getLoanId()), result.renewedIds());
+        assertEquals(Map.of("past the 180-day limit", 1), result.refusals());
+        Loan renewed = loanService.getLoanById(recent.getLoanId());
+        assertEquals(LocalDate.now().plusDays(28), day(renewed.getDueDate()));
+        assertEquals(LocalDate.now(), day(renewed.getBorrowDate()));
+
+        // the last copy goes out and somebody queues for the title
+        loan(students.get(1), copies[2], now, now + TimeUnit.DAYS.toMillis(14));
+        holds.add(new HoldService().placeHold(students.get(2).getBroncoId(), book.getBookId()));
+        IllegalArgumentException held = assertThrows(IllegalArgumentException.class,
+            () -> loanService.renewLoan(recent.getLoanId(), new Date(now + TimeUnit.DAYS.toMillis(35))));
+        assertTrue(held.getMessage().contains("wanted by a hold"));
+
+        loanService.returnLoan(longRunning.getLoanId(), new Date(now));
+        RenewalResult returned = loanService.renewLoans(List.of(longRunning.getLoanId(), -1), newDueDate);
+        assertEquals(0, returned.renewed());
+        assertEquals(Map.of("already returned", 1, "loan not found", 1), returned.refusals());
+    }
+
+    private static Loan loan(Student student, BookCopy copy, long borrowDate, long dueDate) {
+        Loan loan = new LoanService().createLoanForCopyIds(student, List.of(copy.getCopyId()), new Date(borrowDate), new Date(dueDate));
+        loanIds.add(loan.getLoanId());
+        return loan;
+    }
+
+    private static LocalDate day(Date date) {
+        return new java.sql.Date(date.getTime()).toLocalDate();
+    }
+
+    @Test
+    public void holdPlacedDuringARenewalIsSeenByIt() throws Exception {
+        long now = System.currentTimeMillis();
+        Loan loan = loan(students.get(3), contestedCopy, now, now + TimeUnit.DAYS.toMillis(14));
+
+        // a hold placement in progress: its queue lock is taken and the hold is not committed yet
+        ExecutorService desk = Executors.newSingleThreadExecutor();
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            session.find(BookStock.class, contested.getBookId(), LockModeType.PESSIMISTIC_WRITE);
+            Hold waiting = new Hold(contested.getBookId(), students.get(4).getBroncoId(), new Date());
+            session.persist(waiting);
+
+            Future<RenewalResult> renewal = desk.submit(() ->
+                new LoanService().renewLoans(List.of(loan.getLoanId()), new Date(now + TimeUnit.DAYS.toMillis(28))));
+            assertThrows(TimeoutException.class, () -> renewal.get(300, TimeUnit.MILLISECONDS));
+            tx.commit();
+            holds.add(waiting);
+
+            assertEquals(Map.of("wanted by a hold", 1), renewal.get(1, TimeUnit.MINUTES).refusals());
+        } finally {
+            desk.shutdown();
+        }
+    }
+}
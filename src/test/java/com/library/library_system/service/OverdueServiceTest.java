@@ -0,0 +1,112 @@
+package com.library.library_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.library_system.model.Book;
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.Loan;
+import com.library.library_system.model.OverdueNotice;
+import com.library.library_system.model.Student;
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that the overdue scan queues exactly one notice per overdue loan, none for loans that are not due yet,
+ * and nothing more when it runs again. Runs against the in-memory H2 database configured for surefire.
+ */
+public class OverdueServiceTest {
+
+    private static final int BRONCO_ID = 7300;
+
+    private static Book book;
+    private static Loan current;
+    private static Loan overdue;
+
+    @BeforeAll
+    public static void createFixture() {
+        book = new Book();
+        book.setIsbn("9780131103627");
+        book.setTitle("The C Programming Language");
+        new BookService().createBook(book);
+
+        BookCopyService bookCopyService = new BookCopyService();
+        BookCopy[] copies = new BookCopy[2];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = new BookCopy();
+            copies[i].setBook(book);
+            copies[i].setBarcode("OD-" + i);
+            bookCopyService.createBookCopy(copies[i]);
+        }
+
+        Student student = new Student();
+        student.setBroncoId(BRONCO_ID);
+        student.setName("Late Reader");
+        new StudentService().addStudent(student);
+
+        // the loan that is not due yet first, a student with an overdue loan cannot borrow
+        long now = System.currentTimeMillis();
+        LoanService loanService = new LoanService();
+        current = loanService.createLoanForCopyIds(student, List.of(copies[0].getCopyId()),
+            new Date(now), new Date(now + TimeUnit.DAYS.toMillis(14)));
+        overdue = loanService.createLoanForCopyIds(student, List.of(copies[1].getCopyId()),
+            new Date(now - TimeUnit.DAYS.toMillis(20)), new Date(now - TimeUnit.DAYS.toMillis(6)));
+    }
+
+    @AfterAll
+    public static void removeFixture() {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            session.createMutationQuery("DELETE FROM OverdueNotice n WHERE n.broncoId = :id")
+                .setParameter("id", BRONCO_ID).executeUpdate();
+            tx.commit();
+        }
+        new LoanService().deleteLoan(current.getLoanId());
+        new LoanService().deleteLoan(overdue.getLoanId());
+        new BookService().deleteBook(book.getBookId());
+        new StudentService().deleteStudent(BRONCO_ID);
+    }
+
+    @Test
+    public void scanQueuesOneNoticePerOverdueLoan() {
+        OverdueService overdueService = new OverdueService();
+        scanUntilCaughtUp(overdueService);
+        assertEquals(1, notices(overdue).size());
+        assertTrue(notices(current).isEmpty());
+
+        // nothing new went overdue
+        scanUntilCaughtUp(overdueService);
+        assertEquals(1, notices(overdue).size());
+
+        OverdueNotice notice = notices(overdue).get(0);
+        assertEquals(BRONCO_ID, notice.getBroncoId());
+        assertEquals(1, overdueService.markNoticesSent(List.of(notice.getNoticeId())));
+        assertEquals(0, overdueService.markNoticesSent(List.of(notice.getNoticeId())));
+        assertFalse(overdueService.getPendingNotices(Integer.MAX_VALUE).stream()
+            .anyMatch(pending -> pending.getNoticeId() == notice.getNoticeId()));
+    }
+
+    private static void scanUntilCaughtUp(OverdueService overdueService) {
+        while (!overdueService.scanNewlyOverdue(Duration.ofSeconds(10)).caughtUp()) {
+            // another batch
+        }
+    }
+
+    private static List<OverdueNotice> notices(Loan loan) {
+        try (Session session = SessionFactoryProvider.getSessionFactory().openSession()) {
+            return session.createQuery("FROM OverdueNotice n WHERE n.loanId = :id", OverdueNotice.class)
+                .setParameter("id", loan.getLoanId())
+                .list();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.library.library_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.library_system.model.Book;
+import com.library.library_system.model.BookCopy;
+import com.library.library_system.model.Loan;
+import com.library.library_system.model.Student;
+import com.library.library_system.util.SessionFactoryProvider;
+import org.hibernate.Hibernate;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Counts the SQL statements of the service calls behind each view with Hibernate statistics,
+ * so a lazy association touched outside its fetch plan shows up as a failing count.
+ * Runs against the in-memory H2 database configured for surefire.
+ */
+public class QueryCountTest {
+
+    private static final int COPIES = 4;
+
+    private static Book book;
+    private static Student student;
+    private static List<BookCopy> copies;
+    private static Loan loan;
+
+    @BeforeAll
+    public static void createFixture() {
+        book = new Book();
+        book.setIsbn("9780306406157");
+        book.setTitle("Signals and Noise");
+        new BookService().createBook(book);
+
+        BookCopyService bookCopyService = new BookCopyService();
+        copies = new ArrayList<>();
+        for (int i = 0; i < COPIES; i++) {
+            BookCopy copy = new BookCopy();
+            copy.setBook(book);
+            copy.setBarcode("QC-" + i);
+            copy.setLocation("Stacks");
+            bookCopyService.createBookCopy(copy);
+            copies.add(copy);
+        }
+
+        student = new Student();
+        student.setBroncoId(9001);
+        student.setName("Ann Lee");
+        new StudentService().addStudent(student);
+
+        Date today = new Date();
+        Date due = new Date(today.getTime() + TimeUnit.DAYS.toMillis(14));
+        loan = new LoanService().createLoanForCopyIds(student,
+            List.of(copies.get(0).getCopyId(), copies.get(1).getCopyId()), today, due);
+    }
+
+    @AfterAll
+    public static void removeFixture() {
+        new LoanService().deleteLoan(loan.getLoanId());
+        // also drops the copies of the book
+        new BookService().deleteBook(book.getBookId());
+        new StudentService().deleteStudent(student.getBroncoId());
+    }
+
+    @Test
+    public void tablePagesAreOneQuery() {
+        assertStatements(1, () -> new BookCopyService().getBookCopiesPage(PageRequest.first(50), false));
+        assertStatements(1, () -> new LoanService().getLoansPage(PageRequest.first(50)));
+        assertStatements(1, () -> new LoanService().getLoanReportPage(LoanFilter.all(), PageRequest.first(50)));
+    }
+
+    @Test
+    public void receiptLoadsCopiesAndBooksInOneQuery() {
+        String receipt = assertStatements(1, () -> new LoanService().generateReceipt(loan.getLoanId()));
+        assertTrue(receipt.contains("QC-0 - Signals and Noise"), receipt);
+        assertTrue(receipt.contains("QC-1 - Signals and Noise"), receipt);
+    }
+
+    @Test
+    public void loanDetailsFetchStudentAndCopies() {
+        Loan details = assertStatements(1, () -> new LoanService().getLoanById(loan.getLoanId()));
+        assertTrue(Hibernate.isInitialized(details.getStudent()));
+        assertEquals(2, details.getBookCopies().size());
+
+        List<Loan> loans = assertStatements(1, () -> new LoanService().getAllLoans());
+        assertTrue(loans.stream().anyMatch(listed -> listed.getLoanId() == loan.getLoanId()));
+    }
+
+    @Test
+    public void barcodeLookupFetchesBookOnly() {
+        BookCopy copy = assertStatements(1, () -> new BookCopyService().findByBarcode("QC-2"));
+        assertTrue(Hibernate.isInitialized(copy.getBook()));
+        assertEquals("Signals and Noise", copy.getBook().getTitle());
+
+        BookCopy plain = assertStatements(1, () -> new BookCopyService().readBookCopy(copies.get(3).getCopyId()));
+        assertFalse(Hibernate.isInitialized(plain.getBook()));
+    }
+
+    @Test
+    public void checkoutDoesNotLoadCopies() {
+        Date today = new Date();
+        Date due = new Date(today.getTime() + TimeUnit.DAYS.toMillis(7));
+        // student row lock, eligibility check, flag update, availability counter, loan insert and one batch for the copy links
+        Loan created = assertStatements(6, () -> new LoanService().createLoanForCopyIds(student,
+            List.of(copies.get(2).getCopyId()), today, due));
+        new LoanService().deleteLoan(created.getLoanId());
+    }
+
+    @Test
+    public void availabilityReadsCountersOnly() {
+        BookAvailability availability = assertStatements(1,
+            () -> new BookService().getAvailability(List.of(book.getBookId()))).get(book.getBookId());
+        assertEquals(COPIES, availability.totalCopies());
+        assertEquals(COPIES - 2, availability.availableCopies());
+    }
+
+    private static <T> T assertStatements(long expected, Supplier<T> call) {
+        Statistics statistics = SessionFactoryProvider.getSessionFactory().getStatistics();
+        statistics.clear();
+        T result = call.get();
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL statements");
+        return result;
+    }
+}